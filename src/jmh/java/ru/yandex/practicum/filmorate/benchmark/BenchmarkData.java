@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+/**
+ * Генерация тестового каталога. Лайки и друзья распределены по степенному закону:
+ * небольшая доля фильмов и пользователей собирает большую часть связей.
+ */
+final class BenchmarkData {
+
+    static final long SEED = 42;
+
+    private BenchmarkData() {
+    }
+
+    static Film film(long number) {
+        return Film.builder()
+                .name("Film " + number)
+                .description("Description of film " + number)
+                .releaseDate(LocalDate.of(1950, 1, 1).plusDays(number % 25_000))
+                .duration(Duration.ofMinutes(60 + number % 120))
+                .build();
+    }
+
+    static User user(long number) {
+        return new User("user" + number + "@mail.ru", "user" + number, "User " + number,
+                LocalDate.of(1970, 1, 1).plusDays(number % 15_000));
+    }
+
+    /**
+     * Id от 1 до {@code bound} со степенным распределением: малые id выпадают намного чаще.
+     */
+    static long skewedId(SplittableRandom random, long bound) {
+        double u = random.nextDouble();
+        return 1 + (long) (Math.pow(u, 3) * bound);
+    }
+}
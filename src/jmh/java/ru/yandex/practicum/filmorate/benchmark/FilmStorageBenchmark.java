@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@State(Scope.Benchmark)
+public class FilmStorageBenchmark {
+
+    private static final int LIKES_PER_FILM = 10;
+
+    @Param({"10000", "100000", "1000000"})
+    private int films;
+
+    private FilmStorage filmStorage;
+
+    @Setup
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        for (long i = 1; i <= films; i++) {
+            filmStorage.saveFilm(BenchmarkData.film(i));
+        }
+        SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+        for (long i = 0; i < (long) films * LIKES_PER_FILM; i++) {
+            Film film = filmStorage.findFilmById(BenchmarkData.skewedId(random, films)).orElseThrow();
+            filmStorage.putLike(film, 1 + random.nextLong(films));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadRandom {
+        final SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+    }
+
+    @Benchmark
+    public List<Film> findMostPopularFilms() {
+        return filmStorage.findMostPopularFilms(10);
+    }
+
+    @Benchmark
+    public Film putAndRemoveLike(ThreadRandom state) {
+        Film film = filmStorage.findFilmById(BenchmarkData.skewedId(state.random, films)).orElseThrow();
+        // Id вне диапазона пользователей из setUp: пара лайк/дизлайк не меняет состояние каталога
+        long userId = films + 1 + state.random.nextLong(films);
+        filmStorage.putLike(film, userId);
+        filmStorage.removeLike(film, userId);
+        return film;
+    }
+
+    @Benchmark
+    public List<Film> findRecommendedFilmsForRandomUser(ThreadRandom state) {
+        return filmStorage.findRecommendedFilms(1 + state.random.nextLong(films), 10);
+    }
+
+    // Год случайный: у популярных фильмов находится обходом рейтинга, у редких — по индексу дат
+    @Benchmark
+    public List<Film> findMostPopularFilmsOfRandomYear(ThreadRandom state) {
+        LocalDate from = LocalDate.of(1950 + state.random.nextInt(68), 1, 1);
+        return filmStorage.findMostPopularFilms(10, new FilmFilter(from, from.plusYears(1).minusDays(1), null));
+    }
+
+    // Слово "film" есть у всех фильмов, номер — у одного: кандидаты берутся по редкому слову
+    @Benchmark
+    public List<Film> searchFilmByNameAndNumber(ThreadRandom state) {
+        return filmStorage.searchFilms("film " + (1 + state.random.nextLong(films)), 10);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void precomputeRecommendations() {
+        filmStorage.precomputeRecommendations();
+    }
+}
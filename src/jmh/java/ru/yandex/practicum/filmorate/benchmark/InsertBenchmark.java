@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время вставки всего каталога в пустое хранилище.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@State(Scope.Benchmark)
+public class InsertBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int entities;
+
+    private Film[] films;
+    private User[] users;
+    private FilmStorage filmStorage;
+    private UserStorage userStorage;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        films = new Film[entities];
+        users = new User[entities];
+        for (int i = 0; i < entities; i++) {
+            films[i] = BenchmarkData.film(i);
+            users[i] = BenchmarkData.user(i);
+        }
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+    }
+
+    @Benchmark
+    public FilmStorage saveFilms() {
+        for (Film film : films) {
+            filmStorage.saveFilm(film);
+        }
+        return filmStorage;
+    }
+
+    @Benchmark
+    public UserStorage saveUsers() {
+        for (User user : users) {
+            userStorage.saveUser(user);
+        }
+        return userStorage;
+    }
+}
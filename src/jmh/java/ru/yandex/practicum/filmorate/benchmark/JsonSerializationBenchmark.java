@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация сущностей тем же ObjectMapper, что собирает Spring.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonSerializationBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int relations;
+
+    private ObjectMapper objectMapper;
+    private Film film;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        Set<Long> ids = new HashSet<>();
+        for (long i = 1; i <= relations; i++) {
+            ids.add(i);
+        }
+        film = BenchmarkData.film(1);
+        film.setId(1L);
+        film.setLikes(ids);
+        user = BenchmarkData.user(1);
+        user.setId(1L);
+        user.setFriends(ids);
+    }
+
+    @Benchmark
+    public byte[] serializeFilm() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(film);
+    }
+
+    @Benchmark
+    public byte[] serializeUser() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(user);
+    }
+}
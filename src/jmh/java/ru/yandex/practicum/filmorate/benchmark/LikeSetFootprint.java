@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.storage.SortedLongSet;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Объём кучи на миллион лайков для разных реализаций множества лайков.
+ * Запуск: mvn -Pjmh test-compile exec:exec -Djmh.main=ru.yandex.practicum.filmorate.benchmark.LikeSetFootprint
+ */
+public class LikeSetFootprint {
+
+    private static final int FILMS = 1_000;
+    private static final int LIKES = 1_000_000;
+
+    public static void main(String[] args) {
+        measure("HashSet<Long>", HashSet::new);
+        measure("ConcurrentHashMap.newKeySet()", ConcurrentHashMap::newKeySet);
+        measure("SortedLongSet", SortedLongSet::new);
+    }
+
+    private static void measure(String name, Supplier<Set<Long>> factory) {
+        long before = usedHeap();
+        List<Set<Long>> likes = new ArrayList<>(FILMS);
+        for (int i = 0; i < FILMS; i++) {
+            likes.add(factory.get());
+        }
+        SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+        int added = 0;
+        while (added < LIKES) {
+            Set<Long> filmLikes = likes.get((int) BenchmarkData.skewedId(random, FILMS) - 1);
+            if (filmLikes.add(1 + random.nextLong(10L * LIKES))) {
+                added++;
+            }
+        }
+        long after = usedHeap();
+        System.out.printf("%-32s %8.1f MB на миллион лайков, %5.1f байт на лайк%n",
+                name, (after - before) / 1024.0 / 1024.0, (after - before) / (double) LIKES);
+        likes.clear();
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
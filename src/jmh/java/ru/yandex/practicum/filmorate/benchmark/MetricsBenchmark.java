@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.MeteredFilmStorage;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Цена замера метода хранилища: {@code metered=true} — через {@link MeteredFilmStorage}
+ * с гистограммой задержки. Выделение памяти на вызов — с {@code -prof gc} (gc.alloc.rate.norm).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+    private static final int FILMS = 10_000;
+
+    @Param({"false", "true"})
+    private boolean metered;
+
+    private FilmStorage filmStorage;
+
+    @Setup
+    public void setUp() {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage();
+        for (long i = 1; i <= FILMS; i++) {
+            storage.saveFilm(BenchmarkData.film(i));
+        }
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        registry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                return DistributionStatisticConfig.builder().percentilesHistogram(true).build().merge(config);
+            }
+        });
+        filmStorage = metered ? new MeteredFilmStorage(storage, registry) : storage;
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadRandom {
+        final SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+    }
+
+    @Benchmark
+    public boolean hasFilmsId(ThreadRandom state) {
+        return filmStorage.hasFilmsId(1 + state.random.nextLong(FILMS));
+    }
+
+    @Benchmark
+    public Film findFilmById(ThreadRandom state) {
+        return filmStorage.findFilmById(1 + state.random.nextLong(FILMS)).orElseThrow();
+    }
+}
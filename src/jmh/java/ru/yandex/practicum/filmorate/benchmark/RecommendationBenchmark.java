@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Рекомендации для пользователя с {@code friends} друзьями, у каждого из которых
+ * {@code friendsOfFriend} своих друзей среди {@code USERS} пользователей;
+ * {@code precomputed} — результат посчитан заранее.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@State(Scope.Benchmark)
+public class RecommendationBenchmark {
+
+    private static final int USERS = 100_000;
+
+    @Param({"1000", "5000"})
+    private int friends;
+
+    @Param({"50", "500"})
+    private int friendsOfFriend;
+
+    @Param({"false", "true"})
+    private boolean precomputed;
+
+    private UserStorage userStorage;
+    private User heavyUser;
+
+    @Setup
+    public void setUp() {
+        userStorage = new InMemoryUserStorage();
+        for (long i = 1; i <= USERS; i++) {
+            userStorage.saveUser(BenchmarkData.user(i));
+        }
+        heavyUser = userStorage.findUserById(1L).orElseThrow();
+        SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+        for (long friendId = 2; friendId <= friends + 1; friendId++) {
+            User friend = userStorage.findUserById(friendId).orElseThrow();
+            userStorage.addFriend(heavyUser, friend);
+            for (int i = 0; i < friendsOfFriend; i++) {
+                long otherId = 2 + random.nextLong(USERS - 1);
+                if (otherId != friendId) {
+                    userStorage.addFriend(friend, userStorage.findUserById(otherId).orElseThrow());
+                }
+            }
+        }
+        if (precomputed) {
+            userStorage.precomputeRecommendations(friends);
+        }
+    }
+
+    @Benchmark
+    public List<User> recommendForHeavyUser() {
+        return userStorage.findRecommendedUsers(heavyUser, 10);
+    }
+}
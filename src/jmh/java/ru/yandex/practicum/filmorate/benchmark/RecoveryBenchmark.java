@@ -0,0 +1,121 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.config.PersistenceProperties;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.journal.Journal;
+import ru.yandex.practicum.filmorate.storage.journal.StoragePersistence;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Время восстановления хранилища с {@code likes} лайками при запуске:
+ * из одного журнала или из снимка ({@code snapshot}).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class RecoveryBenchmark {
+
+    private static final int FILMS = 100_000;
+    private static final int USERS = 100_000;
+    private static final int BATCH = 10_000;
+
+    @Param({"10000000"})
+    private int likes;
+
+    @Param({"false", "true"})
+    private boolean snapshot;
+
+    private Path source;
+    private Path directory;
+    private PersistenceProperties properties;
+    private StoragePersistence persistence;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        source = Files.createTempDirectory("recovery-benchmark");
+        PersistenceProperties sourceProperties = new PersistenceProperties(true, source,
+                PersistenceProperties.Durability.ASYNC, Duration.ofMillis(50), Duration.ofDays(1), Long.MAX_VALUE);
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        StoragePersistence writer = new StoragePersistence(films, users, sourceProperties, new SimpleMeterRegistry());
+        for (long i = 1; i <= USERS; i++) {
+            users.saveUser(BenchmarkData.user(i));
+        }
+        for (long i = 1; i <= FILMS; i++) {
+            films.saveFilm(BenchmarkData.film(i));
+        }
+        SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+        List<FilmLike> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < likes; i++) {
+            batch.add(new FilmLike(BenchmarkData.skewedId(random, FILMS), 1 + random.nextLong(USERS)));
+            if (batch.size() == BATCH) {
+                films.putLikes(batch);
+                batch.clear();
+            }
+        }
+        films.putLikes(batch);
+        if (snapshot) {
+            writer.snapshot();
+        }
+        // Без close(): он записал бы снимок, и восстановление шло бы не из журнала
+        films.setJournal(Journal.NONE);
+        users.setJournal(Journal.NONE);
+    }
+
+    // Каждое восстановление идёт из копии каталога: close() после него пишет в каталог снимок
+    @Setup(Level.Invocation)
+    public void copyFiles() throws IOException {
+        directory = Files.createTempDirectory("recovery-benchmark");
+        properties = new PersistenceProperties(true, directory, PersistenceProperties.Durability.ASYNC,
+                Duration.ofMillis(50), Duration.ofDays(1), Long.MAX_VALUE);
+        try (Stream<Path> files = Files.list(source)) {
+            for (Path file : files.toList()) {
+                Files.copy(file, directory.resolve(file.getFileName()));
+            }
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() throws IOException {
+        persistence.close();
+        persistence = null;
+        delete(directory);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        delete(source);
+    }
+
+    @Benchmark
+    public StoragePersistence recover() {
+        persistence = new StoragePersistence(new InMemoryFilmStorage(), new InMemoryUserStorage(), properties,
+                new SimpleMeterRegistry());
+        return persistence;
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@State(Scope.Benchmark)
+public class UserStorageBenchmark {
+
+    private static final int FRIENDSHIPS_PER_USER = 5;
+
+    @Param({"10000", "100000", "1000000"})
+    private int users;
+
+    private UserStorage userStorage;
+    private User heavyUser;
+    private User otherHeavyUser;
+
+    @Setup
+    public void setUp() {
+        userStorage = new InMemoryUserStorage();
+        for (long i = 1; i <= users; i++) {
+            userStorage.saveUser(BenchmarkData.user(i));
+        }
+        SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+        for (long i = 0; i < (long) users * FRIENDSHIPS_PER_USER; i++) {
+            long userId = BenchmarkData.skewedId(random, users);
+            long friendId = 1 + random.nextLong(users);
+            if (userId != friendId) {
+                userStorage.addFriend(userStorage.findUserById(userId).orElseThrow(),
+                        userStorage.findUserById(friendId).orElseThrow());
+            }
+        }
+        heavyUser = userStorage.findUserById(1L).orElseThrow();
+        otherHeavyUser = userStorage.findUserById(2L).orElseThrow();
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadRandom {
+        final SplittableRandom random = new SplittableRandom(BenchmarkData.SEED);
+    }
+
+    @Benchmark
+    public List<User> findFriendsOfHeavyUser() {
+        return userStorage.findFriends(heavyUser);
+    }
+
+    @Benchmark
+    public List<User> findFriendsOfRandomUser(ThreadRandom state) {
+        User user = userStorage.findUserById(BenchmarkData.skewedId(state.random, users)).orElseThrow();
+        return userStorage.findFriends(user);
+    }
+
+    @Benchmark
+    public List<User> findCommonFriendsOfHeavyUsers() {
+        return userStorage.findCommonFriends(heavyUser, otherHeavyUser);
+    }
+
+    @Benchmark
+    public List<User> findCommonFriendsOfRandomUsers(ThreadRandom state) {
+        User user = userStorage.findUserById(BenchmarkData.skewedId(state.random, users)).orElseThrow();
+        User otherUser = userStorage.findUserById(BenchmarkData.skewedId(state.random, users)).orElseThrow();
+        return userStorage.findCommonFriends(user, otherUser);
+    }
+}
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Настройки кэша перед хранилищем.
+ *
+ * @param enabled       включить кэш
+ * @param maximumSize   сколько фильмов и сколько пользователей держать в кэше
+ * @param writeMode     WRITE_THROUGH — лайк или дружба записываются в хранилище до ответа клиенту;
+ *                      WRITE_BEHIND — копятся в буфере и сбрасываются пачками, при падении процесса
+ *                      теряется не больше maxPending изменений за последний flushInterval
+ * @param flushInterval как часто сбрасывать буфер
+ * @param batchSize     сколько изменений отправлять в хранилище одним пакетом
+ * @param maxPending    при таком размере буфера запись сбрасывает его сама, не дожидаясь таймера
+ */
+@ConfigurationProperties("filmorate.cache")
+public record CacheProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("10000") long maximumSize,
+        @DefaultValue("WRITE_BEHIND") WriteMode writeMode,
+        @DefaultValue("200ms") Duration flushInterval,
+        @DefaultValue("500") int batchSize,
+        @DefaultValue("10000") int maxPending) {
+
+    public enum WriteMode {
+        WRITE_THROUGH,
+        WRITE_BEHIND
+    }
+}
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.zalando.logbook.HttpLogWriter;
+import org.zalando.logbook.HttpRequest;
+import ru.yandex.practicum.filmorate.logging.BatchingHttpLogWriter;
+import ru.yandex.practicum.filmorate.logging.SampledRequests;
+
+import java.util.function.Predicate;
+
+/**
+ * Заменяет условие и писателя Logbook: в лог попадает выборка запросов, а пишет его фоновый поток.
+ * Бин условия называется requestCondition — под этим именем его ищет автоконфигурация Logbook
+ * и добавляет к нему logbook.predicate.include/exclude.
+ */
+@Configuration
+@EnableConfigurationProperties(HttpLogProperties.class)
+public class HttpLogConfig {
+
+    @Bean
+    public Predicate<HttpRequest> requestCondition(HttpLogProperties properties) {
+        return new SampledRequests(properties.sampleRate(), properties.maxPerSecond());
+    }
+
+    @Bean
+    public HttpLogWriter httpLogWriter(HttpLogProperties properties, MeterRegistry registry) {
+        return new BatchingHttpLogWriter(properties.queueCapacity(), properties.batchSize(),
+                properties.flushInterval(), registry);
+    }
+}
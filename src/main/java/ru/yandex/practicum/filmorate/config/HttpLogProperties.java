@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Настройки HTTP-лога (Logbook). Размер тел в логе ограничивает logbook.write.max-body-size.
+ *
+ * @param sampleRate    доля логируемых запросов от 0 до 1
+ * @param maxPerSecond  сколько запросов в секунду логировать самое большее, 0 — без ограничения
+ * @param queueCapacity сколько сообщений может ждать записи; при переполнении новые отбрасываются
+ * @param batchSize     сколько сообщений писать в лог одной записью
+ * @param flushInterval как часто фоновый поток пишет накопленные сообщения
+ */
+@ConfigurationProperties("filmorate.http-log")
+public record HttpLogProperties(
+        @DefaultValue("0.01") double sampleRate,
+        @DefaultValue("100") int maxPerSecond,
+        @DefaultValue("10000") int queueCapacity,
+        @DefaultValue("500") int batchSize,
+        @DefaultValue("200ms") Duration flushInterval) {
+}
@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Set;
+
+/**
+ * Гистограммы задержки для запросов, время которых зависит от данных: популярные фильмы
+ * и общие друзья. Остальные запросы публикуют только число, сумму и максимум.
+ */
+@Configuration
+public class MetricsConfig {
+
+    private static final String HTTP_REQUESTS = "http.server.requests";
+    private static final Set<String> HISTOGRAM_URIS = Set.of(
+            "/films/popular",
+            "/users/{id}/friends/common/{otherId}");
+
+    @Bean
+    public MeterFilter latencyHistograms() {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (!HTTP_REQUESTS.equals(id.getName()) || !HISTOGRAM_URIS.contains(id.getTag("uri"))) {
+                    return config;
+                }
+                return DistributionStatisticConfig.builder()
+                        .percentilesHistogram(true)
+                        .build()
+                        .merge(config);
+            }
+        };
+    }
+}
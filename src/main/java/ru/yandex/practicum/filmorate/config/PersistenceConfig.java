@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.journal.StoragePersistence;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+/**
+ * Журнал и снимки для хранилища в памяти, включаются {@code filmorate.persistence.enabled}.
+ * Восстановление идёт при создании бина, до того как приложение начнёт принимать запросы.
+ */
+@Configuration
+@EnableConfigurationProperties(PersistenceProperties.class)
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "memory", matchIfMissing = true)
+public class PersistenceConfig {
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "filmorate.persistence.enabled", havingValue = "true")
+    public StoragePersistence storagePersistence(InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage,
+                                                 PersistenceProperties properties, MeterRegistry registry) {
+        return new StoragePersistence(filmStorage, userStorage, properties, registry);
+    }
+}
@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Настройки сохранения хранилища в памяти на диск: журнал изменений и снимки.
+ *
+ * @param enabled          включить журнал и снимки (только для filmorate.storage=memory)
+ * @param directory        каталог журнала и снимков
+ * @param durability       SYNC — ответ клиенту после fsync записи, одновременные изменения делят один fsync;
+ *                         ASYNC — fsync раз в syncInterval, при падении теряется не больше последнего интервала
+ * @param syncInterval     как часто делать fsync в режиме ASYNC
+ * @param snapshotInterval как часто писать снимок и удалять журнал до него
+ * @param snapshotRecords  после скольких записей журнала писать снимок раньше интервала:
+ *                         ограничивает журнал, который придётся проигрывать при запуске
+ */
+@ConfigurationProperties("filmorate.persistence")
+public record PersistenceProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("./data") Path directory,
+        @DefaultValue("SYNC") Durability durability,
+        @DefaultValue("50ms") Duration syncInterval,
+        @DefaultValue("10m") Duration snapshotInterval,
+        @DefaultValue("1000000") long snapshotRecords) {
+
+    public enum Durability {
+        SYNC,
+        ASYNC
+    }
+}
@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+/**
+ * Фоновый пересчёт рекомендаций, включается {@code filmorate.recommendations.precompute}:
+ * друзей — для тяжёлых пользователей, фильмов — пакетом для всех пользователей с лайками.
+ */
+@Slf4j
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties(RecommendationProperties.class)
+@ConditionalOnProperty(name = "filmorate.recommendations.precompute", havingValue = "true")
+@RequiredArgsConstructor
+public class RecommendationConfig implements SchedulingConfigurer {
+
+    private final UserService userService;
+    private final FilmService filmService;
+    private final RecommendationProperties properties;
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.addFixedDelayTask(this::precomputeFriendRecommendations, properties.precomputeInterval());
+        registrar.addFixedDelayTask(this::precomputeFilmRecommendations, properties.filmsPrecomputeInterval());
+    }
+
+    private void precomputeFriendRecommendations() {
+        long start = System.nanoTime();
+        userService.precomputeRecommendations(properties.minFriends());
+        log.debug("Рекомендации тяжёлых пользователей пересчитаны за {} мс", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void precomputeFilmRecommendations() {
+        long start = System.nanoTime();
+        filmService.precomputeRecommendations();
+        log.debug("Рекомендации фильмов пересчитаны за {} мс", (System.nanoTime() - start) / 1_000_000);
+    }
+}
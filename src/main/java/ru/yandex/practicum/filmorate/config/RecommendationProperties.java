@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Настройки рекомендаций друзей и фильмов.
+ *
+ * @param precompute              заранее считать рекомендации в фоне
+ * @param minFriends              с какого числа друзей пользователь считается тяжёлым
+ * @param precomputeInterval      пауза между проходами по друзьям; проход пересчитывает только тех
+ *                                тяжёлых пользователей, чей результат сброшен изменением дружбы
+ * @param filmsPrecomputeInterval пауза между пакетными пересчётами фильмов для всех пользователей;
+ *                                между ними рекомендации фильмов отстают от новых лайков
+ */
+@ConfigurationProperties("filmorate.recommendations")
+public record RecommendationProperties(
+        @DefaultValue("false") boolean precompute,
+        @DefaultValue("1000") int minFriends,
+        @DefaultValue("10s") Duration precomputeInterval,
+        @DefaultValue("5m") Duration filmsPrecomputeInterval) {
+}
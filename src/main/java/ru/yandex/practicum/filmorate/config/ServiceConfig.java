@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.MeteredFilmService;
+import ru.yandex.practicum.filmorate.service.MeteredUserService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+/**
+ * Сервисы для контроллеров: время каждой операции замеряется на границе сервиса, а не в его методах.
+ */
+@Configuration
+public class ServiceConfig {
+
+    @Bean
+    public FilmService filmService(FilmStorage filmStorage, UserStorage userStorage, MeterRegistry registry) {
+        return new MeteredFilmService(filmStorage, userStorage, registry);
+    }
+
+    @Bean
+    public UserService userService(UserStorage userStorage, MeterRegistry registry) {
+        return new MeteredUserService(userStorage, registry);
+    }
+}
@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import ru.yandex.practicum.filmorate.storage.film.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.MeteredFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.MeteredUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+/**
+ * Хранилище для сервисов: выбранное (memory или jdbc), перед ним кэш, если он включён,
+ * и снаружи — замеры времени каждого метода. Выбранное хранилище внедряется по квалификатору
+ * {@link #FILM_BACKEND} или {@link #USER_BACKEND}, а не по типу: обёртка сама реализует тот же интерфейс.
+ */
+@Configuration
+@EnableConfigurationProperties(CacheProperties.class)
+public class StorageConfig {
+
+    public static final String FILM_BACKEND = "filmBackend";
+    public static final String USER_BACKEND = "userBackend";
+
+    @Bean(destroyMethod = "close")
+    @Primary
+    public MeteredFilmStorage meteredFilmStorage(@Qualifier(FILM_BACKEND) FilmStorage filmStorage,
+                                                 CacheProperties properties, MeterRegistry registry) {
+        FilmStorage storage = properties.enabled()
+                ? new CachingFilmStorage(filmStorage, properties, registry)
+                : filmStorage;
+        return new MeteredFilmStorage(storage, registry);
+    }
+
+    @Bean(destroyMethod = "close")
+    @Primary
+    public MeteredUserStorage meteredUserStorage(@Qualifier(USER_BACKEND) UserStorage userStorage,
+                                                 CacheProperties properties, MeterRegistry registry) {
+        UserStorage storage = properties.enabled()
+                ? new CachingUserStorage(userStorage, properties, registry)
+                : userStorage;
+        return new MeteredUserStorage(storage, registry);
+    }
+}
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Постраничная выдача по курсору (id последнего элемента страницы) и потоковая выдача в NDJSON.
+ */
+final class CursorPaging {
+
+    static final String NDJSON = "application/x-ndjson";
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final MediaType NDJSON_TYPE = MediaType.parseMediaType(NDJSON);
+
+    private static final int STREAM_PAGE_SIZE = 1000;
+
+    private CursorPaging() {
+    }
+
+    static <T> ResponseEntity<List<T>> page(List<T> items, int limit, Function<T, Long> idOf) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (!items.isEmpty() && items.size() == limit) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(idOf.apply(items.getLast())));
+        }
+        return response.body(items);
+    }
+
+    /**
+     * Пишет элементы в ответ по мере чтения страниц из хранилища, не собирая весь список в памяти.
+     */
+    static <T> ResponseEntity<StreamingResponseBody> ndjson(ObjectMapper objectMapper,
+                                                            BiFunction<Long, Integer, List<T>> pageLoader,
+                                                            Function<T, Long> idOf) {
+        StreamingResponseBody body = output -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(output);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            Long cursor = null;
+            List<T> items;
+            do {
+                items = pageLoader.apply(cursor, STREAM_PAGE_SIZE);
+                for (T item : items) {
+                    objectMapper.writeValue(generator, item);
+                    generator.writeRaw('\n');
+                }
+                generator.flush();
+                if (!items.isEmpty()) {
+                    cursor = idOf.apply(items.getLast());
+                }
+            } while (items.size() == STREAM_PAGE_SIZE);
+            generator.close();
+        };
+        return ResponseEntity.ok().contentType(NDJSON_TYPE).body(body);
+    }
+}
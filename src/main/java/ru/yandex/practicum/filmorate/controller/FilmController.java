@@ -1,24 +1,65 @@
 package ru.yandex.practicum.filmorate.controller;
 
-import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
+import java.time.LocalDate;
 import java.util.Collection;
 import java.util.List;
 
 @RestController
-@RequiredArgsConstructor
 @RequestMapping("/films")
 public class FilmController {
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
+    // Готовый JSON фильма и популярных фильмов, действителен до смены ETag
+    private final JsonResponseCache responses;
+
+    public FilmController(FilmService filmService, ObjectMapper objectMapper, MeterRegistry registry) {
+        this.filmService = filmService;
+        this.objectMapper = objectMapper;
+        this.responses = new JsonResponseCache("film-responses", objectMapper, registry);
+    }
 
     @GetMapping
     public Collection<Film> getAllFilms() {
         return filmService.getAllFilms();
     }
 
+    @GetMapping(params = "limit")
+    public ResponseEntity<List<Film>> getFilmsPage(@RequestParam int limit, @RequestParam(required = false) Long cursor) {
+        return CursorPaging.page(filmService.getFilmsPage(cursor, limit), limit, Film::getId);
+    }
+
+    // ?view=summary — фильмы с числом лайков вместо их списка
+    @GetMapping(params = "view=summary")
+    public List<FilmSummary> getAllFilmSummaries() {
+        return filmService.getAllFilmSummaries();
+    }
+
+    @GetMapping(params = {"view=summary", "limit"})
+    public ResponseEntity<List<FilmSummary>> getFilmSummariesPage(@RequestParam int limit,
+                                                                  @RequestParam(required = false) Long cursor) {
+        return CursorPaging.page(filmService.getFilmSummariesPage(cursor, limit), limit, FilmSummary::id);
+    }
+
+    @GetMapping(produces = CursorPaging.NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAllFilms() {
+        return CursorPaging.ndjson(objectMapper, filmService::getFilmsPage, Film::getId);
+    }
+
     @PostMapping
     public Film addFilm(@RequestBody Film film) {
         return filmService.createFilm(film);
@@ -29,9 +70,31 @@ public class FilmController {
        return filmService.updateFilm(newFilm);
     }
 
-    @GetMapping("/{id}")
-    public Film getFilmById(@PathVariable Long id) {
-        return filmService.getFilmById(id);
+    @GetMapping("/search")
+    public List<Film> searchFilms(@RequestParam String q, @RequestParam(defaultValue = "10") int count) {
+        return filmService.searchFilms(q, count);
+    }
+
+    // При совпадении If-None-Match ответ 304 без тела; иначе готовый JSON из кэша, пока фильм не изменился
+    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public byte[] getFilmById(@PathVariable Long id, WebRequest request) {
+        String etag = filmService.getFilmETag(id);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return responses.get("film:" + id, etag, () -> filmService.getFilmById(id));
+    }
+
+    @GetMapping(value = "/{id}", params = "view=summary")
+    public FilmSummary getFilmSummaryById(@PathVariable Long id) {
+        return filmService.getFilmSummaryById(id);
+    }
+
+    @GetMapping("/{id}/likes")
+    public ResponseEntity<List<Long>> getLikesPage(@PathVariable Long id,
+                                                   @RequestParam(defaultValue = "100") int limit,
+                                                   @RequestParam(required = false) Long cursor) {
+        return CursorPaging.page(filmService.getLikesPage(id, cursor, limit), limit, userId -> userId);
     }
 
     @PutMapping("/{id}/like/{userId}")
@@ -44,8 +107,44 @@ public class FilmController {
         filmService.removeLike(id, userId);
     }
 
-    @GetMapping("/popular")
-    public List<Film> getPopularFilmsList(@RequestParam(defaultValue = "10") int count) {
-        return filmService.getMostPopularFilms(count);
+    @PutMapping("/likes")
+    public List<BatchResult<FilmLike>> addLikes(@RequestBody List<FilmLike> likes) {
+        return filmService.addLikes(likes);
+    }
+
+    @DeleteMapping("/likes")
+    public List<BatchResult<FilmLike>> deleteLikes(@RequestBody List<FilmLike> likes) {
+        return filmService.removeLikes(likes);
+    }
+
+    @GetMapping(value = "/popular", produces = MediaType.APPLICATION_JSON_VALUE)
+    public byte[] getPopularFilmsList(@RequestParam(defaultValue = "10") int count,
+                                          @RequestParam(required = false) Integer year,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate to,
+                                          @RequestParam(required = false) Long maxDuration,
+                                          WebRequest request) {
+        String etag = filmService.getPopularFilmsETag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        String key = "popular:" + count + ":" + year + ":" + from + ":" + to + ":" + maxDuration;
+        return responses.get(key, etag, () -> filmService.getMostPopularFilms(count, year, from, to, maxDuration));
+    }
+
+    @GetMapping(value = "/popular", params = {"view=summary", "!window"})
+    public List<FilmSummary> getPopularFilmSummaries(@RequestParam(defaultValue = "10") int count,
+                                                     @RequestParam(required = false) Integer year,
+                                                     @RequestParam(required = false)
+                                                     @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+                                                     @RequestParam(required = false)
+                                                     @DateTimeFormat(iso = ISO.DATE) LocalDate to,
+                                                     @RequestParam(required = false) Long maxDuration) {
+        return filmService.getMostPopularFilmSummaries(count, year, from, to, maxDuration);
+    }
+
+    @GetMapping(value = "/popular", params = "window")
+    public List<Film> getTrendingFilms(@RequestParam String window, @RequestParam(defaultValue = "10") int count) {
+        return filmService.getTrendingFilms(window, count);
     }
 }
@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+
+/**
+ * Готовые UTF-8 JSON-ответы частых GET-запросов. Ответ хранится вместе с ETag, под которым его собрали,
+ * и отдаётся, только пока ETag не изменился: любое изменение через сервис меняет ETag, поэтому старый ответ
+ * больше не совпадёт, а следующий запрос соберёт и сохранит новый. Объём кэша ограничен суммарным размером
+ * ответов, редкие ответы вытесняются.
+ */
+final class JsonResponseCache {
+
+    private static final long MAX_BYTES = 64L * 1024 * 1024;
+
+    private final ObjectMapper objectMapper;
+    private final Cache<String, Entry> responses;
+
+    JsonResponseCache(String name, ObjectMapper objectMapper, MeterRegistry registry) {
+        this.objectMapper = objectMapper;
+        this.responses = Caffeine.newBuilder()
+                .maximumWeight(MAX_BYTES)
+                .weigher((String key, Entry entry) -> entry.json().length)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, responses, name);
+    }
+
+    /**
+     * @param key  запрос, например {@code film:1}
+     * @param etag текущий ETag ответа, прочитанный до данных
+     * @param body данные ответа; читаются и сериализуются только при промахе
+     */
+    byte[] get(String key, String etag, Supplier<?> body) {
+        Entry entry = responses.getIfPresent(key);
+        if (entry != null && entry.etag().equals(etag)) {
+            return entry.json();
+        }
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(body.get());
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        responses.put(key, new Entry(etag, json));
+        return json;
+    }
+
+    private record Entry(String etag, byte[] json) {
+    }
+}
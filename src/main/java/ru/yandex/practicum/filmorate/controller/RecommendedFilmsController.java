@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/users/{id}/recommended-films")
+public class RecommendedFilmsController {
+    private final FilmService filmService;
+
+    @GetMapping
+    public List<Film> getRecommendedFilms(@PathVariable Long id, @RequestParam(defaultValue = "10") int count) {
+        return filmService.getRecommendedFilms(id, count);
+    }
+}
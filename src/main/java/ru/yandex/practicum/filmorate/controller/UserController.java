@@ -1,7 +1,14 @@
 package ru.yandex.practicum.filmorate.controller;
 
-import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.UserService;
 
@@ -11,16 +18,34 @@ import java.util.List;
 
 @RestController
 @RequestMapping("/users")
-@RequiredArgsConstructor
 public class UserController {
 
     private final UserService userService;
+    private final ObjectMapper objectMapper;
+    // Готовый JSON списков друзей, действителен до смены ETag
+    private final JsonResponseCache responses;
+
+    public UserController(UserService userService, ObjectMapper objectMapper, MeterRegistry registry) {
+        this.userService = userService;
+        this.objectMapper = objectMapper;
+        this.responses = new JsonResponseCache("user-responses", objectMapper, registry);
+    }
 
     @GetMapping
     public Collection<User> findAllUsers() {
         return userService.getAllUsers();
     }
 
+    @GetMapping(params = "limit")
+    public ResponseEntity<List<User>> findUsersPage(@RequestParam int limit, @RequestParam(required = false) Long cursor) {
+        return CursorPaging.page(userService.getUsersPage(cursor, limit), limit, User::getId);
+    }
+
+    @GetMapping(produces = CursorPaging.NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+        return CursorPaging.ndjson(objectMapper, userService::getUsersPage, User::getId);
+    }
+
     @PostMapping
     public User addUser(@RequestBody User user) {
         return userService.createUser(user);
@@ -31,11 +56,25 @@ public class UserController {
         return userService.updateUser(newUser);
     }
 
+    // При совпадении If-None-Match ответ 304 без тела: пользователь не читается и не сериализуется
     @GetMapping("/{id}")
-    public User getUserById(@PathVariable Long id) {
+    public User getUserById(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified(userService.getUserETag(id))) {
+            return null;
+        }
         return userService.getUserById(id);
     }
 
+    @GetMapping("/by-email/{email}")
+    public User getUserByEmail(@PathVariable String email) {
+        return userService.getUserByEmail(email);
+    }
+
+    @GetMapping("/by-login/{login}")
+    public User getUserByLogin(@PathVariable String login) {
+        return userService.getUserByLogin(login);
+    }
+
     @PutMapping("/{id}/friends/{friendId}")
     public void addFriend(@PathVariable Long id, @PathVariable Long friendId) {
         userService.addFriend(id, friendId);
@@ -46,13 +85,61 @@ public class UserController {
         userService.removeFriend(id, friendId);
     }
 
-    @GetMapping("/{id}/friends")
-    public List<User> getFriends(@PathVariable Long id) {
-        return userService.getFriends(id);
+    @PutMapping("/friends")
+    public List<BatchResult<Friendship>> addFriends(@RequestBody List<Friendship> friendships) {
+        return userService.addFriends(friendships);
+    }
+
+    @DeleteMapping("/friends")
+    public List<BatchResult<Friendship>> deleteFriends(@RequestBody List<Friendship> friendships) {
+        return userService.removeFriends(friendships);
+    }
+
+    @GetMapping(value = "/{id}/friends", produces = MediaType.APPLICATION_JSON_VALUE)
+    public byte[] getFriends(@PathVariable Long id, WebRequest request) {
+        String etag = userService.getFriendsETag(id);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return responses.get("friends:" + id, etag, () -> userService.getFriends(id));
+    }
+
+    @GetMapping(value = "/{id}/friends", params = "limit")
+    public ResponseEntity<List<User>> getFriendsPage(@PathVariable Long id, @RequestParam int limit,
+                                                     @RequestParam(required = false) Long cursor) {
+        return CursorPaging.page(userService.getFriendsPage(id, cursor, limit), limit, User::getId);
+    }
+
+    @GetMapping(value = "/{id}/friends", produces = CursorPaging.NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamFriends(@PathVariable Long id) {
+        // Несуществующий пользователь — 404 до начала потоковой выдачи
+        userService.getUserById(id);
+        return CursorPaging.ndjson(objectMapper, (cursor, limit) -> userService.getFriendsPage(id, cursor, limit),
+                User::getId);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public List<User> getRecommendations(@PathVariable Long id, @RequestParam(defaultValue = "10") int count) {
+        return userService.getRecommendations(id, count);
     }
 
     @GetMapping("/{id}/friends/common/{otherId}")
     public List<User> getCommonFriends(@PathVariable Long id, @PathVariable Long otherId) {
         return userService.getCommonFriends(id, otherId);
     }
+
+    @GetMapping(value = "/{id}/friends/common/{otherId}", params = "limit")
+    public ResponseEntity<List<User>> getCommonFriendsPage(@PathVariable Long id, @PathVariable Long otherId,
+                                                           @RequestParam int limit,
+                                                           @RequestParam(required = false) Long cursor) {
+        return CursorPaging.page(userService.getCommonFriendsPage(id, otherId, cursor, limit), limit, User::getId);
+    }
+
+    @GetMapping(value = "/{id}/friends/common/{otherId}", produces = CursorPaging.NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamCommonFriends(@PathVariable Long id, @PathVariable Long otherId) {
+        userService.getUserById(id);
+        userService.getUserById(otherId);
+        return CursorPaging.ndjson(objectMapper,
+                (cursor, limit) -> userService.getCommonFriendsPage(id, otherId, cursor, limit), User::getId);
+    }
 }
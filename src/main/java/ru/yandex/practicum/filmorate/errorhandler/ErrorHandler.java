@@ -1,10 +1,12 @@
 package ru.yandex.practicum.filmorate.errorhandler;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
-import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import ru.yandex.practicum.filmorate.exceptions.ConditionsNotMetException;
+import ru.yandex.practicum.filmorate.exceptions.DuplicatedDataException;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
 
@@ -12,26 +14,29 @@ import ru.yandex.practicum.filmorate.exceptions.ValidationException;
 public class ErrorHandler {
 
     @ExceptionHandler(NotFoundException.class)
-    @ResponseStatus(HttpStatus.NOT_FOUND)
-    public ErrorResponse handleNotFound(NotFoundException e) {
-        return new ErrorResponse(
-                e.getMessage()
-        );
+    public ResponseEntity<ErrorResponse> handleNotFound(NotFoundException e) {
+        return error(HttpStatus.NOT_FOUND, e);
     }
 
     @ExceptionHandler(ValidationException.class)
-    @ResponseStatus(HttpStatus.BAD_REQUEST)
-    public ErrorResponse handleValidation(ValidationException e) {
-        return new ErrorResponse(
-                e.getMessage()
-        );
+    public ResponseEntity<ErrorResponse> handleValidation(ValidationException e) {
+        return error(HttpStatus.BAD_REQUEST, e);
+    }
+
+    @ExceptionHandler(DuplicatedDataException.class)
+    public ResponseEntity<ErrorResponse> handleDuplicatedData(DuplicatedDataException e) {
+        return error(HttpStatus.CONFLICT, e);
     }
 
     @ExceptionHandler(ConditionsNotMetException.class)
-    @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
-    public ErrorResponse handleConditionsNotMet(ConditionsNotMetException e) {
-        return new ErrorResponse(
-                e.getMessage()
-        );
+    public ResponseEntity<ErrorResponse> handleConditionsNotMet(ConditionsNotMetException e) {
+        return error(HttpStatus.INTERNAL_SERVER_ERROR, e);
+    }
+
+    // Ошибка всегда в JSON, даже если клиент просил другой формат (например, application/x-ndjson)
+    private static ResponseEntity<ErrorResponse> error(HttpStatus status, RuntimeException e) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(new ErrorResponse(e.getMessage()));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpLogWriter;
+import org.zalando.logbook.Precorrelation;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Пишет сообщения Logbook из фонового потока пачками: поток запроса только кладёт готовую строку
+ * в ограниченную очередь и не ждёт аппендер. Пачка уходит в лог одной записью уровня INFO.
+ * Если очередь полна, сообщение отбрасывается — лог не должен тормозить ответы.
+ */
+@Slf4j
+public class BatchingHttpLogWriter implements HttpLogWriter, AutoCloseable {
+
+    private final BlockingQueue<String> queue;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final int batchSize;
+    private final ScheduledExecutorService scheduler;
+    private final Counter written;
+    private final Counter dropped;
+
+    /**
+     * @param queueCapacity сколько сообщений может ждать записи
+     * @param batchSize     сколько сообщений писать одной записью лога
+     * @param flushInterval как часто разбирать очередь
+     */
+    public BatchingHttpLogWriter(int queueCapacity, int batchSize, Duration flushInterval, MeterRegistry registry) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.written = Counter.builder("filmorate.http.log.written").register(registry);
+        this.dropped = Counter.builder("filmorate.http.log.dropped").register(registry);
+        Gauge.builder("filmorate.http.log.pending", queue, BlockingQueue::size).register(registry);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "http-log-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMs = flushInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean isActive() {
+        return log.isInfoEnabled();
+    }
+
+    @Override
+    public void write(Precorrelation precorrelation, String request) {
+        enqueue(request);
+    }
+
+    @Override
+    public void write(Correlation correlation, String response) {
+        enqueue(response);
+    }
+
+    /**
+     * Записывает в лог всё, что накопилось к моменту вызова.
+     */
+    public void flush() {
+        // Пачки пишет один поток, иначе сообщения в логе перемешались бы
+        flushLock.lock();
+        try {
+            List<String> batch = new ArrayList<>(batchSize);
+            while (queue.drainTo(batch, batchSize) > 0) {
+                log.info(String.join(System.lineSeparator(), batch));
+                written.increment(batch.size());
+                batch.clear();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        flush();
+    }
+
+    private void enqueue(String message) {
+        if (!queue.offer(message)) {
+            dropped.increment();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Не удалось записать HTTP-лог", e);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.logging;
+
+import org.zalando.logbook.HttpRequest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Условие Logbook: логировать долю sampleRate запросов, но не больше maxPerSecond в секунду.
+ * Для остальных запросов Logbook не буферизует тела и не форматирует сообщения.
+ * <p>
+ * Лимит — окно в одну секунду: номер секунды и число выданных в ней разрешений хранятся
+ * в одном {@link AtomicLong}, поэтому проверка не блокирует и не выделяет память.
+ */
+public final class SampledRequests implements Predicate<HttpRequest> {
+
+    // Младшие биты — число разрешений в текущей секунде, старшие — номер секунды
+    private static final int COUNT_BITS = 24;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    private final double sampleRate;
+    private final int maxPerSecond;
+    private final LongSupplier clockMillis;
+    private final AtomicLong permits = new AtomicLong();
+
+    /**
+     * @param sampleRate   доля логируемых запросов от 0 до 1
+     * @param maxPerSecond сколько запросов в секунду логировать самое большее, 0 — без ограничения
+     */
+    public SampledRequests(double sampleRate, int maxPerSecond) {
+        this(sampleRate, maxPerSecond, System::currentTimeMillis);
+    }
+
+    /**
+     * @param sampleRate   доля логируемых запросов от 0 до 1
+     * @param maxPerSecond сколько запросов в секунду логировать самое большее, 0 — без ограничения
+     * @param clockMillis  текущее время в миллисекундах, по нему считаются секундные окна лимита
+     */
+    public SampledRequests(double sampleRate, int maxPerSecond, LongSupplier clockMillis) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("Доля логируемых запросов должна быть от 0 до 1: " + sampleRate);
+        }
+        if (maxPerSecond < 0 || maxPerSecond > COUNT_MASK) {
+            throw new IllegalArgumentException("Лимит запросов в секунду должен быть от 0 до "
+                    + COUNT_MASK + ": " + maxPerSecond);
+        }
+        this.sampleRate = sampleRate;
+        this.maxPerSecond = maxPerSecond;
+        this.clockMillis = clockMillis;
+    }
+
+    @Override
+    public boolean test(HttpRequest request) {
+        return sampled() && acquire();
+    }
+
+    private boolean sampled() {
+        return sampleRate >= 1 || sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    private boolean acquire() {
+        if (maxPerSecond == 0) {
+            return true;
+        }
+        long second = clockMillis.getAsLong() / 1000;
+        while (true) {
+            long state = permits.get();
+            // Поток, прочитавший часы раньше, не должен сбросить уже начатую следующую секунду
+            if (state >>> COUNT_BITS < second) {
+                if (permits.compareAndSet(state, second << COUNT_BITS | 1)) {
+                    return true;
+                }
+            } else if ((state & COUNT_MASK) >= maxPerSecond) {
+                return false;
+            } else if (permits.compareAndSet(state, state + 1)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.model;
+
+/**
+ * Результат применения одного элемента пакетного запроса.
+ */
+public record BatchResult<T>(T item, Status status) {
+
+    public enum Status {
+        APPLIED,
+        INVALID,
+        FILM_NOT_FOUND,
+        USER_NOT_FOUND,
+        FRIEND_NOT_FOUND
+    }
+}
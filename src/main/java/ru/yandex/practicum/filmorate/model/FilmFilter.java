@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+/**
+ * Условия отбора фильмов: дата выхода от {@code from} до {@code to} включительно
+ * и продолжительность не больше {@code maxDuration}. Пустое поле — без ограничения.
+ */
+public record FilmFilter(LocalDate from, LocalDate to, Duration maxDuration) {
+
+    public boolean hasReleaseDateRange() {
+        return from != null || to != null;
+    }
+
+    public boolean matches(Film film) {
+        LocalDate releaseDate = film.getReleaseDate();
+        if (hasReleaseDateRange() && releaseDate == null) {
+            return false;
+        }
+        if (from != null && releaseDate.isBefore(from) || to != null && releaseDate.isAfter(to)) {
+            return false;
+        }
+        return maxDuration == null || film.getDuration() != null && film.getDuration().compareTo(maxDuration) <= 0;
+    }
+}
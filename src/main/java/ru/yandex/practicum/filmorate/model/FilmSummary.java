@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import ru.yandex.practicum.filmorate.serializer.DurationSerializer;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+/**
+ * Фильм без списка лайков, только с их числом: краткое представление ({@code ?view=summary}).
+ * Сами лайки отдаются постранично в {@code /films/{id}/likes}.
+ */
+public record FilmSummary(Long id, String name, String description, LocalDate releaseDate,
+                          @JsonSerialize(using = DurationSerializer.class) Duration duration,
+                          int likeCount) {
+
+    /**
+     * Число лайков берётся из размера множества: у {@code SortedLongSet} он хранится, а не считается.
+     */
+    public static FilmSummary of(Film film) {
+        return new FilmSummary(film.getId(), film.getName(), film.getDescription(), film.getReleaseDate(),
+                film.getDuration(), film.getLikes() == null ? 0 : film.getLikes().size());
+    }
+}
@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Версии сущностей для ETag. Каждое изменение получает следующее значение общих часов,
+ * версия сущности — значение часов при её последнем изменении. Поэтому версия набора сущностей —
+ * максимум их версий, а версия всех сущностей — текущее значение часов.
+ * <p>
+ * Версия увеличивается после изменения в хранилище, а читается до чтения данных: ответ может
+ * оказаться новее своего ETag, но не старее. В ETag входит метка запуска — версии живут в памяти,
+ * и после перезапуска старые ETag не должны совпасть.
+ */
+final class EntityVersions {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong clock = new AtomicLong();
+    // Только изменённые после запуска сущности, у остальных версия 0
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+
+    void changed(Long id) {
+        long version = clock.incrementAndGet();
+        versions.merge(id, version, Math::max);
+    }
+
+    void changed(Collection<Long> ids) {
+        long version = clock.incrementAndGet();
+        for (Long id : ids) {
+            versions.merge(id, version, Math::max);
+        }
+    }
+
+    long version(Long id) {
+        return versions.getOrDefault(id, 0L);
+    }
+
+    long version(Long id, Collection<Long> related) {
+        long version = version(id);
+        for (Long relatedId : related) {
+            version = Math.max(version, version(relatedId));
+        }
+        return version;
+    }
+
+    long latest() {
+        return clock.get();
+    }
+
+    String etag(long version) {
+        return "\"" + epoch + "-" + version + "\"";
+    }
+}
@@ -1,26 +1,40 @@
 package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Service;
+import org.springframework.boot.convert.DurationStyle;
 import ru.yandex.practicum.filmorate.exceptions.ConditionsNotMetException;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.TrendingIndex;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.time.Duration;
 import java.time.LocalDate;
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Slf4j
-@Service
 public class FilmService {
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_SIZE = 10_000;
+    private static final int MAX_RECOMMENDATIONS = 100;
+    private static final int MAX_SEARCH_RESULTS = 100;
+    private static final int MAX_POPULAR_FILMS = 1000;
+    private static final int MIN_RELEASE_YEAR = 1895;
+    private static final int MAX_RELEASE_YEAR = 9999;
+
     private FilmStorage filmStorage;
     private UserStorage userStorage;
+    // Фильм в ответе содержит свои поля и лайки; популярные фильмы зависят от всех фильмов
+    private final EntityVersions versions = new EntityVersions();
 
-    @Autowired
     public FilmService(FilmStorage filmStorage, UserStorage userStorage) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
@@ -30,6 +44,20 @@ public class FilmService {
         return filmStorage.findAllFilms();
     }
 
+    public List<Film> getFilmsPage(Long cursor, int limit) {
+        validatePageSize(limit);
+        return filmStorage.findFilmsPage(cursor, limit);
+    }
+
+    public List<FilmSummary> getAllFilmSummaries() {
+        return filmStorage.findFilmSummariesPage(null, Integer.MAX_VALUE);
+    }
+
+    public List<FilmSummary> getFilmSummariesPage(Long cursor, int limit) {
+        validatePageSize(limit);
+        return filmStorage.findFilmSummariesPage(cursor, limit);
+    }
+
     public Film createFilm(Film film) {
         if (film.getName() == null || film.getName().isBlank()) {
             String message = "Название не должно быть пустым";
@@ -37,7 +65,9 @@ public class FilmService {
             throw new ValidationException(message);
         }
         validate(film);
-        return filmStorage.saveFilm(film);
+        Film saved = filmStorage.saveFilm(film);
+        versions.changed(saved.getId());
+        return saved;
     }
 
     public Film updateFilm(Film newFilm) {
@@ -48,7 +78,9 @@ public class FilmService {
         }
         if (filmStorage.hasFilmsId(newFilm.getId())) {
             validate(newFilm);
-            return filmStorage.putFilm(newFilm);
+            Film updated = filmStorage.putFilm(newFilm);
+            versions.changed(updated.getId());
+            return updated;
         }
         log.error("Фильм не найден id = {} ", newFilm.getId());
         throw new NotFoundException("Фильм не найден id = " + newFilm.getId());
@@ -61,6 +93,7 @@ public class FilmService {
                 .orElseThrow(() -> new NotFoundException("Не найден пользователь с id: " + userId));
 
         filmStorage.putLike(film, userId);
+        versions.changed(filmId);
     }
 
     public void removeLike(Long filmId, Long userId) {
@@ -69,6 +102,15 @@ public class FilmService {
         userStorage.findUserById(userId)
                 .orElseThrow(() -> new NotFoundException("Не найден пользователь с id: " + userId));
         filmStorage.removeLike(film, userId);
+        versions.changed(filmId);
+    }
+
+    public List<BatchResult<FilmLike>> addLikes(List<FilmLike> likes) {
+        return applyLikes(likes, filmStorage::putLikes);
+    }
+
+    public List<BatchResult<FilmLike>> removeLikes(List<FilmLike> likes) {
+        return applyLikes(likes, filmStorage::removeLikes);
     }
 
     public Film getFilmById(Long id) {
@@ -76,8 +118,130 @@ public class FilmService {
                 .orElseThrow(() -> new NotFoundException("Фильм не найден id = " + id));
     }
 
-    public List<Film> getMostPopularFilms(int count) {
-        return filmStorage.findMostPopularFilms(count);
+    public FilmSummary getFilmSummaryById(Long id) {
+        return filmStorage.findFilmSummaryById(id)
+                .orElseThrow(() -> new NotFoundException("Фильм не найден id = " + id));
+    }
+
+    /**
+     * Страница id пользователей, лайкнувших фильм, по возрастанию id.
+     */
+    public List<Long> getLikesPage(Long filmId, Long cursor, int limit) {
+        validatePageSize(limit);
+        if (!filmStorage.hasFilmsId(filmId)) {
+            throw new NotFoundException("Фильм не найден id = " + filmId);
+        }
+        return filmStorage.findLikesPage(filmId, cursor, limit);
+    }
+
+    /**
+     * ETag фильма; читается до самого фильма.
+     */
+    public String getFilmETag(Long id) {
+        if (!filmStorage.hasFilmsId(id)) {
+            throw new NotFoundException("Фильм не найден id = " + id);
+        }
+        return versions.etag(versions.version(id));
+    }
+
+    /**
+     * ETag списка популярных фильмов с любым фильтром: меняется при изменении любого фильма или лайка.
+     */
+    public String getPopularFilmsETag() {
+        return versions.etag(versions.latest());
+    }
+
+    public List<Film> getMostPopularFilms(int count, Integer year, LocalDate from, LocalDate to, Long maxDuration) {
+        validatePopularCount(count);
+        FilmFilter filter = popularFilter(year, from, to, maxDuration);
+        return filter == null
+                ? filmStorage.findMostPopularFilms(count)
+                : filmStorage.findMostPopularFilms(count, filter);
+    }
+
+    public List<FilmSummary> getMostPopularFilmSummaries(int count, Integer year, LocalDate from, LocalDate to,
+                                                         Long maxDuration) {
+        validatePopularCount(count);
+        return filmStorage.findMostPopularFilmSummaries(count, popularFilter(year, from, to, maxDuration));
+    }
+
+    public List<Film> getTrendingFilms(String window, int count) {
+        if (count <= 0) {
+            throw new ValidationException("Количество фильмов должно быть больше нуля");
+        }
+        Duration duration;
+        try {
+            duration = DurationStyle.detectAndParse(window);
+        } catch (IllegalArgumentException e) {
+            duration = null;
+        }
+        if (duration == null || !TrendingIndex.WINDOWS.contains(duration)) {
+            throw new ValidationException("Окно должно быть одним из: 1h, 24h, 7d");
+        }
+        return filmStorage.findTrendingFilms(duration, count);
+    }
+
+    public List<Film> searchFilms(String query, int count) {
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("Строка поиска не должна быть пустой");
+        }
+        if (count <= 0 || count > MAX_SEARCH_RESULTS) {
+            throw new ValidationException("Количество результатов должно быть от 1 до " + MAX_SEARCH_RESULTS);
+        }
+        return filmStorage.searchFilms(query, count);
+    }
+
+    public List<Film> getRecommendedFilms(Long userId, int count) {
+        if (count <= 0 || count > MAX_RECOMMENDATIONS) {
+            throw new ValidationException("Количество рекомендаций должно быть от 1 до " + MAX_RECOMMENDATIONS);
+        }
+        if (!userStorage.userExists(userId)) {
+            throw new NotFoundException("Не найден пользователь с id: " + userId);
+        }
+        return filmStorage.findRecommendedFilms(userId, count);
+    }
+
+    public void precomputeRecommendations() {
+        filmStorage.precomputeRecommendations();
+    }
+
+    // Существование фильмов и пользователей проверяется двумя запросами на весь пакет,
+    // корректные лайки применяются одним вызовом хранилища
+    private List<BatchResult<FilmLike>> applyLikes(List<FilmLike> likes, Consumer<List<FilmLike>> apply) {
+        if (likes.size() > MAX_BATCH_SIZE) {
+            throw new ValidationException("Размер пакета не должен превышать " + MAX_BATCH_SIZE);
+        }
+        Set<Long> filmIds = filmStorage.findExistingFilmIds(likes.stream()
+                .filter(like -> like != null && like.filmId() != null)
+                .map(FilmLike::filmId)
+                .collect(Collectors.toSet()));
+        Set<Long> userIds = userStorage.findExistingUserIds(likes.stream()
+                .filter(like -> like != null && like.userId() != null)
+                .map(FilmLike::userId)
+                .collect(Collectors.toSet()));
+
+        List<BatchResult<FilmLike>> results = new ArrayList<>(likes.size());
+        List<FilmLike> applicable = new ArrayList<>(likes.size());
+        for (FilmLike like : likes) {
+            BatchResult.Status status;
+            if (like == null || like.filmId() == null || like.userId() == null) {
+                status = BatchResult.Status.INVALID;
+            } else if (!filmIds.contains(like.filmId())) {
+                status = BatchResult.Status.FILM_NOT_FOUND;
+            } else if (!userIds.contains(like.userId())) {
+                status = BatchResult.Status.USER_NOT_FOUND;
+            } else {
+                status = BatchResult.Status.APPLIED;
+                applicable.add(like);
+            }
+            results.add(new BatchResult<>(like, status));
+        }
+        apply.accept(applicable);
+        if (!applicable.isEmpty()) {
+            versions.changed(applicable.stream().map(FilmLike::filmId).collect(Collectors.toSet()));
+        }
+        log.info("Пакет лайков обработан: применено {} из {}", applicable.size(), likes.size());
+        return results;
     }
 
     private void validate(Film film) {
@@ -98,4 +262,40 @@ public class FilmService {
         }
         log.debug("Валидация фильма прошла успешно: {}", film.getName());
     }
+
+    private static void validatePageSize(int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+    }
+
+    private static void validatePopularCount(int count) {
+        if (count <= 0 || count > MAX_POPULAR_FILMS) {
+            throw new ValidationException("Количество фильмов должно быть от 1 до " + MAX_POPULAR_FILMS);
+        }
+    }
+
+    // Условия отбора популярных фильмов или null, если ни одно не задано
+    private static FilmFilter popularFilter(Integer year, LocalDate from, LocalDate to, Long maxDuration) {
+        if (year == null && from == null && to == null && maxDuration == null) {
+            return null;
+        }
+        if (year != null && (from != null || to != null)) {
+            throw new ValidationException("Год нельзя указывать вместе с диапазоном дат");
+        }
+        if (year != null) {
+            if (year < MIN_RELEASE_YEAR || year > MAX_RELEASE_YEAR) {
+                throw new ValidationException("Год должен быть от " + MIN_RELEASE_YEAR + " до " + MAX_RELEASE_YEAR);
+            }
+            from = LocalDate.of(year, 1, 1);
+            to = LocalDate.of(year, 12, 31);
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new ValidationException("Начало диапазона дат не должно быть позже конца");
+        }
+        if (maxDuration != null && maxDuration <= 0) {
+            throw new ValidationException("Максимальная продолжительность должна быть больше нуля");
+        }
+        return new FilmFilter(from, to, maxDuration == null ? null : Duration.ofSeconds(maxDuration));
+    }
 }
@@ -0,0 +1,262 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.storage.OperationTimers;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Замеряет время каждой операции сервиса фильмов (таймер {@code filmorate.service}, тег {@code operation}).
+ */
+public class MeteredFilmService extends FilmService {
+
+    private final OperationTimers<Operation> timers;
+
+    public MeteredFilmService(FilmStorage filmStorage, UserStorage userStorage, MeterRegistry registry) {
+        super(filmStorage, userStorage);
+        this.timers = new OperationTimers<>("filmorate.service", "films", Operation.class, registry);
+    }
+
+    @Override
+    public Collection<Film> getAllFilms() {
+        long start = System.nanoTime();
+        try {
+            return super.getAllFilms();
+        } finally {
+            timers.record(Operation.GET_ALL_FILMS, start);
+        }
+    }
+
+    @Override
+    public List<Film> getFilmsPage(Long cursor, int limit) {
+        long start = System.nanoTime();
+        try {
+            return super.getFilmsPage(cursor, limit);
+        } finally {
+            timers.record(Operation.GET_FILMS_PAGE, start);
+        }
+    }
+
+    @Override
+    public List<FilmSummary> getAllFilmSummaries() {
+        long start = System.nanoTime();
+        try {
+            return super.getAllFilmSummaries();
+        } finally {
+            timers.record(Operation.GET_ALL_FILM_SUMMARIES, start);
+        }
+    }
+
+    @Override
+    public List<FilmSummary> getFilmSummariesPage(Long cursor, int limit) {
+        long start = System.nanoTime();
+        try {
+            return super.getFilmSummariesPage(cursor, limit);
+        } finally {
+            timers.record(Operation.GET_FILM_SUMMARIES_PAGE, start);
+        }
+    }
+
+    @Override
+    public Film createFilm(Film film) {
+        long start = System.nanoTime();
+        try {
+            return super.createFilm(film);
+        } finally {
+            timers.record(Operation.CREATE_FILM, start);
+        }
+    }
+
+    @Override
+    public Film updateFilm(Film newFilm) {
+        long start = System.nanoTime();
+        try {
+            return super.updateFilm(newFilm);
+        } finally {
+            timers.record(Operation.UPDATE_FILM, start);
+        }
+    }
+
+    @Override
+    public void addLike(Long filmId, Long userId) {
+        long start = System.nanoTime();
+        try {
+            super.addLike(filmId, userId);
+        } finally {
+            timers.record(Operation.ADD_LIKE, start);
+        }
+    }
+
+    @Override
+    public void removeLike(Long filmId, Long userId) {
+        long start = System.nanoTime();
+        try {
+            super.removeLike(filmId, userId);
+        } finally {
+            timers.record(Operation.REMOVE_LIKE, start);
+        }
+    }
+
+    @Override
+    public List<BatchResult<FilmLike>> addLikes(List<FilmLike> likes) {
+        long start = System.nanoTime();
+        try {
+            return super.addLikes(likes);
+        } finally {
+            timers.record(Operation.ADD_LIKES, start);
+        }
+    }
+
+    @Override
+    public List<BatchResult<FilmLike>> removeLikes(List<FilmLike> likes) {
+        long start = System.nanoTime();
+        try {
+            return super.removeLikes(likes);
+        } finally {
+            timers.record(Operation.REMOVE_LIKES, start);
+        }
+    }
+
+    @Override
+    public Film getFilmById(Long id) {
+        long start = System.nanoTime();
+        try {
+            return super.getFilmById(id);
+        } finally {
+            timers.record(Operation.GET_FILM_BY_ID, start);
+        }
+    }
+
+    @Override
+    public FilmSummary getFilmSummaryById(Long id) {
+        long start = System.nanoTime();
+        try {
+            return super.getFilmSummaryById(id);
+        } finally {
+            timers.record(Operation.GET_FILM_SUMMARY_BY_ID, start);
+        }
+    }
+
+    @Override
+    public List<Long> getLikesPage(Long filmId, Long cursor, int limit) {
+        long start = System.nanoTime();
+        try {
+            return super.getLikesPage(filmId, cursor, limit);
+        } finally {
+            timers.record(Operation.GET_LIKES_PAGE, start);
+        }
+    }
+
+    @Override
+    public String getFilmETag(Long id) {
+        long start = System.nanoTime();
+        try {
+            return super.getFilmETag(id);
+        } finally {
+            timers.record(Operation.GET_FILM_ETAG, start);
+        }
+    }
+
+    @Override
+    public String getPopularFilmsETag() {
+        long start = System.nanoTime();
+        try {
+            return super.getPopularFilmsETag();
+        } finally {
+            timers.record(Operation.GET_POPULAR_FILMS_ETAG, start);
+        }
+    }
+
+    @Override
+    public List<Film> getMostPopularFilms(int count, Integer year, LocalDate from, LocalDate to, Long maxDuration) {
+        long start = System.nanoTime();
+        try {
+            return super.getMostPopularFilms(count, year, from, to, maxDuration);
+        } finally {
+            timers.record(Operation.GET_MOST_POPULAR_FILMS, start);
+        }
+    }
+
+    @Override
+    public List<FilmSummary> getMostPopularFilmSummaries(int count, Integer year, LocalDate from, LocalDate to,
+                                                         Long maxDuration) {
+        long start = System.nanoTime();
+        try {
+            return super.getMostPopularFilmSummaries(count, year, from, to, maxDuration);
+        } finally {
+            timers.record(Operation.GET_MOST_POPULAR_FILM_SUMMARIES, start);
+        }
+    }
+
+    @Override
+    public List<Film> getTrendingFilms(String window, int count) {
+        long start = System.nanoTime();
+        try {
+            return super.getTrendingFilms(window, count);
+        } finally {
+            timers.record(Operation.GET_TRENDING_FILMS, start);
+        }
+    }
+
+    @Override
+    public List<Film> searchFilms(String query, int count) {
+        long start = System.nanoTime();
+        try {
+            return super.searchFilms(query, count);
+        } finally {
+            timers.record(Operation.SEARCH_FILMS, start);
+        }
+    }
+
+    @Override
+    public List<Film> getRecommendedFilms(Long userId, int count) {
+        long start = System.nanoTime();
+        try {
+            return super.getRecommendedFilms(userId, count);
+        } finally {
+            timers.record(Operation.GET_RECOMMENDED_FILMS, start);
+        }
+    }
+
+    @Override
+    public void precomputeRecommendations() {
+        long start = System.nanoTime();
+        try {
+            super.precomputeRecommendations();
+        } finally {
+            timers.record(Operation.PRECOMPUTE_RECOMMENDATIONS, start);
+        }
+    }
+
+    private enum Operation {
+        GET_ALL_FILMS,
+        GET_FILMS_PAGE,
+        GET_ALL_FILM_SUMMARIES,
+        GET_FILM_SUMMARIES_PAGE,
+        CREATE_FILM,
+        UPDATE_FILM,
+        ADD_LIKE,
+        REMOVE_LIKE,
+        ADD_LIKES,
+        REMOVE_LIKES,
+        GET_FILM_BY_ID,
+        GET_FILM_SUMMARY_BY_ID,
+        GET_LIKES_PAGE,
+        GET_FILM_ETAG,
+        GET_POPULAR_FILMS_ETAG,
+        GET_MOST_POPULAR_FILMS,
+        GET_MOST_POPULAR_FILM_SUMMARIES,
+        GET_TRENDING_FILMS,
+        SEARCH_FILMS,
+        GET_RECOMMENDED_FILMS,
+        PRECOMPUTE_RECOMMENDATIONS
+    }
+}
@@ -0,0 +1,236 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.OperationTimers;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Замеряет время каждой операции сервиса пользователей (таймер {@code filmorate.service}, тег {@code operation}).
+ */
+public class MeteredUserService extends UserService {
+
+    private final OperationTimers<Operation> timers;
+
+    public MeteredUserService(UserStorage userStorage, MeterRegistry registry) {
+        super(userStorage);
+        this.timers = new OperationTimers<>("filmorate.service", "users", Operation.class, registry);
+    }
+
+    @Override
+    public Collection<User> getAllUsers() {
+        long start = System.nanoTime();
+        try {
+            return super.getAllUsers();
+        } finally {
+            timers.record(Operation.GET_ALL_USERS, start);
+        }
+    }
+
+    @Override
+    public List<User> getUsersPage(Long cursor, int limit) {
+        long start = System.nanoTime();
+        try {
+            return super.getUsersPage(cursor, limit);
+        } finally {
+            timers.record(Operation.GET_USERS_PAGE, start);
+        }
+    }
+
+    @Override
+    public User createUser(User user) {
+        long start = System.nanoTime();
+        try {
+            return super.createUser(user);
+        } finally {
+            timers.record(Operation.CREATE_USER, start);
+        }
+    }
+
+    @Override
+    public User updateUser(User newUser) {
+        long start = System.nanoTime();
+        try {
+            return super.updateUser(newUser);
+        } finally {
+            timers.record(Operation.UPDATE_USER, start);
+        }
+    }
+
+    @Override
+    public void addFriend(Long userId, Long friendId) {
+        long start = System.nanoTime();
+        try {
+            super.addFriend(userId, friendId);
+        } finally {
+            timers.record(Operation.ADD_FRIEND, start);
+        }
+    }
+
+    @Override
+    public void removeFriend(Long userId, Long friendId) {
+        long start = System.nanoTime();
+        try {
+            super.removeFriend(userId, friendId);
+        } finally {
+            timers.record(Operation.REMOVE_FRIEND, start);
+        }
+    }
+
+    @Override
+    public List<BatchResult<Friendship>> addFriends(List<Friendship> friendships) {
+        long start = System.nanoTime();
+        try {
+            return super.addFriends(friendships);
+        } finally {
+            timers.record(Operation.ADD_FRIENDS, start);
+        }
+    }
+
+    @Override
+    public List<BatchResult<Friendship>> removeFriends(List<Friendship> friendships) {
+        long start = System.nanoTime();
+        try {
+            return super.removeFriends(friendships);
+        } finally {
+            timers.record(Operation.REMOVE_FRIENDS, start);
+        }
+    }
+
+    @Override
+    public String getUserETag(Long id) {
+        long start = System.nanoTime();
+        try {
+            return super.getUserETag(id);
+        } finally {
+            timers.record(Operation.GET_USER_ETAG, start);
+        }
+    }
+
+    @Override
+    public String getFriendsETag(Long userId) {
+        long start = System.nanoTime();
+        try {
+            return super.getFriendsETag(userId);
+        } finally {
+            timers.record(Operation.GET_FRIENDS_ETAG, start);
+        }
+    }
+
+    @Override
+    public List<User> getFriends(Long userId) {
+        long start = System.nanoTime();
+        try {
+            return super.getFriends(userId);
+        } finally {
+            timers.record(Operation.GET_FRIENDS, start);
+        }
+    }
+
+    @Override
+    public List<User> getFriendsPage(Long userId, Long cursor, int limit) {
+        long start = System.nanoTime();
+        try {
+            return super.getFriendsPage(userId, cursor, limit);
+        } finally {
+            timers.record(Operation.GET_FRIENDS_PAGE, start);
+        }
+    }
+
+    @Override
+    public List<User> getCommonFriends(Long userId, Long otherId) {
+        long start = System.nanoTime();
+        try {
+            return super.getCommonFriends(userId, otherId);
+        } finally {
+            timers.record(Operation.GET_COMMON_FRIENDS, start);
+        }
+    }
+
+    @Override
+    public List<User> getCommonFriendsPage(Long userId, Long otherId, Long cursor, int limit) {
+        long start = System.nanoTime();
+        try {
+            return super.getCommonFriendsPage(userId, otherId, cursor, limit);
+        } finally {
+            timers.record(Operation.GET_COMMON_FRIENDS_PAGE, start);
+        }
+    }
+
+    @Override
+    public List<User> getRecommendations(Long userId, int count) {
+        long start = System.nanoTime();
+        try {
+            return super.getRecommendations(userId, count);
+        } finally {
+            timers.record(Operation.GET_RECOMMENDATIONS, start);
+        }
+    }
+
+    @Override
+    public void precomputeRecommendations(int minFriends) {
+        long start = System.nanoTime();
+        try {
+            super.precomputeRecommendations(minFriends);
+        } finally {
+            timers.record(Operation.PRECOMPUTE_RECOMMENDATIONS, start);
+        }
+    }
+
+    @Override
+    public User getUserById(Long id) {
+        long start = System.nanoTime();
+        try {
+            return super.getUserById(id);
+        } finally {
+            timers.record(Operation.GET_USER_BY_ID, start);
+        }
+    }
+
+    @Override
+    public User getUserByEmail(String email) {
+        long start = System.nanoTime();
+        try {
+            return super.getUserByEmail(email);
+        } finally {
+            timers.record(Operation.GET_USER_BY_EMAIL, start);
+        }
+    }
+
+    @Override
+    public User getUserByLogin(String login) {
+        long start = System.nanoTime();
+        try {
+            return super.getUserByLogin(login);
+        } finally {
+            timers.record(Operation.GET_USER_BY_LOGIN, start);
+        }
+    }
+
+    private enum Operation {
+        GET_ALL_USERS,
+        GET_USERS_PAGE,
+        CREATE_USER,
+        UPDATE_USER,
+        ADD_FRIEND,
+        REMOVE_FRIEND,
+        ADD_FRIENDS,
+        REMOVE_FRIENDS,
+        GET_USER_ETAG,
+        GET_FRIENDS_ETAG,
+        GET_FRIENDS,
+        GET_FRIENDS_PAGE,
+        GET_COMMON_FRIENDS,
+        GET_COMMON_FRIENDS_PAGE,
+        GET_RECOMMENDATIONS,
+        PRECOMPUTE_RECOMMENDATIONS,
+        GET_USER_BY_ID,
+        GET_USER_BY_EMAIL,
+        GET_USER_BY_LOGIN
+    }
+}
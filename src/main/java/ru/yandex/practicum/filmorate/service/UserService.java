@@ -1,28 +1,31 @@
 package ru.yandex.practicum.filmorate.service;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exceptions.ConditionsNotMetException;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.time.LocalDate;
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 @Slf4j
-@Service
-@RequiredArgsConstructor
 public class UserService {
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_SIZE = 10_000;
+    private static final int MAX_RECOMMENDATIONS = 100;
 
     private UserStorage userStorage;
+    // Пользователь в ответе содержит свои поля и id друзей; список друзей зависит и от версий друзей
+    private final EntityVersions versions = new EntityVersions();
 
-    @Autowired
     public UserService(UserStorage userStorage) {
         this.userStorage = userStorage;
     }
@@ -31,6 +34,11 @@ public class UserService {
         return userStorage.findAllUsers();
     }
 
+    public List<User> getUsersPage(Long cursor, int limit) {
+        validatePageSize(limit);
+        return userStorage.findUsersPage(cursor, limit);
+    }
+
     public User createUser(User user) {
         if (user.getEmail() == null || user.getEmail().isBlank() || !user.getEmail().contains("@")) {
             String message = "Электронная почта не должна быть пустой и должна содержать символ @";
@@ -52,7 +60,9 @@ public class UserService {
             user.setName(user.getLogin());
         }
 
-        return userStorage.saveUser(user);
+        User saved = userStorage.saveUser(user);
+        versions.changed(saved.getId());
+        return saved;
     }
 
     public User updateUser(User newUser) {
@@ -70,7 +80,9 @@ public class UserService {
             if (newUser.getBirthday().isAfter(LocalDate.now())) {
                 throw new ValidationException("Дата рождения пользователя не должна быть в будущем");
             }
-            return userStorage.putUser(newUser);
+            User updated = userStorage.putUser(newUser);
+            versions.changed(updated.getId());
+            return updated;
         }
         log.error("Пользователь с id {} не найден", newUser.getId());
         throw new NotFoundException("Не найден пользователь с id " + newUser.getId());
@@ -83,6 +95,7 @@ public class UserService {
                 .orElseThrow(() -> new NotFoundException("Не найден друг с id: " + friendId));
 
         userStorage.addFriend(user, friend);
+        versions.changed(List.of(userId, friendId));
     }
 
     public void removeFriend(Long userId, Long friendId) {
@@ -92,6 +105,35 @@ public class UserService {
                 .orElseThrow(() -> new NotFoundException("Не найден друг с id: " + friendId));
 
         userStorage.removeFriend(user, friend);
+        versions.changed(List.of(userId, friendId));
+    }
+
+    public List<BatchResult<Friendship>> addFriends(List<Friendship> friendships) {
+        return applyFriendships(friendships, userStorage::addFriends);
+    }
+
+    public List<BatchResult<Friendship>> removeFriends(List<Friendship> friendships) {
+        return applyFriendships(friendships, userStorage::removeFriends);
+    }
+
+    /**
+     * ETag пользователя; читается до самого пользователя.
+     */
+    public String getUserETag(Long id) {
+        if (!userStorage.userExists(id)) {
+            throw new NotFoundException("Не найден пользователь с id = " + id);
+        }
+        return versions.etag(versions.version(id));
+    }
+
+    /**
+     * ETag списка друзей: старшая из версий пользователя (меняется вместе с набором друзей) и его друзей.
+     */
+    public String getFriendsETag(Long userId) {
+        User user = userStorage.findUserById(userId)
+                .orElseThrow(() -> new NotFoundException("Не найден пользователь с id: " + userId));
+        Set<Long> friends = user.getFriends() == null ? Set.of() : user.getFriends();
+        return versions.etag(versions.version(userId, friends));
     }
 
     public List<User> getFriends(Long userId) {
@@ -100,6 +142,13 @@ public class UserService {
         return userStorage.findFriends(user);
     }
 
+    public List<User> getFriendsPage(Long userId, Long cursor, int limit) {
+        validatePageSize(limit);
+        User user = userStorage.findUserById(userId)
+                .orElseThrow(() -> new NotFoundException("Не найден пользователь с id: " + userId));
+        return userStorage.findFriendsPage(user, cursor, limit);
+    }
+
     public List<User> getCommonFriends(Long userId, Long otherId) {
         User user = userStorage.findUserById(userId)
                 .orElseThrow(() -> new NotFoundException("Не найден пользователь с id: " + userId));
@@ -108,8 +157,86 @@ public class UserService {
         return userStorage.findCommonFriends(user, otherUser);
     }
 
+    public List<User> getCommonFriendsPage(Long userId, Long otherId, Long cursor, int limit) {
+        validatePageSize(limit);
+        User user = userStorage.findUserById(userId)
+                .orElseThrow(() -> new NotFoundException("Не найден пользователь с id: " + userId));
+        User otherUser = userStorage.findUserById(otherId)
+                .orElseThrow(() -> new NotFoundException("Не найден второй пользователь с id: " + otherId));
+        return userStorage.findCommonFriendsPage(user, otherUser, cursor, limit);
+    }
+
+    public List<User> getRecommendations(Long userId, int count) {
+        if (count <= 0 || count > MAX_RECOMMENDATIONS) {
+            throw new ValidationException("Количество рекомендаций должно быть от 1 до " + MAX_RECOMMENDATIONS);
+        }
+        User user = userStorage.findUserById(userId)
+                .orElseThrow(() -> new NotFoundException("Не найден пользователь с id: " + userId));
+        return userStorage.findRecommendedUsers(user, count);
+    }
+
+    public void precomputeRecommendations(int minFriends) {
+        userStorage.precomputeRecommendations(minFriends);
+    }
+
     public User getUserById(Long id) {
         return userStorage.findUserById(id)
                 .orElseThrow(() -> new NotFoundException("Не найден пользователь с id = " + id));
     }
+
+    public User getUserByEmail(String email) {
+        return userStorage.findUserByEmail(email)
+                .orElseThrow(() -> new NotFoundException("Не найден пользователь с почтой " + email));
+    }
+
+    public User getUserByLogin(String login) {
+        return userStorage.findUserByLogin(login)
+                .orElseThrow(() -> new NotFoundException("Не найден пользователь с логином " + login));
+    }
+
+    // Существование всех пользователей пакета проверяется одним запросом,
+    // корректные пары применяются одним вызовом хранилища
+    private List<BatchResult<Friendship>> applyFriendships(List<Friendship> friendships,
+                                                           Consumer<List<Friendship>> apply) {
+        if (friendships.size() > MAX_BATCH_SIZE) {
+            throw new ValidationException("Размер пакета не должен превышать " + MAX_BATCH_SIZE);
+        }
+        Set<Long> userIds = userStorage.findExistingUserIds(friendships.stream()
+                .filter(Objects::nonNull)
+                .flatMap(friendship -> Stream.of(friendship.userId(), friendship.friendId()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+
+        List<BatchResult<Friendship>> results = new ArrayList<>(friendships.size());
+        List<Friendship> applicable = new ArrayList<>(friendships.size());
+        for (Friendship friendship : friendships) {
+            BatchResult.Status status;
+            if (friendship == null || friendship.userId() == null || friendship.friendId() == null
+                    || friendship.userId().equals(friendship.friendId())) {
+                status = BatchResult.Status.INVALID;
+            } else if (!userIds.contains(friendship.userId())) {
+                status = BatchResult.Status.USER_NOT_FOUND;
+            } else if (!userIds.contains(friendship.friendId())) {
+                status = BatchResult.Status.FRIEND_NOT_FOUND;
+            } else {
+                status = BatchResult.Status.APPLIED;
+                applicable.add(friendship);
+            }
+            results.add(new BatchResult<>(friendship, status));
+        }
+        apply.accept(applicable);
+        if (!applicable.isEmpty()) {
+            versions.changed(applicable.stream()
+                    .flatMap(friendship -> Stream.of(friendship.userId(), friendship.friendId()))
+                    .collect(Collectors.toSet()));
+        }
+        log.info("Пакет дружб обработан: применено {} из {}", applicable.size(), friendships.size());
+        return results;
+    }
+
+    private static void validatePageSize(int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+    }
 }
@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.storage;
+
+/**
+ * Источник id для новых сущностей хранилища.
+ * Выданные id строго возрастают, в том числе после восстановления данных через {@link #advanceTo(long)}.
+ */
+public interface IdGenerator {
+
+    long nextId();
+
+    /**
+     * Гарантирует, что следующий выданный id будет больше {@code usedId}.
+     */
+    void advanceTo(long usedId);
+}
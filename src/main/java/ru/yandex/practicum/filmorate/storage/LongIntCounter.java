@@ -0,0 +1,204 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Счётчик id с открытой адресацией на примитивных массивах, без упаковки ключей и значений.
+ * Пустая ячейка — id 0, генераторы id начинают с 1.
+ * Таблица на сотни тысяч ключей занимает мегабайты, поэтому счётчики берутся из пула:
+ * {@link #acquire()} и {@link #release(LongIntCounter)}.
+ */
+public final class LongIntCounter {
+
+    private static final long EMPTY = 0;
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    // Разросшаяся сверх этого таблица не возвращается в пул
+    private static final int MAX_POOLED_CAPACITY = 1 << 21;
+    // Отрицательный счёт остаётся отрицательным при любом числе увеличений
+    private static final int EXCLUDED = Integer.MIN_VALUE;
+
+    private static final BlockingQueue<LongIntCounter> POOL =
+            new ArrayBlockingQueue<>(2 * Runtime.getRuntime().availableProcessors());
+
+    private long[] keys;
+    private int[] counts;
+    // Занятые ячейки: отбор и очистка проходят только по ним, а не по всей таблице
+    private int[] used;
+    private int size;
+
+    private LongIntCounter() {
+        keys = new long[INITIAL_CAPACITY];
+        counts = new int[INITIAL_CAPACITY];
+        used = new int[INITIAL_CAPACITY / 2];
+    }
+
+    public static LongIntCounter acquire() {
+        LongIntCounter counter = POOL.poll();
+        return counter == null ? new LongIntCounter() : counter;
+    }
+
+    /**
+     * Очищает счётчик и возвращает его в пул; разросшаяся таблица отдаётся сборщику мусора.
+     */
+    public static void release(LongIntCounter counter) {
+        if (counter.keys.length > MAX_POOLED_CAPACITY) {
+            return;
+        }
+        for (int i = 0; i < counter.size; i++) {
+            counter.keys[counter.used[i]] = EMPTY;
+            counter.counts[counter.used[i]] = 0;
+        }
+        counter.size = 0;
+        POOL.offer(counter);
+    }
+
+    public void increment(long key) {
+        add(key, 1);
+    }
+
+    // slot() может пересоздать массивы, поэтому индекс вычисляется до обращения к counts
+    public void add(long key, int delta) {
+        int index = slot(key);
+        counts[index] += delta;
+    }
+
+    /**
+     * Ключ больше не попадёт в {@link #top(int)}, сколько бы к нему ни прибавляли.
+     */
+    public void exclude(long key) {
+        int index = slot(key);
+        counts[index] = EXCLUDED;
+    }
+
+    public int get(long key) {
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (keys[index] != EMPTY) {
+            if (keys[index] == key) {
+                return Math.max(counts[index], 0);
+            }
+            index = (index + 1) & mask;
+        }
+        return 0;
+    }
+
+    private int slot(long key) {
+        if (size == used.length) {
+            grow();
+        }
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (keys[index] != EMPTY && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        if (keys[index] == EMPTY) {
+            keys[index] = key;
+            used[size++] = index;
+        }
+        return index;
+    }
+
+    /**
+     * До {@code count} ключей с наибольшим положительным счётом; при равенстве меньший ключ выше.
+     * Частичный отбор: куча на {@code count} элементов, в корне — худший из отобранных.
+     */
+    public long[] top(int count) {
+        int limit = Math.min(count, size);
+        long[] heapKeys = new long[limit];
+        int[] heapCounts = new int[limit];
+        int heapSize = 0;
+        for (int u = 0; u < size; u++) {
+            int i = used[u];
+            if (counts[i] <= 0) {
+                continue;
+            }
+            if (heapSize < limit) {
+                heapKeys[heapSize] = keys[i];
+                heapCounts[heapSize] = counts[i];
+                siftUp(heapKeys, heapCounts, heapSize++);
+            } else if (limit > 0 && better(counts[i], keys[i], heapCounts[0], heapKeys[0])) {
+                heapKeys[0] = keys[i];
+                heapCounts[0] = counts[i];
+                siftDown(heapKeys, heapCounts, heapSize);
+            }
+        }
+        long[] result = new long[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            result[i] = heapKeys[0];
+            heapKeys[0] = heapKeys[i];
+            heapCounts[0] = heapCounts[i];
+            siftDown(heapKeys, heapCounts, i);
+        }
+        return result;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        int[] oldUsed = used;
+        keys = new long[oldKeys.length << 1];
+        counts = new int[keys.length];
+        used = new int[keys.length / 2];
+        int mask = keys.length - 1;
+        for (int u = 0; u < size; u++) {
+            int old = oldUsed[u];
+            int index = mix(oldKeys[old]) & mask;
+            while (keys[index] != EMPTY) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = oldKeys[old];
+            counts[index] = oldCounts[old];
+            used[u] = index;
+        }
+    }
+
+    private static int mix(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private static boolean better(int count, long key, int otherCount, long otherKey) {
+        return count > otherCount || (count == otherCount && key < otherKey);
+    }
+
+    private static void siftUp(long[] keys, int[] counts, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!better(counts[parent], keys[parent], counts[index], keys[index])) {
+                return;
+            }
+            swap(keys, counts, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(long[] keys, int[] counts, int size) {
+        int index = 0;
+        while (true) {
+            int worst = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && better(counts[worst], keys[worst], counts[left], keys[left])) {
+                worst = left;
+            }
+            if (right < size && better(counts[worst], keys[worst], counts[right], keys[right])) {
+                worst = right;
+            }
+            if (worst == index) {
+                return;
+            }
+            swap(keys, counts, index, worst);
+            index = worst;
+        }
+    }
+
+    private static void swap(long[] keys, int[] counts, int i, int j) {
+        long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        int count = counts[i];
+        counts[i] = counts[j];
+        counts[j] = count;
+    }
+}
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Таймеры операций одного компонента, по одному на константу перечисления {@code E}.
+ * Все таймеры регистрируются при создании, поэтому замер — это {@link System#nanoTime()} в начале
+ * и {@link #record} в конце, без поиска таймера по тегам и без выделения памяти на вызов:
+ * <pre>
+ * long start = System.nanoTime();
+ * try {
+ *     ...
+ * } finally {
+ *     timers.record(Operation.FIND, start);
+ * }
+ * </pre>
+ * Тег {@code operation} — имя константы в camelCase: {@code FIND_FILM_BY_ID} → {@code findFilmById}.
+ */
+public final class OperationTimers<E extends Enum<E>> {
+
+    private final Timer[] timers;
+
+    public OperationTimers(String name, String component, Class<E> operations, MeterRegistry registry) {
+        E[] constants = operations.getEnumConstants();
+        timers = new Timer[constants.length];
+        for (E operation : constants) {
+            timers[operation.ordinal()] = Timer.builder(name)
+                    .tag("component", component)
+                    .tag("operation", camelCase(operation.name()))
+                    .register(registry);
+        }
+    }
+
+    public void record(E operation, long startNanos) {
+        timers[operation.ordinal()].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String camelCase(String constant) {
+        StringBuilder name = new StringBuilder(constant.length());
+        boolean upper = false;
+        for (char c : constant.toCharArray()) {
+            if (c == '_') {
+                upper = true;
+            } else {
+                name.append(upper ? c : Character.toLowerCase(c));
+                upper = false;
+            }
+        }
+        return name.toString();
+    }
+}
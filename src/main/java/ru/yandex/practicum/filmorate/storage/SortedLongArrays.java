@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+
+/**
+ * Операции над отсортированными массивами id без упаковки в {@code Long}.
+ */
+public final class SortedLongArrays {
+
+    // Во сколько раз один массив должен быть длиннее другого, чтобы галоп выигрывал у слияния
+    private static final int GALLOP_RATIO = 16;
+
+    private SortedLongArrays() {
+    }
+
+    /**
+     * Пересечение двух отсортированных массивов без повторов.
+     */
+    public static long[] intersect(long[] first, long[] second) {
+        long[] small = first.length <= second.length ? first : second;
+        long[] large = small == first ? second : first;
+        if (small.length == 0) {
+            return new long[0];
+        }
+        long[] result = new long[small.length];
+        int count = (long) small.length * GALLOP_RATIO < large.length
+                ? gallop(small, large, result)
+                : merge(small, large, result);
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    private static int merge(long[] small, long[] large, long[] result) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < small.length && j < large.length) {
+            long a = small[i];
+            long b = large[j];
+            if (a == b) {
+                result[count++] = a;
+                i++;
+                j++;
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return count;
+    }
+
+    private static int gallop(long[] small, long[] large, long[] result) {
+        int count = 0;
+        int from = 0;
+        for (long value : small) {
+            // Экспоненциально расширяем окно, затем ищем в нём двоичным поиском
+            int bound = 1;
+            while (from + bound < large.length && large[from + bound] < value) {
+                bound <<= 1;
+            }
+            int index = Arrays.binarySearch(large, from, Math.min(from + bound + 1, large.length), value);
+            if (index >= 0) {
+                result[count++] = value;
+                from = index + 1;
+            } else {
+                from = -index - 1;
+            }
+            if (from >= large.length) {
+                break;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,254 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.*;
+
+/**
+ * Множество id на отсортированном массиве {@code long[]} без упаковки элементов.
+ * Занимает около 8 байт на элемент против ~60 у {@code HashSet<Long>}.
+ * <p>
+ * Запись сериализуется внутри множества, чтение не блокируется: читатель работает
+ * оптимистично и повторяет попытку, если во время чтения шла запись (как в {@code StampedLock}).
+ * Итератор обходит снимок, поэтому сериализация в JSON не ломается при параллельных изменениях.
+ */
+public class SortedLongSet extends AbstractSet<Long> {
+
+    private static final long[] EMPTY = new long[0];
+    private static final int MIN_CAPACITY = 4;
+    private static final VarHandle VERSION;
+
+    static {
+        try {
+            VERSION = MethodHandles.lookup().findVarHandle(SortedLongSet.class, "version", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // Нечётное значение — идёт запись
+    private volatile int version;
+    private long[] elements = EMPTY;
+    private int size;
+
+    public SortedLongSet() {
+    }
+
+    public static SortedLongSet of(Collection<Long> values) {
+        SortedLongSet set = new SortedLongSet();
+        if (values == null || values.isEmpty()) {
+            return set;
+        }
+        long[] sorted = values.stream()
+                .mapToLong(Long::longValue)
+                .sorted()
+                .distinct()
+                .toArray();
+        set.elements = sorted;
+        set.size = sorted.length;
+        return set;
+    }
+
+    /**
+     * Множество поверх уже отсортированного массива без повторов; массив не копируется.
+     */
+    public static SortedLongSet ofSorted(long[] sorted) {
+        SortedLongSet set = new SortedLongSet();
+        set.elements = sorted;
+        set.size = sorted.length;
+        return set;
+    }
+
+    public boolean contains(long value) {
+        while (true) {
+            int stamp = startRead();
+            long[] array = elements;
+            int length = Math.min(size, array.length);
+            boolean found = Arrays.binarySearch(array, 0, length, value) >= 0;
+            if (validate(stamp)) {
+                return found;
+            }
+        }
+    }
+
+    public boolean add(long value) {
+        lockWrite();
+        try {
+            int index = Arrays.binarySearch(elements, 0, size, value);
+            if (index >= 0) {
+                return false;
+            }
+            int insertAt = -index - 1;
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, Math.max(MIN_CAPACITY, size + (size >> 1)));
+            }
+            System.arraycopy(elements, insertAt, elements, insertAt + 1, size - insertAt);
+            elements[insertAt] = value;
+            size++;
+            return true;
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    public boolean remove(long value) {
+        lockWrite();
+        try {
+            int index = Arrays.binarySearch(elements, 0, size, value);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+            size--;
+            if (elements.length > MIN_CAPACITY && size < elements.length >> 2) {
+                elements = Arrays.copyOf(elements, Math.max(MIN_CAPACITY, size << 1));
+            }
+            return true;
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    /**
+     * Отсортированная копия элементов.
+     */
+    public long[] toLongArray() {
+        while (true) {
+            int stamp = startRead();
+            long[] array = elements;
+            long[] copy = Arrays.copyOf(array, Math.min(size, array.length));
+            if (validate(stamp)) {
+                return copy;
+            }
+        }
+    }
+
+    /**
+     * Не больше {@code limit} элементов, взятых с равным шагом, в порядке возрастания.
+     */
+    public long[] sample(int limit) {
+        while (true) {
+            int stamp = startRead();
+            long[] array = elements;
+            int length = Math.min(size, array.length);
+            long[] sample;
+            if (length <= limit) {
+                sample = Arrays.copyOf(array, length);
+            } else {
+                int step = (length + limit - 1) / limit;
+                sample = new long[(length + step - 1) / step];
+                for (int i = 0; i < sample.length; i++) {
+                    sample[i] = array[i * step];
+                }
+            }
+            if (validate(stamp)) {
+                return sample;
+            }
+        }
+    }
+
+    /**
+     * Не больше {@code limit} элементов больше {@code after} в порядке возрастания — страница по курсору.
+     */
+    public long[] page(long after, int limit) {
+        while (true) {
+            int stamp = startRead();
+            long[] array = elements;
+            int length = Math.min(size, array.length);
+            int from = Arrays.binarySearch(array, 0, length, after);
+            from = from >= 0 ? from + 1 : -from - 1;
+            long[] page = Arrays.copyOfRange(array, from, from + Math.min(limit, length - from));
+            if (validate(stamp)) {
+                return page;
+            }
+        }
+    }
+
+    /**
+     * Общие элементы двух множеств в порядке возрастания.
+     */
+    public long[] intersect(SortedLongSet other) {
+        return SortedLongArrays.intersect(toLongArray(), other.toLongArray());
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        return value instanceof Long id && contains(id.longValue());
+    }
+
+    @Override
+    public boolean add(Long value) {
+        return add(value.longValue());
+    }
+
+    @Override
+    public boolean remove(Object value) {
+        return value instanceof Long id && remove(id.longValue());
+    }
+
+    @Override
+    public void clear() {
+        lockWrite();
+        try {
+            elements = EMPTY;
+            size = 0;
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        long[] snapshot = toLongArray();
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < snapshot.length;
+            }
+
+            @Override
+            public Long next() {
+                if (next >= snapshot.length) {
+                    throw new NoSuchElementException();
+                }
+                return snapshot[next++];
+            }
+        };
+    }
+
+    private int startRead() {
+        while (true) {
+            int stamp = version;
+            if ((stamp & 1) == 0) {
+                return stamp;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private boolean validate(int stamp) {
+        VarHandle.acquireFence();
+        return version == stamp;
+    }
+
+    private void lockWrite() {
+        while (true) {
+            int stamp = version;
+            if ((stamp & 1) == 0 && VERSION.compareAndSet(this, stamp, stamp + 1)) {
+                return;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private void unlockWrite() {
+        version = version + 1;
+    }
+}
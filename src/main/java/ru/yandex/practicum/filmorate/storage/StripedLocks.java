@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Набор блокировок, распределённых по id сущностей.
+ * Запись в одну сущность сериализуется, записи в разные сущности идут параллельно,
+ * чтение блокировки не берёт.
+ */
+public class StripedLocks {
+
+    private static final int DEFAULT_STRIPES = 256;
+
+    private final ReentrantLock[] locks;
+
+    public StripedLocks() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public StripedLocks(int stripes) {
+        locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public <T> T withLock(long id, Supplier<T> action) {
+        ReentrantLock lock = locks[stripe(id)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void withLock(long id, Runnable action) {
+        withLock(id, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public void withLocks(long firstId, long secondId, Runnable action) {
+        withLocks(firstId, secondId, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public <T> T withLocks(long firstId, long secondId, Supplier<T> action) {
+        int first = stripe(firstId);
+        int second = stripe(secondId);
+        if (first == second) {
+            return withLock(firstId, action);
+        }
+        // Блокировки всегда берутся в порядке номеров, чтобы встречные операции не взаимоблокировались
+        ReentrantLock lower = locks[Math.min(first, second)];
+        ReentrantLock upper = locks[Math.max(first, second)];
+        lower.lock();
+        try {
+            upper.lock();
+            try {
+                return action.get();
+            } finally {
+                upper.unlock();
+            }
+        } finally {
+            lower.unlock();
+        }
+    }
+
+    /**
+     * Выполняет действие под всеми блокировками сразу: ни одна запись в это время не идёт.
+     */
+    public <T> T withAllLocks(Supplier<T> action) {
+        int locked = 0;
+        try {
+            // В порядке номеров, как и в withLocks
+            for (ReentrantLock lock : locks) {
+                lock.lock();
+                locked++;
+            }
+            return action.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    private int stripe(long id) {
+        return (int) ((id ^ (id >>> 32)) & 0x7fffffff) % locks.length;
+    }
+}
@@ -0,0 +1,197 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Буфер отложенной записи связей (лайков, дружбы).
+ * Повторные изменения одной связи схлопываются: в хранилище уходит только последнее.
+ * Буфер сбрасывается по таймеру, при переполнении и при закрытии.
+ * Связь покидает буфер только после записи в хранилище, поэтому {@link #pendingOf(long)}, прочитанный
+ * до чтения хранилища, вместе с этим чтением видит все изменения. Связи проиндексированы по владельцам
+ * (фильму, каждому из друзей): чтение изменений одного владельца не перебирает весь буфер.
+ *
+ * @param <K> связь, например пара фильм-пользователь
+ */
+@Slf4j
+public class WriteBehindBuffer<K> implements AutoCloseable {
+
+    private final Map<K, Boolean> pending = new ConcurrentHashMap<>();
+    // Владелец -> его связи в буфере; меняется вместе с pending под блокировкой ключа связи
+    private final Map<Long, Set<K>> byOwner = new ConcurrentHashMap<>();
+    private final Function<K, List<Long>> owners;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final BiConsumer<List<K>, List<K>> writer;
+    private final int batchSize;
+    private final int maxPending;
+    private final ScheduledExecutorService scheduler;
+    private final Counter flushes;
+    private final Counter flushedMutations;
+    private final Timer flushTimer;
+
+    /**
+     * @param owners id, по которым ищутся изменения связи, например фильм лайка
+     * @param writer получает пачки добавленных и удалённых связей
+     */
+    public WriteBehindBuffer(String name, Function<K, List<Long>> owners, BiConsumer<List<K>, List<K>> writer,
+                             Duration flushInterval, int batchSize, int maxPending, MeterRegistry registry) {
+        this.owners = owners;
+        this.writer = writer;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        this.flushes = Counter.builder("filmorate.cache.flushes")
+                .tag("buffer", name)
+                .register(registry);
+        this.flushedMutations = Counter.builder("filmorate.cache.flushed.mutations")
+                .tag("buffer", name)
+                .register(registry);
+        this.flushTimer = Timer.builder("filmorate.cache.flush.duration")
+                .tag("buffer", name)
+                .register(registry);
+        Gauge.builder("filmorate.cache.pending.mutations", pending, Map::size)
+                .tag("buffer", name)
+                .register(registry);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMs = flushInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void add(K key) {
+        enqueue(key, true);
+    }
+
+    public void remove(K key) {
+        enqueue(key, false);
+    }
+
+    public boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    public boolean hasPending(long owner) {
+        return byOwner.containsKey(owner);
+    }
+
+    /**
+     * Несброшенные изменения связей владельца: связь -> {@code true}, если добавлена, {@code false}, если удалена.
+     */
+    public Map<K, Boolean> pendingOf(long owner) {
+        Set<K> keys = byOwner.get(owner);
+        if (keys == null) {
+            return Map.of();
+        }
+        Map<K, Boolean> changes = new HashMap<>();
+        for (K key : keys) {
+            Boolean added = pending.get(key);
+            if (added != null) {
+                changes.put(key, added);
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Записывает в хранилище всё, что накопилось к моменту вызова.
+     */
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        // Сброс идёт в один поток, иначе пачки с одной и той же связью могли бы обогнать друг друга
+        flushLock.lock();
+        try {
+            long start = System.nanoTime();
+            List<K> added = new ArrayList<>();
+            List<K> removed = new ArrayList<>();
+            for (Map.Entry<K, Boolean> entry : pending.entrySet()) {
+                (entry.getValue() ? added : removed).add(entry.getKey());
+                if (added.size() + removed.size() >= batchSize) {
+                    write(added, removed);
+                    added = new ArrayList<>();
+                    removed = new ArrayList<>();
+                }
+            }
+            write(added, removed);
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        flush();
+    }
+
+    private void enqueue(K key, boolean add) {
+        pending.compute(key, (k, old) -> {
+            if (old == null) {
+                owners.apply(k).forEach(owner -> byOwner.compute(owner, (id, keys) -> {
+                    Set<K> indexed = keys == null ? ConcurrentHashMap.newKeySet() : keys;
+                    indexed.add(k);
+                    return indexed;
+                }));
+            }
+            return add;
+        });
+        if (pending.size() >= maxPending) {
+            flush();
+        }
+    }
+
+    private void write(List<K> added, List<K> removed) {
+        if (added.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        // Если запись не удалась, пачка остаётся в буфере до следующего сброса
+        writer.accept(added, removed);
+        // Связь, которую изменили после того, как мы её прочитали, останется до следующего сброса
+        added.forEach(key -> written(key, true));
+        removed.forEach(key -> written(key, false));
+        flushes.increment();
+        flushedMutations.increment(added.size() + removed.size());
+    }
+
+    private void written(K key, boolean add) {
+        pending.computeIfPresent(key, (k, current) -> {
+            if (current != add) {
+                return current;
+            }
+            owners.apply(k).forEach(owner -> byOwner.computeIfPresent(owner, (id, keys) -> {
+                keys.remove(k);
+                return keys.isEmpty() ? null : keys;
+            }));
+            return null;
+        });
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Не удалось сбросить отложенные изменения в хранилище", e);
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import ru.yandex.practicum.filmorate.config.CacheProperties;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.storage.SortedLongSet;
+import ru.yandex.practicum.filmorate.storage.WriteBehindBuffer;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Кэш фильмов перед хранилищем. Фильмы по id отдаются из памяти (вытеснение W-TinyLFU),
+ * лайки в режиме WRITE_BEHIND копятся в буфере и записываются пачками.
+ * Списки фильмов читаются из хранилища с наложенными поверх несброшенными лайками;
+ * буфер сбрасывают только рейтинги, поиск и рекомендации, которые хранилище считает по лайкам.
+ * Кэш хранит собственные копии фильмов и передаёт лайки хранилищу только по id.
+ */
+public class CachingFilmStorage implements FilmStorage, AutoCloseable {
+
+    private final FilmStorage delegate;
+    private final Cache<Long, Film> films;
+    private final WriteBehindBuffer<FilmLike> likes;
+
+    public CachingFilmStorage(FilmStorage delegate, CacheProperties properties, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.films = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, films, "films");
+        this.likes = properties.writeMode() == CacheProperties.WriteMode.WRITE_BEHIND
+                ? new WriteBehindBuffer<>("likes", like -> List.of(like.filmId()), this::writeLikes, properties.flushInterval(),
+                properties.batchSize(), properties.maxPending(), registry)
+                : null;
+    }
+
+    @Override
+    public Collection<Film> findAllFilms() {
+        return delegate.findAllFilms().stream()
+                .map(this::current)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Film> findFilmsPage(Long cursor, int limit) {
+        return delegate.findFilmsPage(cursor, limit).stream()
+                .map(this::current)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Film saveFilm(Film film) {
+        return cache(delegate.saveFilm(film));
+    }
+
+    @Override
+    public Film putFilm(Film film) {
+        // Запись в хранилище идёт вне блокировки ключа, буфер читается до неё.
+        // Закэшированная копия получает новые поля и сохраняет свои лайки: их меняют только под блокировкой ключа
+        Map<Long, Boolean> pending = pendingLikes(film.getId());
+        Film stored = delegate.putFilm(film);
+        Film updated = films.asMap().compute(film.getId(), (id, cached) -> cached == null
+                ? null
+                : stored.toBuilder().likes(cached.getLikes()).build());
+        return updated != null ? updated : copy(stored, pending);
+    }
+
+    @Override
+    public Optional<Film> findFilmById(Long filmId) {
+        return Optional.ofNullable(films.get(filmId, this::load));
+    }
+
+    @Override
+    public Optional<FilmSummary> findFilmSummaryById(Long filmId) {
+        Film cached = films.getIfPresent(filmId);
+        if (cached != null) {
+            return Optional.of(FilmSummary.of(cached));
+        }
+        // Число лайков из хранилища не учитывает буфер — у фильма с несброшенными лайками читаем его целиком
+        if (hasPendingLikes(filmId)) {
+            return findFilmById(filmId).map(FilmSummary::of);
+        }
+        return delegate.findFilmSummaryById(filmId);
+    }
+
+    @Override
+    public List<FilmSummary> findFilmSummariesPage(Long cursor, int limit) {
+        return delegate.findFilmSummariesPage(cursor, limit).stream()
+                .map(this::currentSummary)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<FilmSummary> findMostPopularFilmSummaries(int count, FilmFilter filter) {
+        flush();
+        return delegate.findMostPopularFilmSummaries(count, filter);
+    }
+
+    @Override
+    public List<Long> findLikesPage(Long filmId, Long cursor, int limit) {
+        Film cached = films.getIfPresent(filmId);
+        if (cached != null) {
+            return page(cached, cursor, limit);
+        }
+        if (hasPendingLikes(filmId)) {
+            return findFilmById(filmId)
+                    .map(film -> page(film, cursor, limit))
+                    .orElseGet(List::of);
+        }
+        return delegate.findLikesPage(filmId, cursor, limit);
+    }
+
+    @Override
+    public void putLike(Film film, Long userId) {
+        putLikes(List.of(new FilmLike(film.getId(), userId)));
+        film.getLikes().add(userId);
+    }
+
+    @Override
+    public void removeLike(Film film, Long userId) {
+        removeLikes(List.of(new FilmLike(film.getId(), userId)));
+        film.getLikes().remove(userId);
+    }
+
+    @Override
+    public void putLikes(Collection<FilmLike> filmLikes) {
+        if (likes == null) {
+            delegate.putLikes(filmLikes);
+        } else {
+            filmLikes.forEach(likes::add);
+        }
+        filmLikes.forEach(like -> updateCached(like.filmId(), cached -> cached.getLikes().add(like.userId())));
+    }
+
+    @Override
+    public void removeLikes(Collection<FilmLike> filmLikes) {
+        if (likes == null) {
+            delegate.removeLikes(filmLikes);
+        } else {
+            filmLikes.forEach(likes::remove);
+        }
+        filmLikes.forEach(like -> updateCached(like.filmId(), cached -> cached.getLikes().remove(like.userId())));
+    }
+
+    @Override
+    public List<Film> findMostPopularFilms(int count) {
+        flush();
+        return delegate.findMostPopularFilms(count);
+    }
+
+    @Override
+    public List<Film> findMostPopularFilms(int count, FilmFilter filter) {
+        flush();
+        return delegate.findMostPopularFilms(count, filter);
+    }
+
+    @Override
+    public List<Film> findTrendingFilms(Duration window, int count) {
+        flush();
+        return delegate.findTrendingFilms(window, count);
+    }
+
+    @Override
+    public List<Film> searchFilms(String query, int count) {
+        flush();
+        return delegate.searchFilms(query, count);
+    }
+
+    @Override
+    public List<Film> findRecommendedFilms(Long userId, int count) {
+        flush();
+        return delegate.findRecommendedFilms(userId, count);
+    }
+
+    @Override
+    public void precomputeRecommendations() {
+        flush();
+        delegate.precomputeRecommendations();
+    }
+
+    @Override
+    public boolean hasFilmsId(Long filmId) {
+        return films.getIfPresent(filmId) != null || delegate.hasFilmsId(filmId);
+    }
+
+    @Override
+    public Set<Long> findExistingFilmIds(Collection<Long> filmIds) {
+        // Удалений нет, поэтому закэшированные id существуют — в хранилище проверяются только остальные
+        Map<Boolean, List<Long>> byCached = filmIds.stream()
+                .collect(Collectors.partitioningBy(films.asMap()::containsKey));
+        Set<Long> existing = new HashSet<>(byCached.get(true));
+        if (!byCached.get(false).isEmpty()) {
+            existing.addAll(delegate.findExistingFilmIds(byCached.get(false)));
+        }
+        return existing;
+    }
+
+    @Override
+    public long countFilms() {
+        return delegate.countFilms();
+    }
+
+    // Значение для метрики: несброшенные лайки в него не входят, отставание — не больше интервала сброса
+    @Override
+    public long countLikes() {
+        return delegate.countLikes();
+    }
+
+    public void flush() {
+        if (likes != null) {
+            likes.flush();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (likes != null) {
+            likes.close();
+        }
+    }
+
+    private Film cache(Film film) {
+        Film copy = copy(film, Map.of());
+        films.put(copy.getId(), copy);
+        return copy;
+    }
+
+    // Загрузка при промахе идёт под блокировкой ключа: лайк, пришедший во время чтения,
+    // дождётся загрузки и применится к копии. Снимок буфера берётся до чтения хранилища
+    private Film load(Long filmId) {
+        Map<Long, Boolean> pending = pendingLikes(filmId);
+        return delegate.findFilmById(filmId)
+                .map(film -> copy(film, pending))
+                .orElse(null);
+    }
+
+    private static Film copy(Film film, Map<Long, Boolean> pending) {
+        SortedLongSet likes = SortedLongSet.of(film.getLikes());
+        pending.forEach((userId, liked) -> {
+            if (liked) {
+                likes.add(userId);
+            } else {
+                likes.remove(userId);
+            }
+        });
+        return film.toBuilder()
+                .likes(likes)
+                .build();
+    }
+
+    // Фильм из кэша актуален; прочитанный из хранилища дополняется несброшенными лайками
+    private Film current(Film stored) {
+        Film cached = films.asMap().get(stored.getId());
+        if (cached != null) {
+            return cached;
+        }
+        Map<Long, Boolean> changes = pendingLikes(stored.getId());
+        return changes.isEmpty() ? stored : copy(stored, changes);
+    }
+
+    private FilmSummary currentSummary(FilmSummary stored) {
+        Film cached = films.asMap().get(stored.id());
+        if (cached != null) {
+            return FilmSummary.of(cached);
+        }
+        if (!hasPendingLikes(stored.id())) {
+            return stored;
+        }
+        return findFilmById(stored.id()).map(FilmSummary::of).orElse(stored);
+    }
+
+    private static List<Long> page(Film film, Long cursor, int limit) {
+        return Arrays.stream(((SortedLongSet) film.getLikes()).page(cursor == null ? 0L : cursor, limit))
+                .boxed()
+                .collect(Collectors.toList());
+    }
+
+    // Несброшенные лайки фильма: пользователь -> поставлен ли лайк
+    private Map<Long, Boolean> pendingLikes(long filmId) {
+        if (likes == null) {
+            return Map.of();
+        }
+        Map<Long, Boolean> byUser = new HashMap<>();
+        likes.pendingOf(filmId).forEach((like, liked) -> byUser.put(like.userId(), liked));
+        return byUser;
+    }
+
+    private boolean hasPendingLikes(long filmId) {
+        return likes != null && likes.hasPending(filmId);
+    }
+
+    // Под блокировкой ключа: если фильм сейчас загружается, изменение применится к загруженной копии
+    // (computeIfPresent загрузку не ждёт). Служебный доступ через asMap() не попадает в статистику попаданий
+    private void updateCached(Long filmId, Consumer<Film> update) {
+        films.asMap().compute(filmId, (id, cached) -> {
+            if (cached != null) {
+                update.accept(cached);
+            }
+            return cached;
+        });
+    }
+
+    private void writeLikes(List<FilmLike> added, List<FilmLike> removed) {
+        delegate.putLikes(added);
+        delegate.removeLikes(removed);
+    }
+}
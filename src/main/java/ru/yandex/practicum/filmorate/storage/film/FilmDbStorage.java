@@ -0,0 +1,421 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.config.StorageConfig;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.storage.SortedLongSet;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+@Qualifier(StorageConfig.FILM_BACKEND)
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "jdbc")
+public class FilmDbStorage implements FilmStorage {
+
+    private static final String SELECT_FILMS = "SELECT id, name, description, release_date, duration FROM films ";
+    private static final String SELECT_SUMMARIES =
+            "SELECT id, name, description, release_date, duration, like_count FROM films ";
+    private static final String NORMALIZED_NAME = "REPLACE(LOWER(name), 'ё', 'е')";
+    private static final String NORMALIZED_DESCRIPTION = "REPLACE(LOWER(COALESCE(description, '')), 'ё', 'е')";
+    // Начало слова: начало текста или символ, который не буква и не цифра (как в FilmSearchIndex.tokenize)
+    private static final String WORD_START = "(^|[^\\p{L}\\p{N}])";
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public FilmDbStorage(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @Override
+    public Collection<Film> findAllFilms() {
+        List<Film> films = jdbc.query(SELECT_FILMS + "ORDER BY id", this::mapFilm);
+        Map<Long, SortedLongSet> likes = new HashMap<>();
+        jdbc.query("SELECT film_id, user_id FROM likes ORDER BY film_id, user_id", rs -> {
+            likes.computeIfAbsent(rs.getLong("film_id"), id -> new SortedLongSet()).add(rs.getLong("user_id"));
+        });
+        films.forEach(film -> film.setLikes(likes.getOrDefault(film.getId(), new SortedLongSet())));
+        return films;
+    }
+
+    @Override
+    public List<Film> findFilmsPage(Long cursor, int limit) {
+        List<Film> films = jdbc.query(SELECT_FILMS + "WHERE id > :cursor ORDER BY id LIMIT :limit",
+                new MapSqlParameterSource()
+                        .addValue("cursor", cursor == null ? 0L : cursor)
+                        .addValue("limit", limit),
+                this::mapFilm);
+        return withLikes(films);
+    }
+
+    @Override
+    @Transactional
+    public Film saveFilm(Film film) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbc.update("INSERT INTO films (name, description, release_date, duration) "
+                        + "VALUES (:name, :description, :releaseDate, :duration)",
+                filmParameters(film), keyHolder, new String[]{"id"});
+        film.setId(keyHolder.getKeyAs(Long.class));
+        film.setLikes(SortedLongSet.of(film.getLikes()));
+        if (!film.getLikes().isEmpty()) {
+            jdbc.batchUpdate("INSERT INTO likes (film_id, user_id) VALUES (:filmId, :userId)",
+                    film.getLikes().stream()
+                            .map(userId -> likeParameters(film, userId))
+                            .toArray(MapSqlParameterSource[]::new));
+            jdbc.update("UPDATE films SET like_count = :likes WHERE id = :id",
+                    new MapSqlParameterSource()
+                            .addValue("likes", film.getLikes().size())
+                            .addValue("id", film.getId()));
+        }
+        log.info("Фильм добавлен: id = {}", film.getId());
+        return film;
+    }
+
+    @Override
+    public Film putFilm(Film newFilm) {
+        jdbc.update("UPDATE films SET name = COALESCE(:name, name), "
+                        + "description = COALESCE(:description, description), "
+                        + "release_date = COALESCE(:releaseDate, release_date), "
+                        + "duration = COALESCE(:duration, duration) "
+                        + "WHERE id = :id",
+                filmParameters(newFilm).addValue("id", newFilm.getId()));
+        Film film = findFilmById(newFilm.getId()).orElseThrow();
+        log.info("Фильм обновлён: id = {}", film.getId());
+        return film;
+    }
+
+    @Override
+    public Optional<Film> findFilmById(Long filmId) {
+        List<Film> films = jdbc.query(SELECT_FILMS + "WHERE id = :id",
+                new MapSqlParameterSource("id", filmId), this::mapFilm);
+        return withLikes(films).stream().findFirst();
+    }
+
+    @Override
+    @Transactional
+    public void putLike(Film film, Long userId) {
+        MapSqlParameterSource params = likeParameters(film, userId);
+        lockFilms(List.of(film.getId()));
+        int inserted = jdbc.update("INSERT INTO likes (film_id, user_id) SELECT :filmId, :userId "
+                + "WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = :filmId AND user_id = :userId)", params);
+        if (inserted > 0) {
+            jdbc.update("UPDATE films SET like_count = like_count + 1 WHERE id = :filmId", params);
+        }
+        film.getLikes().add(userId);
+    }
+
+    @Override
+    @Transactional
+    public void removeLike(Film film, Long userId) {
+        MapSqlParameterSource params = likeParameters(film, userId);
+        lockFilms(List.of(film.getId()));
+        int deleted = jdbc.update("DELETE FROM likes WHERE film_id = :filmId AND user_id = :userId", params);
+        if (deleted > 0) {
+            jdbc.update("UPDATE films SET like_count = like_count - 1 WHERE id = :filmId", params);
+        }
+        film.getLikes().remove(userId);
+    }
+
+    @Override
+    @Transactional
+    public void putLikes(Collection<FilmLike> likes) {
+        if (likes.isEmpty()) {
+            return;
+        }
+        List<FilmLike> batch = List.copyOf(likes);
+        lockFilms(batch.stream().map(FilmLike::filmId).collect(Collectors.toSet()));
+        int[] inserted = jdbc.batchUpdate("INSERT INTO likes (film_id, user_id) SELECT :filmId, :userId "
+                        + "WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = :filmId AND user_id = :userId)",
+                likeParameters(batch));
+        changeLikeCounts(batch, inserted, 1);
+    }
+
+    @Override
+    @Transactional
+    public void removeLikes(Collection<FilmLike> likes) {
+        if (likes.isEmpty()) {
+            return;
+        }
+        List<FilmLike> batch = List.copyOf(likes);
+        lockFilms(batch.stream().map(FilmLike::filmId).collect(Collectors.toSet()));
+        int[] deleted = jdbc.batchUpdate("DELETE FROM likes WHERE film_id = :filmId AND user_id = :userId",
+                likeParameters(batch));
+        changeLikeCounts(batch, deleted, -1);
+    }
+
+    @Override
+    public List<Film> findMostPopularFilms(int count) {
+        List<Film> films = jdbc.query(SELECT_FILMS + "ORDER BY like_count DESC, id LIMIT :count",
+                new MapSqlParameterSource("count", Math.max(count, 0)), this::mapFilm);
+        return withLikes(films);
+    }
+
+    @Override
+    public List<Film> findMostPopularFilms(int count, FilmFilter filter) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("count", Math.max(count, 0));
+        List<Film> films = jdbc.query(SELECT_FILMS + where(filter, parameters)
+                + "ORDER BY like_count DESC, id LIMIT :count", parameters, this::mapFilm);
+        return withLikes(films);
+    }
+
+    // Число лайков читается из like_count, сами лайки не загружаются
+    @Override
+    public Optional<FilmSummary> findFilmSummaryById(Long filmId) {
+        return jdbc.query(SELECT_SUMMARIES + "WHERE id = :id",
+                new MapSqlParameterSource("id", filmId), this::mapSummary).stream().findFirst();
+    }
+
+    @Override
+    public List<FilmSummary> findFilmSummariesPage(Long cursor, int limit) {
+        return jdbc.query(SELECT_SUMMARIES + "WHERE id > :cursor ORDER BY id LIMIT :limit",
+                new MapSqlParameterSource()
+                        .addValue("cursor", cursor == null ? 0L : cursor)
+                        .addValue("limit", limit),
+                this::mapSummary);
+    }
+
+    @Override
+    public List<FilmSummary> findMostPopularFilmSummaries(int count, FilmFilter filter) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("count", Math.max(count, 0));
+        return jdbc.query(SELECT_SUMMARIES + where(filter, parameters)
+                + "ORDER BY like_count DESC, id LIMIT :count", parameters, this::mapSummary);
+    }
+
+    // Читает диапазон первичного ключа (film_id, user_id)
+    @Override
+    public List<Long> findLikesPage(Long filmId, Long cursor, int limit) {
+        return jdbc.queryForList("SELECT user_id FROM likes WHERE film_id = :filmId AND user_id > :cursor "
+                        + "ORDER BY user_id LIMIT :limit",
+                new MapSqlParameterSource()
+                        .addValue("filmId", filmId)
+                        .addValue("cursor", cursor == null ? 0L : cursor)
+                        .addValue("limit", limit),
+                Long.class);
+    }
+
+    @Override
+    public List<Film> findTrendingFilms(Duration window, int count) {
+        List<Long> ids = jdbc.queryForList("SELECT film_id FROM likes WHERE created_at >= :since "
+                        + "GROUP BY film_id ORDER BY COUNT(*) DESC, film_id LIMIT :count",
+                new MapSqlParameterSource()
+                        .addValue("since", Timestamp.from(Instant.now().minus(window)))
+                        .addValue("count", count),
+                Long.class);
+        return findFilmsInOrder(ids);
+    }
+
+    // База отбирает фильмы, где каждое слово запроса начинает какое-то слово текста, а оценка считается
+    // так же, как в памяти (FilmSearchIndex), чтобы оба хранилища находили и упорядочивали одинаково
+    @Override
+    public List<Film> searchFilms(String query, int count) {
+        List<String> tokens = FilmSearchIndex.queryTokens(query);
+        if (tokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        StringJoiner where = new StringJoiner(" AND ", "WHERE ", "");
+        for (int i = 0; i < tokens.size(); i++) {
+            params.addValue("token" + i, WORD_START + tokens.get(i));
+            where.add("(REGEXP_LIKE(" + NORMALIZED_NAME + ", :token" + i + ") OR "
+                    + "REGEXP_LIKE(" + NORMALIZED_DESCRIPTION + ", :token" + i + "))");
+        }
+        Map<Long, Integer> relevance = new HashMap<>();
+        Map<Long, Integer> likes = new HashMap<>();
+        jdbc.query("SELECT id, name, description, like_count FROM films " + where, params, rs -> {
+            Map<String, Integer> weights = FilmSearchIndex.weights(rs.getString("name"), rs.getString("description"));
+            int score = 0;
+            for (String token : tokens) {
+                int weight = FilmSearchIndex.weight(weights, token);
+                if (weight == 0) {
+                    return;
+                }
+                score += weight;
+            }
+            relevance.put(rs.getLong("id"), score);
+            likes.put(rs.getLong("id"), rs.getInt("like_count"));
+        });
+        return findFilmsInOrder(FilmSearchIndex.rank(relevance, filmId -> likes.get(filmId), count));
+    }
+
+    @Override
+    public List<Film> findRecommendedFilms(Long userId, int count) {
+        List<Long> ids = jdbc.queryForList("SELECT l.film_id FROM ("
+                        + "SELECT l2.user_id, COUNT(*) AS common FROM likes l1 "
+                        + "JOIN likes l2 ON l2.film_id = l1.film_id AND l2.user_id <> l1.user_id "
+                        + "WHERE l1.user_id = :userId "
+                        + "GROUP BY l2.user_id ORDER BY common DESC, l2.user_id LIMIT :neighbours) n "
+                        + "JOIN likes l ON l.user_id = n.user_id "
+                        + "WHERE NOT EXISTS (SELECT 1 FROM likes m WHERE m.user_id = :userId AND m.film_id = l.film_id) "
+                        + "GROUP BY l.film_id ORDER BY SUM(n.common) DESC, l.film_id LIMIT :count",
+                new MapSqlParameterSource()
+                        .addValue("userId", userId)
+                        .addValue("neighbours", FilmRecommender.NEIGHBOURS)
+                        .addValue("count", count),
+                Long.class);
+        return findFilmsInOrder(ids);
+    }
+
+    @Override
+    public void precomputeRecommendations() {
+        // База считает рекомендации одним запросом по индексам, заранее считать нечего
+    }
+
+    @Override
+    public boolean hasFilmsId(Long filmId) {
+        return Boolean.TRUE.equals(jdbc.queryForObject("SELECT EXISTS (SELECT 1 FROM films WHERE id = :id)",
+                new MapSqlParameterSource("id", filmId), Boolean.class));
+    }
+
+    @Override
+    public Set<Long> findExistingFilmIds(Collection<Long> filmIds) {
+        if (filmIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(jdbc.queryForList("SELECT id FROM films WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", filmIds), Long.class));
+    }
+
+    @Override
+    public long countFilms() {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM films", new MapSqlParameterSource(), Long.class);
+    }
+
+    @Override
+    public long countLikes() {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM likes", new MapSqlParameterSource(), Long.class);
+    }
+
+    private List<Film> findFilmsInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Film> filmsById = jdbc.query(SELECT_FILMS + "WHERE id IN (:ids)",
+                        new MapSqlParameterSource("ids", ids), this::mapFilm).stream()
+                .collect(Collectors.toMap(Film::getId, film -> film));
+        return withLikes(ids.stream()
+                .map(filmsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+    }
+
+    // Лайки всех фильмов страницы одним запросом вместо запроса на каждый фильм
+    private List<Film> withLikes(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        Map<Long, Film> filmsById = films.stream()
+                .collect(Collectors.toMap(Film::getId, film -> film));
+        jdbc.query("SELECT film_id, user_id FROM likes WHERE film_id IN (:ids)",
+                new MapSqlParameterSource("ids", filmsById.keySet()),
+                rs -> {
+                    filmsById.get(rs.getLong("film_id")).getLikes().add(rs.getLong("user_id"));
+                });
+        return films;
+    }
+
+    private Film mapFilm(ResultSet rs, int rowNum) throws SQLException {
+        Date releaseDate = rs.getDate("release_date");
+        long duration = rs.getLong("duration");
+        return Film.builder()
+                .id(rs.getLong("id"))
+                .name(rs.getString("name"))
+                .description(rs.getString("description"))
+                .releaseDate(releaseDate == null ? null : releaseDate.toLocalDate())
+                .duration(rs.wasNull() ? null : Duration.ofSeconds(duration))
+                .likes(new SortedLongSet())
+                .build();
+    }
+
+    private FilmSummary mapSummary(ResultSet rs, int rowNum) throws SQLException {
+        Film film = mapFilm(rs, rowNum);
+        return new FilmSummary(film.getId(), film.getName(), film.getDescription(), film.getReleaseDate(),
+                film.getDuration(), rs.getInt("like_count"));
+    }
+
+    // Условие WHERE только из заданных границ, чтобы оптимизатор мог взять индекс по дате выхода или длительности
+    private static String where(FilmFilter filter, MapSqlParameterSource parameters) {
+        if (filter == null) {
+            return "";
+        }
+        List<String> conditions = new ArrayList<>();
+        if (filter.from() != null) {
+            conditions.add("release_date >= :from");
+            parameters.addValue("from", filter.from());
+        }
+        if (filter.to() != null) {
+            conditions.add("release_date <= :to");
+            parameters.addValue("to", filter.to());
+        }
+        if (filter.maxDuration() != null) {
+            conditions.add("duration <= :maxDuration");
+            parameters.addValue("maxDuration", filter.maxDuration().getSeconds());
+        }
+        return conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions) + " ";
+    }
+
+    private MapSqlParameterSource filmParameters(Film film) {
+        return new MapSqlParameterSource()
+                .addValue("name", film.getName())
+                .addValue("description", film.getDescription())
+                .addValue("releaseDate", film.getReleaseDate())
+                .addValue("duration", film.getDuration() == null ? null : film.getDuration().getSeconds());
+    }
+
+    // Лайки фильма меняются по очереди: проверка NOT EXISTS после блокировки видит лайк, вставленный
+    // параллельной транзакцией, и вставка не упирается в первичный ключ. Фильмы блокируются по возрастанию id
+    private void lockFilms(Collection<Long> filmIds) {
+        jdbc.queryForList("SELECT id FROM films WHERE id IN (:ids) ORDER BY id FOR UPDATE",
+                new MapSqlParameterSource("ids", filmIds), Long.class);
+    }
+
+    // Счётчик меняется на число строк, которые пакет действительно вставил или удалил: лайки фильма не пересчитываются
+    private void changeLikeCounts(List<FilmLike> likes, int[] changedRows, int sign) {
+        Map<Long, Integer> deltas = new HashMap<>();
+        for (int i = 0; i < likes.size(); i++) {
+            if (changedRows[i] > 0) {
+                deltas.merge(likes.get(i).filmId(), changedRows[i] * sign, Integer::sum);
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+        jdbc.batchUpdate("UPDATE films SET like_count = like_count + :delta WHERE id = :filmId",
+                deltas.entrySet().stream()
+                        .map(delta -> new MapSqlParameterSource()
+                                .addValue("filmId", delta.getKey())
+                                .addValue("delta", delta.getValue()))
+                        .toArray(MapSqlParameterSource[]::new));
+    }
+
+    private MapSqlParameterSource[] likeParameters(Collection<FilmLike> likes) {
+        return likes.stream()
+                .map(like -> new MapSqlParameterSource()
+                        .addValue("filmId", like.filmId())
+                        .addValue("userId", like.userId()))
+                .toArray(MapSqlParameterSource[]::new);
+    }
+
+    private MapSqlParameterSource likeParameters(Film film, Long userId) {
+        return new MapSqlParameterSource()
+                .addValue("filmId", film.getId())
+                .addValue("userId", userId);
+    }
+}
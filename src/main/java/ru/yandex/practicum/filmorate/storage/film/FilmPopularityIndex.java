@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.LongPredicate;
+
+/**
+ * Рейтинг фильмов по количеству лайков, который обновляется при каждом лайке,
+ * а не пересчитывается сортировкой на каждый запрос.
+ * Порядок: больше лайков — выше, при равенстве — меньший id выше.
+ * Обновления одного фильма должны идти под его блокировкой, чтение не блокируется.
+ */
+class FilmPopularityIndex {
+
+    private static final Comparator<Rank> ORDER = Comparator
+            .comparingInt(Rank::likes).reversed()
+            .thenComparingLong(Rank::filmId);
+
+    private final NavigableSet<Rank> ranking = new ConcurrentSkipListSet<>(ORDER);
+    private final Map<Long, Rank> ranks = new ConcurrentHashMap<>();
+
+    void update(long filmId, int likes) {
+        Rank newRank = new Rank(filmId, likes);
+        // Сначала новая позиция, потом публикация и удаление старой:
+        // читатель видит ровно одну актуальную позицию фильма
+        ranking.add(newRank);
+        Rank oldRank = ranks.put(filmId, newRank);
+        if (oldRank != null && !oldRank.equals(newRank)) {
+            ranking.remove(oldRank);
+        }
+    }
+
+    void remove(long filmId) {
+        Rank oldRank = ranks.remove(filmId);
+        if (oldRank != null) {
+            ranking.remove(oldRank);
+        }
+    }
+
+    List<Long> top(int count) {
+        List<Long> filmIds = new ArrayList<>(Math.max(0, Math.min(count, ranks.size())));
+        Iterator<Rank> iterator = ranking.iterator();
+        while (filmIds.size() < count && iterator.hasNext()) {
+            Rank rank = iterator.next();
+            if (rank.equals(ranks.get(rank.filmId()))) {
+                filmIds.add(rank.filmId());
+            }
+        }
+        return filmIds;
+    }
+
+    /**
+     * Первые {@code count} фильмов рейтинга, прошедших фильтр, если для этого хватило просмотра
+     * не больше {@code maxScanned} позиций. Иначе пусто: фильтр слишком редкий для обхода рейтинга.
+     */
+    Optional<List<Long>> top(int count, LongPredicate filter, int maxScanned) {
+        List<Long> filmIds = new ArrayList<>(Math.max(0, Math.min(count, ranks.size())));
+        Iterator<Rank> iterator = ranking.iterator();
+        int scanned = 0;
+        while (filmIds.size() < count && iterator.hasNext()) {
+            if (scanned++ == maxScanned) {
+                return Optional.empty();
+            }
+            Rank rank = iterator.next();
+            if (rank.equals(ranks.get(rank.filmId())) && filter.test(rank.filmId())) {
+                filmIds.add(rank.filmId());
+            }
+        }
+        return Optional.of(filmIds);
+    }
+
+    private record Rank(long filmId, int likes) {
+    }
+}
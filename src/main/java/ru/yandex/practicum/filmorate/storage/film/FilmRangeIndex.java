@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+/**
+ * Отсортированные индексы фильмов по дате выхода (день эпохи) и продолжительности (секунды).
+ * Диапазон читается подмножеством индекса без перебора всех фильмов; ключ держит сам фильм,
+ * чтобы не искать его по id в каталоге.
+ * Индексация одного фильма должна идти под его блокировкой, чтение не блокируется.
+ */
+class FilmRangeIndex {
+
+    private static final Comparator<Key> ORDER = Comparator
+            .comparingLong(Key::value)
+            .thenComparingLong(Key::filmId);
+
+    private final NavigableSet<Key> byReleaseDate = new ConcurrentSkipListSet<>(ORDER);
+    private final NavigableSet<Key> byDuration = new ConcurrentSkipListSet<>(ORDER);
+    private final Map<Long, Key> releaseDates = new ConcurrentHashMap<>();
+    private final Map<Long, Key> durations = new ConcurrentHashMap<>();
+
+    void index(Film film) {
+        if (film.getReleaseDate() != null) {
+            update(byReleaseDate, releaseDates, new Key(film.getReleaseDate().toEpochDay(), film.getId(), film));
+        }
+        if (film.getDuration() != null) {
+            update(byDuration, durations, new Key(film.getDuration().getSeconds(), film.getId(), film));
+        }
+    }
+
+    /**
+     * Фильмы из диапазона даты выхода, а если он не задан — из диапазона продолжительности.
+     * Остальные условия фильтра проверяет вызывающий.
+     */
+    Stream<Film> scan(FilmFilter filter) {
+        if (filter.hasReleaseDateRange()) {
+            long from = filter.from() == null ? Long.MIN_VALUE : filter.from().toEpochDay();
+            long to = filter.to() == null ? Long.MAX_VALUE : filter.to().toEpochDay();
+            return range(byReleaseDate, from, to);
+        }
+        long maxSeconds = filter.maxDuration() == null ? Long.MAX_VALUE : filter.maxDuration().getSeconds();
+        return range(byDuration, Long.MIN_VALUE, maxSeconds);
+    }
+
+    private static Stream<Film> range(NavigableSet<Key> index, long from, long to) {
+        if (from > to) {
+            return Stream.empty();
+        }
+        return index.subSet(new Key(from, Long.MIN_VALUE, null), true, new Key(to, Long.MAX_VALUE, null), true)
+                .stream()
+                .map(Key::film);
+    }
+
+    // Сначала новая позиция, потом удаление старой — как в FilmPopularityIndex
+    private static void update(NavigableSet<Key> index, Map<Long, Key> current, Key key) {
+        index.add(key);
+        Key old = current.put(key.filmId(), key);
+        if (old != null && old.value() != key.value()) {
+            index.remove(old);
+        }
+    }
+
+    private record Key(long value, long filmId, Film film) {
+    }
+}
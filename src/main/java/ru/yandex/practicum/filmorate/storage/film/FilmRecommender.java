@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.storage.LongIntCounter;
+import ru.yandex.practicum.filmorate.storage.SortedLongSet;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongFunction;
+
+/**
+ * Рекомендации фильмов по схожести лайков. Соседи пользователя — те, у кого больше всего общих
+ * с ним лайков; фильм набирает сумму совпадений соседей, которые его лайкнули.
+ * Фильмы, уже лайкнутые пользователем, не рекомендуются. При равенстве меньший id выше.
+ * <p>
+ * Работает на обратном индексе пользователь → фильмы и множествах лайков фильмов,
+ * счёт ведётся в {@link LongIntCounter}. На запрос просматривается не больше {@link #MAX_SCANNED_LIKES}
+ * лайков: у популярных фильмов берётся равномерная выборка лайкнувших.
+ * Пакетный режим параллельно считает рекомендации всем пользователям и заменяет снимок целиком;
+ * до следующего прохода ответы берутся из снимка без фильмов, лайкнутых после него.
+ */
+class FilmRecommender {
+
+    static final int MAX_SCANNED_LIKES = 200_000;
+    static final int NEIGHBOURS = 50;
+    static final int PRECOMPUTED_SIZE = 100;
+
+    private final LongFunction<SortedLongSet> filmsLikedBy;
+    private final LongFunction<SortedLongSet> likesOf;
+    private volatile Map<Long, long[]> precomputed = Map.of();
+
+    FilmRecommender(LongFunction<SortedLongSet> filmsLikedBy, LongFunction<SortedLongSet> likesOf) {
+        this.filmsLikedBy = filmsLikedBy;
+        this.likesOf = likesOf;
+    }
+
+    long[] recommend(long userId, int count) {
+        long[] cached = precomputed.get(userId);
+        if (cached != null && count <= PRECOMPUTED_SIZE) {
+            SortedLongSet liked = filmsLikedBy.apply(userId);
+            return Arrays.stream(cached)
+                    .filter(filmId -> !liked.contains(filmId))
+                    .limit(count)
+                    .toArray();
+        }
+        return rank(userId, count);
+    }
+
+    /**
+     * Считает рекомендации всем пользователям в общем fork-join пуле и публикует новый снимок.
+     */
+    void precompute(long[] userIds) {
+        Map<Long, long[]> snapshot = new ConcurrentHashMap<>();
+        Arrays.stream(userIds)
+                .parallel()
+                .forEach(userId -> snapshot.put(userId, rank(userId, PRECOMPUTED_SIZE)));
+        precomputed = snapshot;
+    }
+
+    private long[] rank(long userId, int count) {
+        long[] liked = filmsLikedBy.apply(userId).toLongArray();
+        if (liked.length == 0 || count <= 0) {
+            return new long[0];
+        }
+        SortedLongSet[] likers = new SortedLongSet[liked.length];
+        long likes = 0;
+        for (int i = 0; i < liked.length; i++) {
+            likers[i] = likesOf.apply(liked[i]);
+            likes += likers[i].size();
+        }
+        int quota = likes > MAX_SCANNED_LIKES ? Math.max(1, MAX_SCANNED_LIKES / liked.length) : Integer.MAX_VALUE;
+
+        LongIntCounter overlap = LongIntCounter.acquire();
+        LongIntCounter scores = LongIntCounter.acquire();
+        try {
+            overlap.exclude(userId);
+            for (SortedLongSet filmLikers : likers) {
+                for (long other : filmLikers.sample(quota)) {
+                    overlap.increment(other);
+                }
+            }
+            for (long filmId : liked) {
+                scores.exclude(filmId);
+            }
+            for (long neighbour : overlap.top(NEIGHBOURS)) {
+                int weight = overlap.get(neighbour);
+                for (long filmId : filmsLikedBy.apply(neighbour).toLongArray()) {
+                    scores.add(filmId, weight);
+                }
+            }
+            return scores.top(count);
+        } finally {
+            LongIntCounter.release(overlap);
+            LongIntCounter.release(scores);
+        }
+    }
+}
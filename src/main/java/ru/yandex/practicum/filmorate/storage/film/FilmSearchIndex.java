@@ -0,0 +1,198 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.SortedLongSet;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.LongToIntFunction;
+
+/**
+ * Обратный индекс для поиска фильмов по словам названия и описания: слово → id фильмов.
+ * Словарь отсортирован, поэтому слово запроса ищется как префикс без перебора фильмов.
+ * <p>
+ * Все слова запроса должны найтись в фильме. Вес слова в фильме — сколько раз оно встречается,
+ * слово из названия весит {@value #NAME_WEIGHT}; точное совпадение весит вдвое больше префиксного.
+ * Итоговая оценка — релевантность, умноженная на {@code 1 + ln(1 + лайки)}.
+ * Разбор запроса, веса и оценка статические: по ним же ранжирует результаты {@link FilmDbStorage}.
+ * <p>
+ * Индексация одного фильма должна идти под его блокировкой, поиск не блокируется.
+ */
+class FilmSearchIndex {
+
+    static final int MAX_QUERY_TOKENS = 10;
+    private static final int NAME_WEIGHT = 3;
+    // Сколько слов словаря разворачивает один короткий префикс
+    private static final int MAX_EXPANSIONS = 1000;
+
+    private final Map<String, SortedLongSet> postings = new ConcurrentHashMap<>();
+    private final NavigableSet<String> terms = new ConcurrentSkipListSet<>();
+    private final Map<Long, Map<String, Integer>> weights = new ConcurrentHashMap<>();
+    private final LongToIntFunction likes;
+
+    FilmSearchIndex(LongToIntFunction likes) {
+        this.likes = likes;
+    }
+
+    void index(Film film) {
+        Map<String, Integer> newWeights = weights(film.getName(), film.getDescription());
+        Map<String, Integer> oldWeights = weights.put(film.getId(), newWeights);
+        newWeights.keySet().forEach(token -> addPosting(token, film.getId()));
+        if (oldWeights != null) {
+            oldWeights.keySet().stream()
+                    .filter(token -> !newWeights.containsKey(token))
+                    .forEach(token -> removePosting(token, film.getId()));
+        }
+    }
+
+    List<Long> search(String query, int count) {
+        List<String> queryTokens = queryTokens(query);
+        if (queryTokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // Фильмы берутся из списка самого редкого слова, остальные слова проверяются
+        // только по словам этих фильмов
+        String rarest = queryTokens.stream()
+                .min(Comparator.comparingLong(this::estimate))
+                .orElseThrow();
+        Map<Long, Integer> relevance = match(rarest);
+        for (String token : queryTokens) {
+            if (!token.equals(rarest)) {
+                relevance.replaceAll((filmId, score) -> {
+                    int weight = weight(weights.getOrDefault(filmId, Map.of()), token);
+                    return weight == 0 ? null : score + weight;
+                });
+                relevance.values().removeIf(Objects::isNull);
+            }
+        }
+        return rank(relevance, likes, count);
+    }
+
+    /**
+     * Слова запроса без повторов, не больше {@value #MAX_QUERY_TOKENS}.
+     */
+    static List<String> queryTokens(String query) {
+        return tokenize(query).stream()
+                .distinct()
+                .limit(MAX_QUERY_TOKENS)
+                .toList();
+    }
+
+    /**
+     * Вес каждого слова фильма: сколько раз оно встречается, слово из названия весит {@value #NAME_WEIGHT}.
+     */
+    static Map<String, Integer> weights(String name, String description) {
+        Map<String, Integer> weights = new HashMap<>();
+        tokenize(name).forEach(token -> weights.merge(token, NAME_WEIGHT, Integer::sum));
+        tokenize(description).forEach(token -> weights.merge(token, 1, Integer::sum));
+        return Map.copyOf(weights);
+    }
+
+    /**
+     * Вес слова запроса в фильме: лучший среди слов фильма с этим префиксом, 0 — если таких нет.
+     */
+    static int weight(Map<String, Integer> filmWeights, String prefix) {
+        int best = 0;
+        for (Map.Entry<String, Integer> entry : filmWeights.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                best = Math.max(best, entry.getValue() * (entry.getKey().equals(prefix) ? 2 : 1));
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Лучшие {@code count} фильмов по оценке, при равенстве — меньший id выше.
+     *
+     * @param relevance id фильма -> сумма весов слов запроса
+     */
+    static List<Long> rank(Map<Long, Integer> relevance, LongToIntFunction likes, int count) {
+        return relevance.entrySet().stream()
+                .map(entry -> new Hit(entry.getKey(),
+                        entry.getValue() * (1 + Math.log1p(likes.applyAsInt(entry.getKey())))))
+                .sorted(Comparator.comparingDouble(Hit::score).reversed().thenComparingLong(Hit::filmId))
+                .limit(count)
+                .map(Hit::filmId)
+                .toList();
+    }
+
+    /**
+     * Слова текста в нижнем регистре: буквы и цифры, ё приводится к е.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).replace('ё', 'е').split("[^\\p{L}\\p{N}]+"))
+                .filter(token -> !token.isEmpty())
+                .toList();
+    }
+
+    // Сколько фильмов в списках слов с этим префиксом (с повторами)
+    private long estimate(String prefix) {
+        long total = 0;
+        for (String term : expansions(prefix)) {
+            SortedLongSet filmIds = postings.get(term);
+            total += filmIds == null ? 0 : filmIds.size();
+        }
+        return total;
+    }
+
+    private List<String> expansions(String prefix) {
+        List<String> expansions = new ArrayList<>();
+        for (String term : terms.tailSet(prefix, true)) {
+            if (expansions.size() == MAX_EXPANSIONS || !term.startsWith(prefix)) {
+                break;
+            }
+            expansions.add(term);
+        }
+        return expansions;
+    }
+
+    // Лучший вес среди слов словаря, начинающихся с префикса, для каждого найденного фильма
+    private Map<Long, Integer> match(String prefix) {
+        Map<Long, Integer> found = new HashMap<>();
+        for (String term : expansions(prefix)) {
+            SortedLongSet filmIds = postings.get(term);
+            if (filmIds == null) {
+                continue;
+            }
+            int factor = term.equals(prefix) ? 2 : 1;
+            for (long filmId : filmIds.toLongArray()) {
+                Map<String, Integer> filmWeights = weights.get(filmId);
+                Integer weight = filmWeights == null ? null : filmWeights.get(term);
+                if (weight != null) {
+                    found.merge(filmId, weight * factor, Math::max);
+                }
+            }
+        }
+        return found;
+    }
+
+    // Словарь меняется внутри compute, чтобы слово и его список фильмов появлялись и исчезали вместе
+    private void addPosting(String token, long filmId) {
+        postings.compute(token, (key, filmIds) -> {
+            if (filmIds == null) {
+                filmIds = new SortedLongSet();
+                terms.add(key);
+            }
+            filmIds.add(filmId);
+            return filmIds;
+        });
+    }
+
+    private void removePosting(String token, long filmId) {
+        postings.computeIfPresent(token, (key, filmIds) -> {
+            filmIds.remove(filmId);
+            if (filmIds.isEmpty()) {
+                terms.remove(key);
+                return null;
+            }
+            return filmIds;
+        });
+    }
+
+    private record Hit(long filmId, double score) {
+    }
+}
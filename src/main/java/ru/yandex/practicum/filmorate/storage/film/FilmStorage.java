@@ -1,26 +1,68 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface FilmStorage {
 
     Collection<Film> findAllFilms();
 
+    List<Film> findFilmsPage(Long cursor, int limit);
+
     Film saveFilm(Film film);
 
     Film putFilm(Film film);
 
     Optional<Film> findFilmById(Long filmId);
 
+    // Краткие представления не читают лайки: число лайков хранится вместе с фильмом
+    Optional<FilmSummary> findFilmSummaryById(Long filmId);
+
+    List<FilmSummary> findFilmSummariesPage(Long cursor, int limit);
+
+    /**
+     * @param filter условия отбора или {@code null}, если их нет
+     */
+    List<FilmSummary> findMostPopularFilmSummaries(int count, FilmFilter filter);
+
+    /**
+     * Id лайкнувших фильм пользователей больше {@code cursor}, по возрастанию, не больше {@code limit}.
+     */
+    List<Long> findLikesPage(Long filmId, Long cursor, int limit);
+
     void putLike(Film film, Long userId);
 
     void removeLike(Film film, Long userId);
 
+    void putLikes(Collection<FilmLike> likes);
+
+    void removeLikes(Collection<FilmLike> likes);
+
     List<Film> findMostPopularFilms(int count);
 
+    List<Film> findMostPopularFilms(int count, FilmFilter filter);
+
+    List<Film> findTrendingFilms(Duration window, int count);
+
+    List<Film> searchFilms(String query, int count);
+
+    List<Film> findRecommendedFilms(Long userId, int count);
+
+    void precomputeRecommendations();
+
     boolean hasFilmsId(Long filmId);
+
+    Set<Long> findExistingFilmIds(Collection<Long> filmIds);
+
+    long countFilms();
+
+    long countLikes();
 }
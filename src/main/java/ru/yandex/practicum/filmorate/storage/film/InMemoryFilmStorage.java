@@ -1,94 +1,497 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.config.StorageConfig;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.storage.AtomicIdGenerator;
+import ru.yandex.practicum.filmorate.storage.IdGenerator;
+import ru.yandex.practicum.filmorate.storage.SortedLongSet;
+import ru.yandex.practicum.filmorate.storage.StripedLocks;
+import ru.yandex.practicum.filmorate.storage.journal.Journal;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 @Slf4j
 @Component
+@Qualifier(StorageConfig.FILM_BACKEND)
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "memory", matchIfMissing = true)
 public class InMemoryFilmStorage implements FilmStorage {
 
-    private final Map<Long, Film> films = new HashMap<>();
+    private static final int RANKING_SCAN_PER_RESULT = 20;
+
+    private final NavigableMap<Long, Film> films = new ConcurrentSkipListMap<>();
+    private final FilmPopularityIndex popularityIndex = new FilmPopularityIndex();
+    // Обратный индекс лайков: пользователь → фильмы, которые он лайкнул
+    private final Map<Long, SortedLongSet> filmsByUser = new ConcurrentHashMap<>();
+    private final FilmRecommender recommender = new FilmRecommender(this::filmsLikedBy, this::likesOf);
+    private final FilmRangeIndex rangeIndex = new FilmRangeIndex();
+    private final FilmSearchIndex searchIndex = new FilmSearchIndex(filmId -> likesOf(filmId).size());
+    private final StripedLocks locks = new StripedLocks();
+    private final TrendingIndex trendingIndex;
+    // Время лайков, поставленных после запуска, — как created_at в таблице лайков
+    private final Map<FilmLike, Long> likedAt = new ConcurrentHashMap<>();
+    private final Clock clock;
+    private final IdGenerator idGenerator;
+    private volatile Journal journal = Journal.NONE;
+    private PendingLikes pendingLikes = new PendingLikes();
+
+    public InMemoryFilmStorage() {
+        this(new AtomicIdGenerator());
+    }
+
+    public InMemoryFilmStorage(IdGenerator idGenerator) {
+        this(idGenerator, Clock.systemUTC());
+    }
+
+    public InMemoryFilmStorage(IdGenerator idGenerator, Clock clock) {
+        this.idGenerator = idGenerator;
+        this.clock = clock;
+        this.trendingIndex = new TrendingIndex(clock);
+    }
 
     @Override
     public Collection<Film> findAllFilms() {
         return films.values();
     }
 
+    @Override
+    public List<Film> findFilmsPage(Long cursor, int limit) {
+        return films.tailMap(cursor == null ? 0L : cursor, false).values().stream()
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Подключает журнал: дальше каждое изменение записывается в него до ответа вызывающему.
+     */
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Выполняет действие, пока ни одно изменение не идёт. Изменение пишется в журнал и применяется
+     * в памяти под одной блокировкой, поэтому всё, что уже в журнале, к этому моменту видно в памяти.
+     */
+    public <T> T withWritesPaused(Supplier<T> action) {
+        return locks.withAllLocks(action);
+    }
+
+    /**
+     * Применяет запись журнала или снимка при восстановлении, до начала обработки запросов.
+     * Id сохраняются, в журнал ничего не пишется, лайки из журнала не попадают в окна популярности за период.
+     * Лайки копятся и вместе с рейтингом и индексом пользователь → фильмы применяются
+     * в {@link #finishRestore()}.
+     */
+    public void restore(JournalRecord record) {
+        switch (record) {
+            case JournalRecord.FilmSaved(Film film) -> {
+                idGenerator.advanceTo(film.getId());
+                // Нечёткий снимок мог уже содержать более поздние лайки — они применятся заново из журнала
+                pendingLikes.reset(film.getId());
+                Film existing = films.get(film.getId());
+                if (existing == null) {
+                    films.put(film.getId(), film);
+                    rangeIndex.index(film);
+                    searchIndex.index(film);
+                } else {
+                    update(existing, film);
+                    existing.setLikes(film.getLikes());
+                }
+            }
+            case JournalRecord.FilmUpdated(Film film) -> findFilmById(film.getId())
+                    .ifPresent(existing -> update(existing, film));
+            case JournalRecord.LikeAdded(long filmId, long userId) -> pendingLikes.add(filmId, userId, true);
+            case JournalRecord.LikeRemoved(long filmId, long userId) -> pendingLikes.add(filmId, userId, false);
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Применяет накопленные лайки и строит по восстановленным фильмам рейтинг и индекс пользователь → фильмы.
+     */
+    public void finishRestore() {
+        for (long filmId : pendingLikes.filmIds()) {
+            Film film = films.get(filmId);
+            if (film != null) {
+                film.setLikes(SortedLongSet.ofSorted(pendingLikes.apply(filmId, likesOf(filmId).toLongArray())));
+            }
+        }
+        pendingLikes = new PendingLikes();
+        filmsByUser.clear();
+        long totalLikes = 0;
+        long maxUserId = 0;
+        for (Film film : films.values()) {
+            long[] likes = likesOf(film.getId()).toLongArray();
+            totalLikes += likes.length;
+            maxUserId = likes.length == 0 ? maxUserId : Math.max(maxUserId, likes[likes.length - 1]);
+            popularityIndex.update(film.getId(), likes.length);
+        }
+        if (maxUserId <= Math.max(totalLikes, 1 << 20)) {
+            rebuildFilmsByDenseUserIds((int) maxUserId);
+        } else {
+            films.values().forEach(film -> film.getLikes().forEach(userId -> indexLike(film.getId(), userId)));
+        }
+    }
+
     @Override
     public Film saveFilm(Film film) {
-        film.setId(getNextId());
-        films.put(film.getId(), film);
-        log.info("Фильм добавлен: {}", film);
+        film.setId(idGenerator.nextId());
+        film.setLikes(SortedLongSet.of(film.getLikes()));
+        // Запись о фильме уходит в журнал раньше, чем лайки к нему: они ждут блокировку фильма
+        long ticket = locks.withLock(film.getId(), () -> {
+            long appended = journal.append(new JournalRecord.FilmSaved(film));
+            insert(film);
+            return appended;
+        });
+        journal.awaitDurable(ticket);
+        log.info("Фильм добавлен: id = {}", film.getId());
         return film;
     }
 
     @Override
     public Film putFilm(Film newFilm) {
         Film oldFilm = films.get(newFilm.getId());
-        if (newFilm.getName() != null) {
-            oldFilm.setName(newFilm.getName());
-        }
-        if (newFilm.getDescription() != null) {
-            oldFilm.setDescription(newFilm.getDescription());
-        }
-        if (newFilm.getReleaseDate() != null) {
-            oldFilm.setReleaseDate(newFilm.getReleaseDate());
-        }
-        if (newFilm.getDuration() != null) {
-            oldFilm.setDuration(newFilm.getDuration());
-        }
-        log.info("Фильм обновлён: {}", oldFilm);
+        long ticket = locks.withLock(oldFilm.getId(), () -> {
+            Film updated = merge(oldFilm, newFilm);
+            long appended = journal.append(new JournalRecord.FilmUpdated(updated));
+            update(oldFilm, updated);
+            return appended;
+        });
+        journal.awaitDurable(ticket);
+        log.info("Фильм обновлён: id = {}", oldFilm.getId());
         return oldFilm;
     }
 
     @Override
     public void putLike(Film film, Long userId) {
-        if (film.getLikes() == null) {
-            film.setLikes(new HashSet<>());
-        }
-        film.getLikes().add(userId);
+        long ticket = locks.withLock(film.getId(), () -> {
+            if (film.getLikes().contains(userId)) {
+                return 0L;
+            }
+            long appended = journal.append(new JournalRecord.LikeAdded(film.getId(), userId));
+            changeLike(film, userId, true);
+            popularityIndex.update(film.getId(), film.getLikes().size());
+            return appended;
+        });
+        journal.awaitDurable(ticket);
     }
 
     @Override
     public void removeLike(Film film, Long userId) {
-        if (film.getLikes() != null) {
-            film.getLikes().remove(userId);
-        }
+        long ticket = locks.withLock(film.getId(), () -> {
+            if (!film.getLikes().contains(userId)) {
+                return 0L;
+            }
+            long appended = journal.append(new JournalRecord.LikeRemoved(film.getId(), userId));
+            changeLike(film, userId, false);
+            popularityIndex.update(film.getId(), film.getLikes().size());
+            return appended;
+        });
+        journal.awaitDurable(ticket);
+    }
+
+    @Override
+    public void putLikes(Collection<FilmLike> likes) {
+        applyLikes(likes, true);
+    }
+
+    @Override
+    public void removeLikes(Collection<FilmLike> likes) {
+        applyLikes(likes, false);
     }
 
     @Override
     public List<Film> findMostPopularFilms(int amountOfFilms) {
-        return findAllFilms().stream()
-                .sorted((film1, film2) -> {
-                    int likes1 = film1.getLikes() != null ? film1.getLikes().size() : 0;
-                    int likes2 = film2.getLikes() != null ? film2.getLikes().size() : 0;
-                    return Integer.compare(likes2, likes1);
-                })
-                .limit(amountOfFilms)
+        return popularityIndex.top(amountOfFilms).stream()
+                .map(films::get)
+                .collect(Collectors.toList());
+    }
+
+    // Частый фильтр дешевле проверить, идя по рейтингу; редкий — прочитав диапазон индекса
+    // и выбрав из него самые популярные
+    @Override
+    public List<Film> findMostPopularFilms(int count, FilmFilter filter) {
+        List<Long> filmIds = popularityIndex.top(count, filmId -> filter.matches(films.get(filmId)),
+                        (int) Math.min((long) Math.max(count, 0) * RANKING_SCAN_PER_RESULT, Integer.MAX_VALUE))
+                .orElseGet(() -> topByLikes(rangeIndex.scan(filter).filter(filter::matches), count));
+        return filmIds.stream()
+                .map(films::get)
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public List<Film> findTrendingFilms(Duration window, int count) {
+        return trendingIndex.top(window, count).stream()
+                .map(films::get)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Film> searchFilms(String query, int count) {
+        return searchIndex.search(query, count).stream()
+                .map(films::get)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Film> findRecommendedFilms(Long userId, int count) {
+        long[] filmIds = recommender.recommend(userId, count);
+        List<Film> recommended = new ArrayList<>(filmIds.length);
+        for (long filmId : filmIds) {
+            Film film = films.get(filmId);
+            if (film != null) {
+                recommended.add(film);
+            }
+        }
+        return recommended;
+    }
+
+    @Override
+    public void precomputeRecommendations() {
+        recommender.precompute(filmsByUser.keySet().stream()
+                .mapToLong(Long::longValue)
+                .toArray());
+    }
+
     @Override
     public Optional<Film> findFilmById(Long filmId) {
         return Optional.ofNullable(films.get(filmId));
     }
 
+    @Override
+    public Optional<FilmSummary> findFilmSummaryById(Long filmId) {
+        return findFilmById(filmId).map(FilmSummary::of);
+    }
+
+    @Override
+    public List<FilmSummary> findFilmSummariesPage(Long cursor, int limit) {
+        return films.tailMap(cursor == null ? 0L : cursor, false).values().stream()
+                .limit(limit)
+                .map(FilmSummary::of)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<FilmSummary> findMostPopularFilmSummaries(int count, FilmFilter filter) {
+        List<Film> popular = filter == null ? findMostPopularFilms(count) : findMostPopularFilms(count, filter);
+        return popular.stream()
+                .map(FilmSummary::of)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Long> findLikesPage(Long filmId, Long cursor, int limit) {
+        return Arrays.stream(likesOf(filmId).page(cursor == null ? 0L : cursor, limit))
+                .boxed()
+                .collect(Collectors.toList());
+    }
+
     @Override
     public boolean hasFilmsId(Long filmId) {
         return films.containsKey(filmId);
     }
 
-    private long getNextId() {
-        long currentMaxId = films.keySet()
-                .stream()
-                .mapToLong(id -> id)
-                .max()
-                .orElse(0);
-        return ++currentMaxId;
+    @Override
+    public Set<Long> findExistingFilmIds(Collection<Long> filmIds) {
+        return filmIds.stream()
+                .filter(films::containsKey)
+                .collect(Collectors.toSet());
+    }
+
+    // Счётчики для метрик обходят хранилище: их читают раз в период сбора, а не на каждое изменение
+    @Override
+    public long countFilms() {
+        return films.size();
+    }
+
+    @Override
+    public long countLikes() {
+        long likes = 0;
+        for (Film film : films.values()) {
+            likes += film.getLikes().size();
+        }
+        return likes;
+    }
+
+    // Лайки группируются по фильму: одна блокировка и одно обновление рейтинга на фильм.
+    // Запись на диск ожидается один раз на весь пакет
+    private void applyLikes(Collection<FilmLike> likes, boolean add) {
+        Map<Long, List<Long>> usersByFilm = likes.stream()
+                .collect(Collectors.groupingBy(FilmLike::filmId,
+                        Collectors.mapping(FilmLike::userId, Collectors.toList())));
+        long lastTicket = 0;
+        for (Map.Entry<Long, List<Long>> entry : usersByFilm.entrySet()) {
+            long filmId = entry.getKey();
+            Film film = films.get(filmId);
+            if (film == null) {
+                continue;
+            }
+            long ticket = locks.withLock(filmId, () -> {
+                boolean changed = false;
+                long appended = 0;
+                // Если журнал откажет посреди пакета, общий рейтинг всё равно учтёт уже применённые лайки
+                try {
+                    for (Long userId : entry.getValue()) {
+                        if (film.getLikes().contains(userId) == add) {
+                            continue;
+                        }
+                        appended = journal.append(add
+                                ? new JournalRecord.LikeAdded(filmId, userId)
+                                : new JournalRecord.LikeRemoved(filmId, userId));
+                        changeLike(film, userId, add);
+                        changed = true;
+                    }
+                } finally {
+                    if (changed) {
+                        popularityIndex.update(filmId, film.getLikes().size());
+                    }
+                }
+                return appended;
+            });
+            lastTicket = Math.max(lastTicket, ticket);
+        }
+        journal.awaitDurable(lastTicket);
+    }
+
+    private void insert(Film film) {
+        films.put(film.getId(), film);
+        film.getLikes().forEach(userId -> indexLike(film.getId(), userId));
+        popularityIndex.update(film.getId(), film.getLikes().size());
+        rangeIndex.index(film);
+        searchIndex.index(film);
+    }
+
+    // Поля фильма после изменения: то, что пришло в запросе, поверх текущих значений
+    private static Film merge(Film oldFilm, Film newFilm) {
+        return oldFilm.toBuilder()
+                .name(newFilm.getName() != null ? newFilm.getName() : oldFilm.getName())
+                .description(newFilm.getDescription() != null ? newFilm.getDescription() : oldFilm.getDescription())
+                .releaseDate(newFilm.getReleaseDate() != null ? newFilm.getReleaseDate() : oldFilm.getReleaseDate())
+                .duration(newFilm.getDuration() != null ? newFilm.getDuration() : oldFilm.getDuration())
+                .build();
+    }
+
+    private void update(Film oldFilm, Film newFilm) {
+        if (newFilm.getName() != null) {
+            oldFilm.setName(newFilm.getName());
+        }
+        if (newFilm.getDescription() != null) {
+            oldFilm.setDescription(newFilm.getDescription());
+        }
+        if (newFilm.getReleaseDate() != null) {
+            oldFilm.setReleaseDate(newFilm.getReleaseDate());
+        }
+        if (newFilm.getDuration() != null) {
+            oldFilm.setDuration(newFilm.getDuration());
+        }
+        rangeIndex.index(oldFilm);
+        searchIndex.index(oldFilm);
+    }
+
+    // Лайк без сохранённого времени восстановлен из снимка или журнала и в окна трендов не входил
+    private void changeLike(Film film, long userId, boolean add) {
+        FilmLike like = new FilmLike(film.getId(), userId);
+        if (add) {
+            film.getLikes().add(userId);
+            indexLike(film.getId(), userId);
+            long now = clock.millis();
+            likedAt.put(like, now);
+            trendingIndex.added(film.getId(), now);
+        } else {
+            film.getLikes().remove(userId);
+            unindexLike(film.getId(), userId);
+            Long likedAtMillis = likedAt.remove(like);
+            if (likedAtMillis != null) {
+                trendingIndex.removed(film.getId(), likedAtMillis);
+            }
+        }
+    }
+
+    // Куча на count элементов вместо сортировки всего диапазона
+    private List<Long> topByLikes(Stream<Film> candidates, int count) {
+        if (count <= 0) {
+            return new ArrayList<>();
+        }
+        Comparator<Film> order = Comparator.comparingInt((Film film) -> film.getLikes().size()).reversed()
+                .thenComparingLong(Film::getId);
+        PriorityQueue<Film> top = new PriorityQueue<>(count + 1, order.reversed());
+        candidates.forEach(film -> {
+            top.add(film);
+            if (top.size() > count) {
+                top.poll();
+            }
+        });
+        List<Film> sorted = new ArrayList<>(top);
+        sorted.sort(order);
+        return sorted.stream()
+                .map(Film::getId)
+                .toList();
+    }
+
+    // Id пользователей плотные: списки собираются в массивах по id за два прохода без упаковки.
+    // Фильмы обходятся по возрастанию id, поэтому списки пользователей получаются отсортированными
+    private void rebuildFilmsByDenseUserIds(int maxUserId) {
+        int[] counts = new int[maxUserId + 1];
+        films.values().forEach(film -> {
+            for (long userId : likesOf(film.getId()).toLongArray()) {
+                counts[(int) userId]++;
+            }
+        });
+        long[][] liked = new long[maxUserId + 1][];
+        for (Film film : films.values()) {
+            for (long userId : likesOf(film.getId()).toLongArray()) {
+                int user = (int) userId;
+                if (liked[user] == null) {
+                    liked[user] = new long[counts[user]];
+                    counts[user] = 0;
+                }
+                liked[user][counts[user]++] = film.getId();
+            }
+        }
+        for (int userId = 1; userId <= maxUserId; userId++) {
+            if (liked[userId] != null) {
+                filmsByUser.put((long) userId, SortedLongSet.ofSorted(liked[userId]));
+            }
+        }
+    }
+
+    private void indexLike(long filmId, long userId) {
+        filmsByUser.computeIfAbsent(userId, id -> new SortedLongSet()).add(filmId);
+    }
+
+    private void unindexLike(long filmId, long userId) {
+        SortedLongSet liked = filmsByUser.get(userId);
+        if (liked != null) {
+            liked.remove(filmId);
+        }
+    }
+
+    private SortedLongSet filmsLikedBy(long userId) {
+        SortedLongSet liked = filmsByUser.get(userId);
+        return liked == null ? new SortedLongSet() : liked;
+    }
+
+    private SortedLongSet likesOf(long filmId) {
+        Film film = films.get(filmId);
+        if (film == null) {
+            return new SortedLongSet();
+        }
+        return film.getLikes() instanceof SortedLongSet likes ? likes : SortedLongSet.of(film.getLikes());
     }
 }
@@ -0,0 +1,295 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.storage.OperationTimers;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Замеряет время каждого метода хранилища фильмов (таймер {@code filmorate.storage}) и публикует
+ * число фильмов и лайков (gauge {@code filmorate.films} и {@code filmorate.likes}, считаются при сборе метрик).
+ */
+public class MeteredFilmStorage implements FilmStorage, AutoCloseable {
+
+    private final FilmStorage delegate;
+    private final OperationTimers<Operation> timers;
+
+    public MeteredFilmStorage(FilmStorage delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.timers = new OperationTimers<>("filmorate.storage", "films", Operation.class, registry);
+        Gauge.builder("filmorate.films", this, FilmStorage::countFilms).register(registry);
+        Gauge.builder("filmorate.likes", this, FilmStorage::countLikes).register(registry);
+    }
+
+    @Override
+    public Collection<Film> findAllFilms() {
+        long start = System.nanoTime();
+        try {
+            return delegate.findAllFilms();
+        } finally {
+            timers.record(Operation.FIND_ALL_FILMS, start);
+        }
+    }
+
+    @Override
+    public List<Film> findFilmsPage(Long cursor, int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findFilmsPage(cursor, limit);
+        } finally {
+            timers.record(Operation.FIND_FILMS_PAGE, start);
+        }
+    }
+
+    @Override
+    public Film saveFilm(Film film) {
+        long start = System.nanoTime();
+        try {
+            return delegate.saveFilm(film);
+        } finally {
+            timers.record(Operation.SAVE_FILM, start);
+        }
+    }
+
+    @Override
+    public Film putFilm(Film film) {
+        long start = System.nanoTime();
+        try {
+            return delegate.putFilm(film);
+        } finally {
+            timers.record(Operation.PUT_FILM, start);
+        }
+    }
+
+    @Override
+    public Optional<Film> findFilmById(Long filmId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findFilmById(filmId);
+        } finally {
+            timers.record(Operation.FIND_FILM_BY_ID, start);
+        }
+    }
+
+    @Override
+    public Optional<FilmSummary> findFilmSummaryById(Long filmId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findFilmSummaryById(filmId);
+        } finally {
+            timers.record(Operation.FIND_FILM_SUMMARY_BY_ID, start);
+        }
+    }
+
+    @Override
+    public List<FilmSummary> findFilmSummariesPage(Long cursor, int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findFilmSummariesPage(cursor, limit);
+        } finally {
+            timers.record(Operation.FIND_FILM_SUMMARIES_PAGE, start);
+        }
+    }
+
+    @Override
+    public List<FilmSummary> findMostPopularFilmSummaries(int count, FilmFilter filter) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findMostPopularFilmSummaries(count, filter);
+        } finally {
+            timers.record(Operation.FIND_MOST_POPULAR_FILM_SUMMARIES, start);
+        }
+    }
+
+    @Override
+    public List<Long> findLikesPage(Long filmId, Long cursor, int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findLikesPage(filmId, cursor, limit);
+        } finally {
+            timers.record(Operation.FIND_LIKES_PAGE, start);
+        }
+    }
+
+    @Override
+    public void putLike(Film film, Long userId) {
+        long start = System.nanoTime();
+        try {
+            delegate.putLike(film, userId);
+        } finally {
+            timers.record(Operation.PUT_LIKE, start);
+        }
+    }
+
+    @Override
+    public void removeLike(Film film, Long userId) {
+        long start = System.nanoTime();
+        try {
+            delegate.removeLike(film, userId);
+        } finally {
+            timers.record(Operation.REMOVE_LIKE, start);
+        }
+    }
+
+    @Override
+    public void putLikes(Collection<FilmLike> likes) {
+        long start = System.nanoTime();
+        try {
+            delegate.putLikes(likes);
+        } finally {
+            timers.record(Operation.PUT_LIKES, start);
+        }
+    }
+
+    @Override
+    public void removeLikes(Collection<FilmLike> likes) {
+        long start = System.nanoTime();
+        try {
+            delegate.removeLikes(likes);
+        } finally {
+            timers.record(Operation.REMOVE_LIKES, start);
+        }
+    }
+
+    @Override
+    public List<Film> findMostPopularFilms(int count) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findMostPopularFilms(count);
+        } finally {
+            timers.record(Operation.FIND_MOST_POPULAR_FILMS, start);
+        }
+    }
+
+    @Override
+    public List<Film> findMostPopularFilms(int count, FilmFilter filter) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findMostPopularFilms(count, filter);
+        } finally {
+            timers.record(Operation.FIND_MOST_POPULAR_FILMS_FILTERED, start);
+        }
+    }
+
+    @Override
+    public List<Film> findTrendingFilms(Duration window, int count) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findTrendingFilms(window, count);
+        } finally {
+            timers.record(Operation.FIND_TRENDING_FILMS, start);
+        }
+    }
+
+    @Override
+    public List<Film> searchFilms(String query, int count) {
+        long start = System.nanoTime();
+        try {
+            return delegate.searchFilms(query, count);
+        } finally {
+            timers.record(Operation.SEARCH_FILMS, start);
+        }
+    }
+
+    @Override
+    public List<Film> findRecommendedFilms(Long userId, int count) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findRecommendedFilms(userId, count);
+        } finally {
+            timers.record(Operation.FIND_RECOMMENDED_FILMS, start);
+        }
+    }
+
+    @Override
+    public void precomputeRecommendations() {
+        long start = System.nanoTime();
+        try {
+            delegate.precomputeRecommendations();
+        } finally {
+            timers.record(Operation.PRECOMPUTE_RECOMMENDATIONS, start);
+        }
+    }
+
+    @Override
+    public boolean hasFilmsId(Long filmId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.hasFilmsId(filmId);
+        } finally {
+            timers.record(Operation.HAS_FILMS_ID, start);
+        }
+    }
+
+    @Override
+    public Set<Long> findExistingFilmIds(Collection<Long> filmIds) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findExistingFilmIds(filmIds);
+        } finally {
+            timers.record(Operation.FIND_EXISTING_FILM_IDS, start);
+        }
+    }
+
+    @Override
+    public long countFilms() {
+        long start = System.nanoTime();
+        try {
+            return delegate.countFilms();
+        } finally {
+            timers.record(Operation.COUNT_FILMS, start);
+        }
+    }
+
+    @Override
+    public long countLikes() {
+        long start = System.nanoTime();
+        try {
+            return delegate.countLikes();
+        } finally {
+            timers.record(Operation.COUNT_LIKES, start);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private enum Operation {
+        FIND_ALL_FILMS,
+        FIND_FILMS_PAGE,
+        SAVE_FILM,
+        PUT_FILM,
+        FIND_FILM_BY_ID,
+        FIND_FILM_SUMMARY_BY_ID,
+        FIND_FILM_SUMMARIES_PAGE,
+        FIND_MOST_POPULAR_FILM_SUMMARIES,
+        FIND_LIKES_PAGE,
+        PUT_LIKE,
+        REMOVE_LIKE,
+        PUT_LIKES,
+        REMOVE_LIKES,
+        FIND_MOST_POPULAR_FILMS,
+        FIND_MOST_POPULAR_FILMS_FILTERED,
+        FIND_TRENDING_FILMS,
+        SEARCH_FILMS,
+        FIND_RECOMMENDED_FILMS,
+        PRECOMPUTE_RECOMMENDATIONS,
+        HAS_FILMS_ID,
+        FIND_EXISTING_FILM_IDS,
+        COUNT_FILMS,
+        COUNT_LIKES
+    }
+}
@@ -0,0 +1,213 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import java.util.Arrays;
+
+/**
+ * Лайки из журнала, накопленные при восстановлении и применяемые к фильму одним слиянием.
+ * Вставка по одному лайку в отсортированный массив популярного фильма сдвигает весь массив,
+ * поэтому проигрывание миллионов лайков по одному занимает минуты.
+ * <p>
+ * Для каждого фильма хранятся события в порядке журнала: {@code userId << 1 | 1} — лайк поставлен,
+ * {@code userId << 1} — снят. Для пары фильм-пользователь действует последнее событие.
+ * Используется из одного потока восстановления. Фильмы ищутся в таблице с открытой адресацией
+ * без упаковки id: при проигрывании журнала это делается на каждый лайк.
+ */
+class PendingLikes {
+
+    private static final int INITIAL_CAPACITY = 4;
+    private static final int INITIAL_FILMS = 1 << 10;
+
+    // Пустая ячейка — id 0, генераторы id начинают с 1
+    private long[] filmIds = new long[INITIAL_FILMS];
+    private Events[] eventsByFilm = new Events[INITIAL_FILMS];
+    private int size;
+
+    void add(long filmId, long userId, boolean liked) {
+        int index = slot(filmId);
+        if (eventsByFilm[index] == null) {
+            eventsByFilm[index] = new Events();
+        }
+        eventsByFilm[index].add(userId << 1 | (liked ? 1 : 0));
+    }
+
+    /**
+     * Забывает события фильма: запись с фильмом целиком задаёт лайки заново.
+     */
+    void reset(long filmId) {
+        Events events = find(filmId);
+        if (events != null) {
+            events.size = 0;
+        }
+    }
+
+    /**
+     * Id фильмов, для которых есть события.
+     */
+    long[] filmIds() {
+        long[] ids = new long[size];
+        int count = 0;
+        for (long filmId : filmIds) {
+            if (filmId != 0) {
+                ids[count++] = filmId;
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Отсортированные лайки фильма после применения его событий к {@code likes}.
+     */
+    long[] apply(long filmId, long[] likes) {
+        Events events = find(filmId);
+        if (events == null || events.size == 0) {
+            return likes;
+        }
+        long[] sorted = Arrays.copyOf(events.values, events.size);
+        Arrays.sort(sorted);
+        // После сортировки события одного пользователя стоят рядом. Если все они одинаковы, итог ясен сразу;
+        // если среди них есть и лайк, и снятие, итог определяет последнее по журналу — такие пользователи
+        // разбираются отдельным проходом
+        long[] added = new long[sorted.length];
+        long[] removed = new long[sorted.length];
+        long[] conflicts = new long[sorted.length];
+        int addedCount = 0;
+        int removedCount = 0;
+        int conflictCount = 0;
+        for (int i = 0; i < sorted.length; ) {
+            long userId = sorted[i] >>> 1;
+            int end = i + 1;
+            boolean mixed = false;
+            while (end < sorted.length && sorted[end] >>> 1 == userId) {
+                mixed |= sorted[end] != sorted[i];
+                end++;
+            }
+            if (mixed) {
+                conflicts[conflictCount++] = userId;
+            } else if ((sorted[i] & 1) == 1) {
+                added[addedCount++] = userId;
+            } else {
+                removed[removedCount++] = userId;
+            }
+            i = end;
+        }
+        if (conflictCount > 0) {
+            long[] last = lastEvents(events, Arrays.copyOf(conflicts, conflictCount));
+            for (long event : last) {
+                if ((event & 1) == 1) {
+                    added[addedCount++] = event >>> 1;
+                } else {
+                    removed[removedCount++] = event >>> 1;
+                }
+            }
+            Arrays.sort(added, 0, addedCount);
+            Arrays.sort(removed, 0, removedCount);
+        }
+        return merge(likes, added, addedCount, removed, removedCount);
+    }
+
+    private Events find(long filmId) {
+        int mask = filmIds.length - 1;
+        int index = mix(filmId) & mask;
+        while (filmIds[index] != 0) {
+            if (filmIds[index] == filmId) {
+                return eventsByFilm[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    private int slot(long filmId) {
+        if (size * 2 >= filmIds.length) {
+            grow();
+        }
+        int mask = filmIds.length - 1;
+        int index = mix(filmId) & mask;
+        while (filmIds[index] != 0 && filmIds[index] != filmId) {
+            index = (index + 1) & mask;
+        }
+        if (filmIds[index] == 0) {
+            filmIds[index] = filmId;
+            size++;
+        }
+        return index;
+    }
+
+    private void grow() {
+        long[] oldIds = filmIds;
+        Events[] oldEvents = eventsByFilm;
+        filmIds = new long[oldIds.length << 1];
+        eventsByFilm = new Events[filmIds.length];
+        int mask = filmIds.length - 1;
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldIds[i] != 0) {
+                int index = mix(oldIds[i]) & mask;
+                while (filmIds[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                filmIds[index] = oldIds[i];
+                eventsByFilm[index] = oldEvents[i];
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    // Последнее событие каждого из отсортированных пользователей: один проход журнала с конца
+    private static long[] lastEvents(Events events, long[] userIds) {
+        long[] last = new long[userIds.length];
+        boolean[] found = new boolean[userIds.length];
+        int remaining = userIds.length;
+        for (int i = events.size - 1; i >= 0 && remaining > 0; i--) {
+            int index = Arrays.binarySearch(userIds, events.values[i] >>> 1);
+            if (index >= 0 && !found[index]) {
+                found[index] = true;
+                last[index] = events.values[i];
+                remaining--;
+            }
+        }
+        return last;
+    }
+
+    // (likes ∪ added) \ removed; все массивы отсортированы, added и removed не пересекаются
+    private static long[] merge(long[] likes, long[] added, int addedCount, long[] removed, int removedCount) {
+        long[] result = new long[likes.length + addedCount];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        int r = 0;
+        while (i < likes.length || j < addedCount) {
+            long next;
+            if (j == addedCount || i < likes.length && likes[i] < added[j]) {
+                next = likes[i++];
+            } else if (i == likes.length || added[j] < likes[i]) {
+                next = added[j++];
+            } else {
+                next = likes[i++];
+                j++;
+            }
+            while (r < removedCount && removed[r] < next) {
+                r++;
+            }
+            if (r == removedCount || removed[r] != next) {
+                result[count++] = next;
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    private static final class Events {
+        private long[] values = new long[INITIAL_CAPACITY];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size << 1);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Рейтинг фильмов по лайкам за последний период ({@link #WINDOWS}).
+ * Время делится на корзины по {@link #BUCKET}; кольцо корзин хранит число лайков каждого фильма
+ * в каждой корзине. У каждого окна есть сумма по его корзинам и свой {@link FilmPopularityIndex}:
+ * лайк прибавляется к сумме, а вышедшая из окна корзина вычитается целиком. Память зависит
+ * от числа корзин и фильмов в них, но не от числа лайков.
+ * <p>
+ * Окно считает действующие лайки, поставленные за период, — как {@code created_at} в таблице лайков.
+ * Время лайка хранит хранилище и передаёт его при снятии: лайк вычитается из своей корзины
+ * и только из окон, где она ещё есть; снятие лайка старше всех окон рейтинг не меняет.
+ * Окно покрывает текущую неполную корзину и предыдущие целые.
+ * <p>
+ * Изменения одного фильма должны идти под его блокировкой; смена корзины берёт блокировку на запись
+ * и не пересекается с изменениями.
+ */
+public class TrendingIndex {
+
+    public static final Duration BUCKET = Duration.ofMinutes(10);
+    public static final List<Duration> WINDOWS = List.of(Duration.ofHours(1), Duration.ofDays(1), Duration.ofDays(7));
+
+    private final Clock clock;
+    private final long bucketMillis = BUCKET.toMillis();
+    private final Bucket[] ring;
+    private final Map<Duration, Window> windows = new LinkedHashMap<>();
+    private final ReadWriteLock rotation = new ReentrantReadWriteLock();
+    private volatile long currentEpoch;
+
+    TrendingIndex(Clock clock) {
+        this.clock = clock;
+        for (Duration window : WINDOWS) {
+            windows.put(window, new Window((int) (window.toMillis() / bucketMillis)));
+        }
+        int ringSize = windows.values().stream()
+                .mapToInt(Window::buckets)
+                .max()
+                .orElse(1);
+        ring = new Bucket[ringSize];
+        currentEpoch = epoch();
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = new Bucket();
+        }
+        ring[index(currentEpoch)].epoch = currentEpoch;
+    }
+
+    void added(long filmId, long likedAtMillis) {
+        change(filmId, likedAtMillis, 1);
+    }
+
+    void removed(long filmId, long likedAtMillis) {
+        change(filmId, likedAtMillis, -1);
+    }
+
+    List<Long> top(Duration window, int count) {
+        advance(epoch());
+        Window found = windows.get(window);
+        if (found == null) {
+            throw new IllegalArgumentException("Неподдерживаемое окно: " + window);
+        }
+        return found.ranking.top(count);
+    }
+
+    private void advance(long epoch) {
+        if (epoch <= currentEpoch) {
+            return;
+        }
+        rotation.writeLock().lock();
+        try {
+            // После долгого простоя из окон вышло всё — корзины не перебираются по одной
+            if (epoch - currentEpoch >= ring.length) {
+                for (Bucket bucket : ring) {
+                    bucket.clear(Long.MIN_VALUE);
+                }
+                windows.values().forEach(Window::clear);
+                currentEpoch = epoch - 1;
+            }
+            while (currentEpoch < epoch) {
+                long next = currentEpoch + 1;
+                for (Window window : windows.values()) {
+                    Bucket leaving = ring[index(next - window.buckets())];
+                    if (leaving.epoch == next - window.buckets()) {
+                        leaving.likes.forEach((filmId, count) -> window.add(filmId, -count));
+                    }
+                }
+                ring[index(next)].clear(next);
+                currentEpoch = next;
+            }
+        } finally {
+            rotation.writeLock().unlock();
+        }
+    }
+
+    // Лайк меняет свою корзину и окна, где она ещё есть; корзины вне кольца уже ни на что не влияют
+    private void change(long filmId, long likedAtMillis, int delta) {
+        long epoch = likedAtMillis / bucketMillis;
+        advance(Math.max(epoch, epoch()));
+        rotation.readLock().lock();
+        try {
+            Bucket bucket = ring[index(epoch)];
+            if (bucket.epoch != epoch) {
+                return;
+            }
+            bucket.likes.merge(filmId, delta, TrendingIndex::sumOrRemove);
+            for (Window window : windows.values()) {
+                if (epoch > currentEpoch - window.buckets()) {
+                    window.add(filmId, delta);
+                }
+            }
+        } finally {
+            rotation.readLock().unlock();
+        }
+    }
+
+    private long epoch() {
+        return clock.millis() / bucketMillis;
+    }
+
+    private int index(long epoch) {
+        return (int) Math.floorMod(epoch, (long) ring.length);
+    }
+
+    private static Integer sumOrRemove(Integer count, Integer delta) {
+        int sum = count + delta;
+        return sum == 0 ? null : sum;
+    }
+
+    private static final class Bucket {
+        // Фильм -> число лайков, поставленных в этой корзине
+        private final Map<Long, Integer> likes = new ConcurrentHashMap<>();
+        private long epoch = Long.MIN_VALUE;
+
+        void clear(long newEpoch) {
+            likes.clear();
+            epoch = newEpoch;
+        }
+    }
+
+    private record Window(int buckets, Map<Long, Integer> sums, FilmPopularityIndex ranking) {
+
+        Window(int buckets) {
+            this(buckets, new ConcurrentHashMap<>(), new FilmPopularityIndex());
+        }
+
+        void add(long filmId, int delta) {
+            Integer sum = sums.merge(filmId, delta, TrendingIndex::sumOrRemove);
+            if (sum == null || sum <= 0) {
+                ranking.remove(filmId);
+            } else {
+                ranking.update(filmId, sum);
+            }
+        }
+
+        void clear() {
+            sums.keySet().forEach(ranking::remove);
+            sums.clear();
+        }
+    }
+}
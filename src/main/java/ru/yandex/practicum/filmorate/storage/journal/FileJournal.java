@@ -0,0 +1,271 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.config.PersistenceProperties.Durability;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Журнал в файлах-сегментах {@code journal-<номер>.log} с групповой фиксацией.
+ * <p>
+ * Записи кодируются в буфер в памяти под короткой блокировкой. Отдельный поток меняет буфер на пустой,
+ * пишет накопленное одним вызовом и делает один fsync на всю пачку. Пока идёт fsync, следующие
+ * записи копятся во втором буфере, поэтому чем больше нагрузка, тем больше записей на один fsync.
+ * <p>
+ * {@link #rotate()} закрывает текущий сегмент и открывает следующий: всё, что добавлено до вызова,
+ * остаётся в старом сегменте, всё после — в новом. Так снимок, записанный после ротации,
+ * позволяет удалить старые сегменты.
+ */
+@Slf4j
+public class FileJournal implements Journal, AutoCloseable {
+
+    private static final int INITIAL_BUFFER = 64 * 1024;
+
+    private final Path directory;
+    private final Durability durability;
+    private final long syncIntervalNanos;
+
+    // Порядок взятия: ioLock, затем appendLock
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Condition hasPending = appendLock.newCondition();
+    private final ReentrantLock ioLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition synced = syncLock.newCondition();
+
+    private RecordCodec.Buffer pending = new RecordCodec.Buffer(INITIAL_BUFFER);
+    private RecordCodec.Buffer writing = new RecordCodec.Buffer(INITIAL_BUFFER);
+    private long appended;
+    private long segmentRecords;
+    private volatile long durable;
+    private volatile IOException failure;
+    private volatile boolean closed;
+
+    private FileChannel channel;
+    private long segment;
+
+    private final Thread writer;
+    private final Counter records;
+    private final Counter syncs;
+    private final Timer syncTimer;
+
+    public FileJournal(Path directory, long segment, Durability durability, Duration syncInterval,
+                       MeterRegistry registry) {
+        this.directory = directory;
+        this.durability = durability;
+        this.syncIntervalNanos = syncInterval.toNanos();
+        this.segment = segment;
+        this.records = Counter.builder("filmorate.journal.records").register(registry);
+        this.syncs = Counter.builder("filmorate.journal.syncs").register(registry);
+        this.syncTimer = Timer.builder("filmorate.journal.sync.duration").register(registry);
+        try {
+            channel = openSegment(segment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть журнал в " + directory, e);
+        }
+        writer = new Thread(this::writeLoop, "journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    static Path segmentPath(Path directory, long segment) {
+        return directory.resolve(String.format("journal-%010d.log", segment));
+    }
+
+    static long segmentNumber(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring("journal-".length(), name.length() - ".log".length()));
+    }
+
+    static boolean isSegment(Path file) {
+        return file.getFileName().toString().matches("journal-\\d+\\.log");
+    }
+
+    @Override
+    public long append(JournalRecord record) {
+        appendLock.lock();
+        try {
+            if (failure != null) {
+                throw new UncheckedIOException("Журнал недоступен после ошибки записи", failure);
+            }
+            if (closed) {
+                throw new IllegalStateException("Журнал закрыт");
+            }
+            RecordCodec.encode(record, pending);
+            segmentRecords++;
+            hasPending.signal();
+            return ++appended;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public void awaitDurable(long ticket) {
+        if (ticket == 0 || durability == Durability.ASYNC || durable >= ticket) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            while (durable < ticket && failure == null) {
+                synced.awaitUninterruptibly();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+        if (durable < ticket) {
+            throw new UncheckedIOException("Изменение не записано в журнал", failure);
+        }
+    }
+
+    /**
+     * Сколько записей добавлено в текущий сегмент.
+     */
+    public long segmentRecords() {
+        appendLock.lock();
+        try {
+            return segmentRecords;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Записывает накопленное в текущий сегмент и начинает следующий.
+     *
+     * @return номер нового сегмента
+     */
+    public long rotate() throws IOException {
+        ioLock.lock();
+        try {
+            long last = swap();
+            appendLock.lock();
+            try {
+                segmentRecords = 0;
+            } finally {
+                appendLock.unlock();
+            }
+            write(last);
+            channel.close();
+            channel = openSegment(segment + 1);
+            segment++;
+            return segment;
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        appendLock.lock();
+        try {
+            closed = true;
+            hasPending.signal();
+        } finally {
+            appendLock.unlock();
+        }
+        try {
+            writer.join();
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.error("Не удалось закрыть журнал", e);
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            appendLock.lock();
+            try {
+                while (pending.size() == 0 && !closed) {
+                    hasPending.awaitUninterruptibly();
+                }
+                if (pending.size() == 0) {
+                    return;
+                }
+            } finally {
+                appendLock.unlock();
+            }
+            ioLock.lock();
+            try {
+                write(swap());
+            } catch (IOException e) {
+                fail(e);
+                return;
+            } finally {
+                ioLock.unlock();
+            }
+            if (durability == Durability.ASYNC && !closed) {
+                // В режиме ASYNC записи копятся весь интервал и фиксируются одним fsync
+                LockSupport.parkNanos(syncIntervalNanos);
+            }
+        }
+    }
+
+    // Вызывается под ioLock: меняет буферы местами и возвращает номер последней записи в отданном буфере
+    private long swap() {
+        appendLock.lock();
+        try {
+            RecordCodec.Buffer full = pending;
+            pending = writing;
+            writing = full;
+            return appended;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void write(long last) throws IOException {
+        if (writing.size() > 0) {
+            long start = System.nanoTime();
+            ByteBuffer bytes = ByteBuffer.wrap(writing.array(), 0, writing.size());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+            long count = last - durable;
+            writing.clear();
+            syncTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            syncs.increment();
+            records.increment(count);
+        }
+        syncLock.lock();
+        try {
+            durable = last;
+            synced.signalAll();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void fail(IOException e) {
+        log.error("Не удалось записать журнал, изменения больше не принимаются", e);
+        syncLock.lock();
+        try {
+            failure = e;
+            synced.signalAll();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        FileChannel opened = FileChannel.open(segmentPath(directory, number),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        StoragePersistence.syncDirectory(directory);
+        return opened;
+    }
+}
@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+/**
+ * Журнал изменений хранилища в памяти.
+ * <p>
+ * Хранилище вызывает {@link #append} под блокировкой сущности перед изменением в памяти и применяет
+ * изменение, только если запись принята: журнал не отстаёт от памяти, а записи одной сущности
+ * идут в журнал в том же порядке, что и в память. Ожидание записи на диск
+ * ({@link #awaitDurable}) — уже после снятия блокировки: пока один запрос ждёт fsync,
+ * другие успевают добавить свои записи и попадают в тот же fsync.
+ */
+public interface Journal {
+
+    Journal NONE = new Journal() {
+        @Override
+        public long append(JournalRecord record) {
+            return 0;
+        }
+
+        @Override
+        public void awaitDurable(long ticket) {
+        }
+    };
+
+    /**
+     * Добавляет запись в очередь на запись.
+     *
+     * @return номер записи для {@link #awaitDurable}
+     */
+    long append(JournalRecord record);
+
+    /**
+     * Ждёт, пока запись с этим номером и все предыдущие окажутся на диске.
+     * Номер 0 ничего не ждёт.
+     */
+    void awaitDurable(long ticket);
+}
@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+/**
+ * Изменение хранилища в журнале. Каждая запись задаёт итоговое значение (поля фильма, наличие лайка),
+ * а не приращение, поэтому повторное применение записи поверх снимка ничего не портит.
+ */
+public sealed interface JournalRecord {
+
+    /**
+     * Новый фильм вместе с лайками; в снимке — фильм целиком.
+     */
+    record FilmSaved(Film film) implements JournalRecord {
+    }
+
+    /**
+     * Поля фильма после изменения, без лайков.
+     */
+    record FilmUpdated(Film film) implements JournalRecord {
+    }
+
+    record LikeAdded(long filmId, long userId) implements JournalRecord {
+    }
+
+    record LikeRemoved(long filmId, long userId) implements JournalRecord {
+    }
+
+    /**
+     * Новый пользователь; в снимке — пользователь вместе с друзьями.
+     */
+    record UserSaved(User user) implements JournalRecord {
+    }
+
+    /**
+     * Поля пользователя после изменения, без друзей.
+     */
+    record UserUpdated(User user) implements JournalRecord {
+    }
+
+    record FriendAdded(long userId, long friendId) implements JournalRecord {
+    }
+
+    record FriendRemoved(long userId, long friendId) implements JournalRecord {
+    }
+}
@@ -0,0 +1,267 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.SortedLongSet;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+/**
+ * Двоичный формат записей журнала и снимка.
+ * Кадр записи: длина тела (int), CRC32C тела (int), тело. Тело начинается с байта типа записи.
+ * Оборванная при падении последняя запись распознаётся по длине или контрольной сумме.
+ */
+final class RecordCodec {
+
+    static final int HEADER_SIZE = 8;
+
+    private static final byte FILM_SAVED = 1;
+    private static final byte FILM_UPDATED = 2;
+    private static final byte LIKE_ADDED = 3;
+    private static final byte LIKE_REMOVED = 4;
+    private static final byte USER_SAVED = 5;
+    private static final byte USER_UPDATED = 6;
+    private static final byte FRIEND_ADDED = 7;
+    private static final byte FRIEND_REMOVED = 8;
+
+    private RecordCodec() {
+    }
+
+    static void encode(JournalRecord record, Buffer out) {
+        int start = out.size();
+        out.skip(HEADER_SIZE);
+        switch (record) {
+            case JournalRecord.FilmSaved(Film film) -> {
+                out.writeByte(FILM_SAVED);
+                writeFilm(film, out);
+                writeIds(film.getLikes(), out);
+            }
+            case JournalRecord.FilmUpdated(Film film) -> {
+                out.writeByte(FILM_UPDATED);
+                writeFilm(film, out);
+            }
+            case JournalRecord.LikeAdded(long filmId, long userId) -> writePair(LIKE_ADDED, filmId, userId, out);
+            case JournalRecord.LikeRemoved(long filmId, long userId) -> writePair(LIKE_REMOVED, filmId, userId, out);
+            case JournalRecord.UserSaved(User user) -> {
+                out.writeByte(USER_SAVED);
+                writeUser(user, out);
+                writeIds(user.getFriends(), out);
+            }
+            case JournalRecord.UserUpdated(User user) -> {
+                out.writeByte(USER_UPDATED);
+                writeUser(user, out);
+            }
+            case JournalRecord.FriendAdded(long userId, long friendId) -> writePair(FRIEND_ADDED, userId, friendId, out);
+            case JournalRecord.FriendRemoved(long userId, long friendId) ->
+                    writePair(FRIEND_REMOVED, userId, friendId, out);
+        }
+        int length = out.size() - start - HEADER_SIZE;
+        CRC32C crc = new CRC32C();
+        crc.update(out.array(), start + HEADER_SIZE, length);
+        out.putInt(start, length);
+        out.putInt(start + 4, (int) crc.getValue());
+    }
+
+    static boolean checksumMatches(ByteBuffer body, int checksum) {
+        CRC32C crc = new CRC32C();
+        crc.update(body.duplicate());
+        return (int) crc.getValue() == checksum;
+    }
+
+    static JournalRecord decode(ByteBuffer body) {
+        byte type = body.get();
+        return switch (type) {
+            case FILM_SAVED -> {
+                Film film = readFilm(body);
+                film.setLikes(readIds(body));
+                yield new JournalRecord.FilmSaved(film);
+            }
+            case FILM_UPDATED -> new JournalRecord.FilmUpdated(readFilm(body));
+            case LIKE_ADDED -> new JournalRecord.LikeAdded(body.getLong(), body.getLong());
+            case LIKE_REMOVED -> new JournalRecord.LikeRemoved(body.getLong(), body.getLong());
+            case USER_SAVED -> {
+                User user = readUser(body);
+                user.setFriends(readIds(body));
+                yield new JournalRecord.UserSaved(user);
+            }
+            case USER_UPDATED -> new JournalRecord.UserUpdated(readUser(body));
+            case FRIEND_ADDED -> new JournalRecord.FriendAdded(body.getLong(), body.getLong());
+            case FRIEND_REMOVED -> new JournalRecord.FriendRemoved(body.getLong(), body.getLong());
+            default -> throw new IllegalStateException("Неизвестный тип записи журнала: " + type);
+        };
+    }
+
+    private static void writePair(byte type, long first, long second, Buffer out) {
+        out.writeByte(type);
+        out.writeLong(first);
+        out.writeLong(second);
+    }
+
+    private static void writeFilm(Film film, Buffer out) {
+        out.writeLong(film.getId());
+        writeString(film.getName(), out);
+        writeString(film.getDescription(), out);
+        writeDate(film.getReleaseDate(), out);
+        Duration duration = film.getDuration();
+        out.writeByte(duration == null ? 0 : 1);
+        if (duration != null) {
+            out.writeLong(duration.getSeconds());
+            out.writeInt(duration.getNano());
+        }
+    }
+
+    private static Film readFilm(ByteBuffer body) {
+        Film film = Film.builder()
+                .id(body.getLong())
+                .name(readString(body))
+                .description(readString(body))
+                .releaseDate(readDate(body))
+                .build();
+        if (body.get() == 1) {
+            film.setDuration(Duration.ofSeconds(body.getLong(), body.getInt()));
+        }
+        return film;
+    }
+
+    private static void writeUser(User user, Buffer out) {
+        out.writeLong(user.getId());
+        writeString(user.getEmail(), out);
+        writeString(user.getLogin(), out);
+        writeString(user.getName(), out);
+        writeDate(user.getBirthday(), out);
+    }
+
+    private static User readUser(ByteBuffer body) {
+        return new User(body.getLong(), readString(body), readString(body), readString(body), readDate(body));
+    }
+
+    // Id пишутся по возрастанию, чтобы при чтении собрать SortedLongSet без сортировки
+    private static void writeIds(Set<Long> ids, Buffer out) {
+        long[] sorted;
+        if (ids == null) {
+            sorted = new long[0];
+        } else if (ids instanceof SortedLongSet sortedIds) {
+            sorted = sortedIds.toLongArray();
+        } else {
+            sorted = ids.stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+        }
+        out.writeInt(sorted.length);
+        out.writeLongs(sorted);
+    }
+
+    private static SortedLongSet readIds(ByteBuffer body) {
+        long[] ids = new long[body.getInt()];
+        body.asLongBuffer().get(ids);
+        body.position(body.position() + ids.length * Long.BYTES);
+        return SortedLongSet.ofSorted(ids);
+    }
+
+    private static void writeString(String value, Buffer out) {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private static String readString(ByteBuffer body) {
+        int length = body.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(body.array(), body.arrayOffset() + body.position(), length, StandardCharsets.UTF_8);
+        body.position(body.position() + length);
+        return value;
+    }
+
+    private static void writeDate(LocalDate date, Buffer out) {
+        out.writeByte(date == null ? 0 : 1);
+        if (date != null) {
+            out.writeLong(date.toEpochDay());
+        }
+    }
+
+    private static LocalDate readDate(ByteBuffer body) {
+        return body.get() == 1 ? LocalDate.ofEpochDay(body.getLong()) : null;
+    }
+
+    /**
+     * Растущий буфер записей; заполняется под блокировкой журнала и сбрасывается в файл целиком.
+     */
+    static final class Buffer {
+        private byte[] bytes;
+        private ByteBuffer view;
+        private int size;
+
+        Buffer(int capacity) {
+            bytes = new byte[capacity];
+            view = ByteBuffer.wrap(bytes);
+        }
+
+        int size() {
+            return size;
+        }
+
+        byte[] array() {
+            return bytes;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        void skip(int count) {
+            ensure(count);
+            size += count;
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            bytes[size++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            ensure(Integer.BYTES);
+            view.putInt(size, value);
+            size += Integer.BYTES;
+        }
+
+        void writeLong(long value) {
+            ensure(Long.BYTES);
+            view.putLong(size, value);
+            size += Long.BYTES;
+        }
+
+        void writeLongs(long[] values) {
+            ensure(values.length * Long.BYTES);
+            view.position(size);
+            view.asLongBuffer().put(values);
+            size += values.length * Long.BYTES;
+        }
+
+        void writeBytes(byte[] values) {
+            ensure(values.length);
+            System.arraycopy(values, 0, bytes, size, values.length);
+            size += values.length;
+        }
+
+        void putInt(int index, int value) {
+            view.putInt(index, value);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+                view = ByteBuffer.wrap(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Последовательное чтение записей файла журнала или снимка.
+ * Чтение останавливается на первой оборванной или повреждённой записи;
+ * {@link #validLength()} — длина файла до неё.
+ * <p>
+ * Файл читается окнами по {@value #BUFFER_SIZE} байт, записи разбираются прямо в окне, без копирования.
+ */
+final class RecordReader implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private long validLength;
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+
+    RecordReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+    }
+
+    /**
+     * Следующая запись или {@code null}, если записи кончились или дальше файл повреждён.
+     */
+    JournalRecord next() throws IOException {
+        if (!fill(RecordCodec.HEADER_SIZE)) {
+            return null;
+        }
+        int length = buffer.getInt(buffer.position());
+        int checksum = buffer.getInt(buffer.position() + 4);
+        if (length <= 0 || length > fileSize - validLength - RecordCodec.HEADER_SIZE
+                || !fill(RecordCodec.HEADER_SIZE + length)) {
+            return null;
+        }
+        ByteBuffer body = buffer.slice(buffer.position() + RecordCodec.HEADER_SIZE, length);
+        if (!RecordCodec.checksumMatches(body, checksum)) {
+            return null;
+        }
+        buffer.position(buffer.position() + RecordCodec.HEADER_SIZE + length);
+        validLength += RecordCodec.HEADER_SIZE + length;
+        return RecordCodec.decode(body);
+    }
+
+    long validLength() {
+        return validLength;
+    }
+
+    long fileSize() {
+        return fileSize;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Дочитывает файл, пока в окне не окажется count байт; false — файл кончился раньше
+    private boolean fill(int count) throws IOException {
+        if (buffer.remaining() >= count) {
+            return true;
+        }
+        if (buffer.capacity() < count) {
+            buffer = ByteBuffer.allocate(Math.max(count, buffer.capacity() * 2)).put(buffer).flip();
+        }
+        buffer.compact();
+        while (buffer.position() < count) {
+            if (channel.read(buffer) < 0) {
+                buffer.flip();
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+}
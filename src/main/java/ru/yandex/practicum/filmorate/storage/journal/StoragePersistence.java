@@ -0,0 +1,273 @@
+package ru.yandex.practicum.filmorate.storage.journal;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.config.PersistenceProperties;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Сохранение хранилищ в памяти на диск: снимок {@code snapshot-<N>.bin} и журнал изменений после него
+ * в сегментах {@code journal-<номер>.log}, начиная с N.
+ * <p>
+ * При создании восстанавливает хранилища: читает последний снимок и проигрывает журнал. Оборванная
+ * при падении запись в конце последнего сегмента отрезается. Затем подключает к хранилищам журнал
+ * и по расписанию пишет новый снимок, после которого старые сегменты удаляются.
+ * <p>
+ * Журнал ротируется, пока изменения в хранилищах приостановлены: каждая запись старых сегментов
+ * к этому моменту уже применена в памяти и попадёт в снимок, поэтому сегменты можно удалить.
+ * Сам обход хранилищ идёт без остановки записи. Изменения, попавшие в снимок частично, есть
+ * и в новом сегменте, а записи журнала задают итоговые значения, поэтому повторное применение
+ * поверх снимка даёт то же состояние.
+ */
+@Slf4j
+public class StoragePersistence implements AutoCloseable {
+
+    private static final int SNAPSHOT_CHUNK = 1 << 20;
+    // Как часто проверять, не пора ли писать снимок по числу записей журнала
+    private static final Duration CHECK_INTERVAL = Duration.ofSeconds(10);
+
+    private final InMemoryFilmStorage films;
+    private final InMemoryUserStorage users;
+    private final Path directory;
+    private final FileJournal journal;
+    private final ScheduledExecutorService scheduler;
+    private final Timer snapshotTimer;
+    private final long snapshotIntervalNanos;
+    private final long snapshotRecords;
+    private volatile long lastSnapshot = System.nanoTime();
+
+    public StoragePersistence(InMemoryFilmStorage films, InMemoryUserStorage users,
+                              PersistenceProperties properties, MeterRegistry registry) {
+        this.films = films;
+        this.users = users;
+        this.directory = properties.directory();
+        this.snapshotTimer = Timer.builder("filmorate.snapshot.duration").register(registry);
+        this.snapshotIntervalNanos = properties.snapshotInterval().toNanos();
+        this.snapshotRecords = properties.snapshotRecords();
+        long nextSegment;
+        try {
+            Files.createDirectories(directory);
+            deleteFiles(file -> file.getFileName().toString().endsWith(".tmp"));
+            nextSegment = recover() + 1;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось восстановить хранилище из " + directory, e);
+        }
+        journal = new FileJournal(directory, nextSegment, properties.durability(), properties.syncInterval(),
+                registry);
+        films.setJournal(journal);
+        users.setJournal(journal);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "storage-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMs = Math.min(properties.snapshotInterval().toMillis(), CHECK_INTERVAL.toMillis());
+        scheduler.scheduleWithFixedDelay(this::snapshotQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Пишет снимок хранилищ и удаляет снимки и сегменты журнала, которые он заменяет.
+     */
+    public void snapshot() throws IOException {
+        long start = System.nanoTime();
+        lastSnapshot = start;
+        long segment;
+        try {
+            segment = users.withWritesPaused(() -> films.withWritesPaused(this::rotate));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Path target = snapshotPath(segment);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        long records = 0;
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE)) {
+            RecordCodec.Buffer buffer = new RecordCodec.Buffer(SNAPSHOT_CHUNK + SNAPSHOT_CHUNK / 4);
+            // Сначала пользователи: при восстановлении лайки и друзья ссылаются на уже известные id
+            for (User user : users.findAllUsers()) {
+                RecordCodec.encode(new JournalRecord.UserSaved(user), buffer);
+                records++;
+                drainIfFull(buffer, channel);
+            }
+            for (Film film : films.findAllFilms()) {
+                RecordCodec.encode(new JournalRecord.FilmSaved(film), buffer);
+                records++;
+                drainIfFull(buffer, channel);
+            }
+            drain(buffer, channel);
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(directory);
+        deleteFiles(file -> isSnapshot(file) && snapshotNumber(file) < segment
+                || FileJournal.isSegment(file) && FileJournal.segmentNumber(file) < segment);
+        snapshotTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        log.info("Снимок хранилища записан: {} записей за {} мс", records, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+            snapshot();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.error("Не удалось записать снимок при остановке, при запуске будет проигран журнал", e);
+        }
+        films.setJournal(Journal.NONE);
+        users.setJournal(Journal.NONE);
+        journal.close();
+    }
+
+    /**
+     * Сбрасывает на диск запись каталога, чтобы созданные и переименованные файлы пережили падение.
+     */
+    static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Не все файловые системы позволяют открыть каталог; тогда остаётся полагаться на них
+            log.debug("Не удалось сбросить каталог {} на диск", directory, e);
+        }
+    }
+
+    private long rotate() {
+        try {
+            return journal.rotate();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void snapshotQuietly() {
+        long records = journal.segmentRecords();
+        boolean due = System.nanoTime() - lastSnapshot >= snapshotIntervalNanos;
+        if (records == 0 || records < snapshotRecords && !due) {
+            return;
+        }
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Не удалось записать снимок хранилища", e);
+        }
+    }
+
+    // Возвращает номер последнего сегмента журнала (или снимка, если сегментов после него нет)
+    private long recover() throws IOException {
+        long start = System.nanoTime();
+        List<Path> snapshots = listFiles(StoragePersistence::isSnapshot);
+        Path snapshot = snapshots.isEmpty() ? null : snapshots.get(snapshots.size() - 1);
+        long fromSegment = snapshot == null ? 0 : snapshotNumber(snapshot);
+        long applied = 0;
+        if (snapshot != null) {
+            try (RecordReader reader = new RecordReader(snapshot)) {
+                applied += replay(reader);
+                if (reader.validLength() != reader.fileSize()) {
+                    throw new IllegalStateException("Снимок повреждён: " + snapshot);
+                }
+            }
+        }
+        long lastSegment = fromSegment;
+        List<Path> segments = listFiles(file -> FileJournal.isSegment(file)
+                && FileJournal.segmentNumber(file) >= fromSegment);
+        for (int i = 0; i < segments.size(); i++) {
+            Path segment = segments.get(i);
+            lastSegment = FileJournal.segmentNumber(segment);
+            long validLength;
+            long fileSize;
+            try (RecordReader reader = new RecordReader(segment)) {
+                applied += replay(reader);
+                validLength = reader.validLength();
+                fileSize = reader.fileSize();
+            }
+            if (validLength == fileSize) {
+                continue;
+            }
+            if (i < segments.size() - 1) {
+                throw new IllegalStateException("Журнал повреждён в середине: " + segment + ", позиция " + validLength);
+            }
+            // Оборванная запись в конце — изменение, о котором клиенту не успели ответить
+            log.warn("Отрезан повреждённый конец журнала {}: {} байт", segment, fileSize - validLength);
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+                channel.force(true);
+            }
+        }
+        films.finishRestore();
+        log.info("Хранилище восстановлено: {} записей за {} мс", applied, (System.nanoTime() - start) / 1_000_000);
+        return lastSegment;
+    }
+
+    private long replay(RecordReader reader) throws IOException {
+        long applied = 0;
+        JournalRecord record;
+        while ((record = reader.next()) != null) {
+            users.restore(record);
+            films.restore(record);
+            applied++;
+        }
+        return applied;
+    }
+
+    private void drainIfFull(RecordCodec.Buffer buffer, FileChannel channel) throws IOException {
+        if (buffer.size() >= SNAPSHOT_CHUNK) {
+            drain(buffer, channel);
+        }
+    }
+
+    private void drain(RecordCodec.Buffer buffer, FileChannel channel) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(buffer.array(), 0, buffer.size());
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        buffer.clear();
+    }
+
+    private Path snapshotPath(long segment) {
+        return directory.resolve(String.format("snapshot-%010d.bin", segment));
+    }
+
+    private static boolean isSnapshot(Path file) {
+        return file.getFileName().toString().matches("snapshot-\\d+\\.bin");
+    }
+
+    private static long snapshotNumber(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring("snapshot-".length(), name.length() - ".bin".length()));
+    }
+
+    // Имена с номерами фиксированной ширины, поэтому сортировка по имени — это сортировка по номеру
+    private List<Path> listFiles(Predicate<Path> filter) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(filter).sorted().toList();
+        }
+    }
+
+    private void deleteFiles(Predicate<Path> filter) throws IOException {
+        for (Path file : listFiles(filter)) {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import ru.yandex.practicum.filmorate.config.CacheProperties;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.SortedLongSet;
+import ru.yandex.practicum.filmorate.storage.WriteBehindBuffer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Кэш пользователей перед хранилищем. Пользователи по id отдаются из памяти (вытеснение W-TinyLFU),
+ * изменения дружбы в режиме WRITE_BEHIND копятся в буфере и записываются пачками.
+ * Списки пользователей и друзей читаются из хранилища с наложенными поверх несброшенными изменениями;
+ * буфер сбрасывают только рекомендации, которые считаются по всему графу дружбы.
+ * Кэш хранит собственные копии пользователей и передаёт изменения дружбы хранилищу только по id.
+ */
+public class CachingUserStorage implements UserStorage, AutoCloseable {
+
+    private final UserStorage delegate;
+    private final Cache<Long, User> users;
+    private final WriteBehindBuffer<Friendship> friendships;
+
+    public CachingUserStorage(UserStorage delegate, CacheProperties properties, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, users, "users");
+        this.friendships = properties.writeMode() == CacheProperties.WriteMode.WRITE_BEHIND
+                ? new WriteBehindBuffer<>("friendships",
+                friendship -> List.of(friendship.userId(), friendship.friendId()), this::writeFriendships, properties.flushInterval(),
+                properties.batchSize(), properties.maxPending(), registry)
+                : null;
+    }
+
+    @Override
+    public Collection<User> findAllUsers() {
+        return delegate.findAllUsers().stream()
+                .map(this::current)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<User> findUsersPage(Long cursor, int limit) {
+        return delegate.findUsersPage(cursor, limit).stream()
+                .map(this::current)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public User saveUser(User user) {
+        return cache(delegate.saveUser(user));
+    }
+
+    @Override
+    public User putUser(User user) {
+        // Запись в хранилище идёт вне блокировки ключа, буфер читается до неё.
+        // Закэшированная копия получает новые поля и сохраняет своих друзей: их меняют только под блокировкой ключа
+        Map<Long, Boolean> pending = pendingFriendships(user.getId());
+        User stored = delegate.putUser(user);
+        User updated = users.asMap().compute(user.getId(), (id, cached) -> {
+            if (cached == null) {
+                return null;
+            }
+            User copy = new User(stored.getId(), stored.getEmail(), stored.getLogin(), stored.getName(),
+                    stored.getBirthday());
+            copy.setFriends(cached.getFriends());
+            return copy;
+        });
+        return updated != null ? updated : copy(stored, pending);
+    }
+
+    @Override
+    public Optional<User> findUserById(Long id) {
+        return Optional.ofNullable(users.get(id, this::load));
+    }
+
+    @Override
+    public Optional<User> findUserByEmail(String email) {
+        return delegate.findUserByEmail(email).map(User::getId).flatMap(this::findUserById);
+    }
+
+    @Override
+    public Optional<User> findUserByLogin(String login) {
+        return delegate.findUserByLogin(login).map(User::getId).flatMap(this::findUserById);
+    }
+
+    @Override
+    public void addFriend(User user, User friend) {
+        addFriends(List.of(new Friendship(user.getId(), friend.getId())));
+        user.getFriends().add(friend.getId());
+        friend.getFriends().add(user.getId());
+    }
+
+    @Override
+    public void removeFriend(User user, User friend) {
+        removeFriends(List.of(new Friendship(user.getId(), friend.getId())));
+        user.getFriends().remove(friend.getId());
+        friend.getFriends().remove(user.getId());
+    }
+
+    @Override
+    public void addFriends(Collection<Friendship> added) {
+        if (friendships == null) {
+            delegate.addFriends(added);
+        } else {
+            added.forEach(friendship -> friendships.add(key(friendship.userId(), friendship.friendId())));
+        }
+        added.forEach(friendship -> linkCached(friendship.userId(), friendship.friendId(), true));
+    }
+
+    @Override
+    public void removeFriends(Collection<Friendship> removed) {
+        if (friendships == null) {
+            delegate.removeFriends(removed);
+        } else {
+            removed.forEach(friendship -> friendships.remove(key(friendship.userId(), friendship.friendId())));
+        }
+        removed.forEach(friendship -> linkCached(friendship.userId(), friendship.friendId(), false));
+    }
+
+    @Override
+    public List<User> findFriends(User user) {
+        long[] ids = friendsOf(user).toLongArray();
+        return usersByIds(ids, delegate.findFriends(user));
+    }
+
+    @Override
+    public List<User> findFriendsPage(User user, Long cursor, int limit) {
+        long[] ids = friendsOf(user).page(cursor == null ? 0L : cursor, limit);
+        return usersByIds(ids, delegate.findFriendsPage(user, cursor, limit));
+    }
+
+    @Override
+    public List<User> findCommonFriends(User user, User otherUser) {
+        long[] ids = friendsOf(user).intersect(friendsOf(otherUser));
+        return usersByIds(ids, delegate.findCommonFriends(user, otherUser));
+    }
+
+    @Override
+    public List<User> findCommonFriendsPage(User user, User otherUser, Long cursor, int limit) {
+        long[] ids = SortedLongSet.ofSorted(friendsOf(user).intersect(friendsOf(otherUser)))
+                .page(cursor == null ? 0L : cursor, limit);
+        return usersByIds(ids, delegate.findCommonFriendsPage(user, otherUser, cursor, limit));
+    }
+
+    @Override
+    public List<User> findRecommendedUsers(User user, int count) {
+        flush();
+        return delegate.findRecommendedUsers(user, count);
+    }
+
+    @Override
+    public void precomputeRecommendations(int minFriends) {
+        flush();
+        delegate.precomputeRecommendations(minFriends);
+    }
+
+    @Override
+    public boolean userExists(Long userId) {
+        return users.getIfPresent(userId) != null || delegate.userExists(userId);
+    }
+
+    @Override
+    public Set<Long> findExistingUserIds(Collection<Long> userIds) {
+        // Удалений нет, поэтому закэшированные id существуют — в хранилище проверяются только остальные
+        Map<Boolean, List<Long>> byCached = userIds.stream()
+                .collect(Collectors.partitioningBy(users.asMap()::containsKey));
+        Set<Long> existing = new HashSet<>(byCached.get(true));
+        if (!byCached.get(false).isEmpty()) {
+            existing.addAll(delegate.findExistingUserIds(byCached.get(false)));
+        }
+        return existing;
+    }
+
+    @Override
+    public long countUsers() {
+        return delegate.countUsers();
+    }
+
+    // Значение для метрики: несброшенные изменения в него не входят, отставание — не больше интервала сброса
+    @Override
+    public long countFriendships() {
+        return delegate.countFriendships();
+    }
+
+    public void flush() {
+        if (friendships != null) {
+            friendships.flush();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (friendships != null) {
+            friendships.close();
+        }
+    }
+
+    private User cache(User user) {
+        User copy = copy(user, Map.of());
+        users.put(copy.getId(), copy);
+        return copy;
+    }
+
+    // Загрузка при промахе идёт под блокировкой ключа: изменение дружбы, пришедшее во время чтения,
+    // дождётся загрузки и применится к копии. Снимок буфера берётся до чтения хранилища
+    private User load(Long id) {
+        Map<Long, Boolean> pending = pendingFriendships(id);
+        return delegate.findUserById(id)
+                .map(user -> copy(user, pending))
+                .orElse(null);
+    }
+
+    private static User copy(User user, Map<Long, Boolean> pending) {
+        User copy = new User(user.getId(), user.getEmail(), user.getLogin(), user.getName(), user.getBirthday());
+        SortedLongSet friends = SortedLongSet.of(user.getFriends());
+        pending.forEach((friendId, linked) -> {
+            if (linked) {
+                friends.add(friendId);
+            } else {
+                friends.remove(friendId);
+            }
+        });
+        copy.setFriends(friends);
+        return copy;
+    }
+
+    // Пользователь из кэша актуален; прочитанный из хранилища дополняется несброшенными изменениями
+    private User current(User stored) {
+        User cached = users.asMap().get(stored.getId());
+        if (cached != null) {
+            return cached;
+        }
+        Map<Long, Boolean> changes = pendingFriendships(stored.getId());
+        return changes.isEmpty() ? stored : copy(stored, changes);
+    }
+
+    // Друзья из хранилища берутся одним запросом; кого там ещё нет (дружба в буфере), читаем по id
+    private List<User> usersByIds(long[] ids, List<User> stored) {
+        Map<Long, User> storedById = stored.stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        List<User> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            User user = storedById.get(id);
+            if (user != null) {
+                result.add(current(user));
+            } else {
+                findUserById(id).ifPresent(result::add);
+            }
+        }
+        return result;
+    }
+
+    private SortedLongSet friendsOf(User user) {
+        return findUserById(user.getId())
+                .map(found -> (SortedLongSet) found.getFriends())
+                .orElseGet(SortedLongSet::new);
+    }
+
+    // Несброшенные изменения дружбы пользователя: друг -> добавлена ли дружба
+    private Map<Long, Boolean> pendingFriendships(long userId) {
+        if (friendships == null) {
+            return Map.of();
+        }
+        Map<Long, Boolean> byFriend = new HashMap<>();
+        friendships.pendingOf(userId).forEach((friendship, linked) -> byFriend.put(
+                friendship.userId() == userId ? friendship.friendId() : friendship.userId(), linked));
+        return byFriend;
+    }
+
+    // Дружба взаимная, поэтому (a, b) и (b, a) — одна и та же запись буфера
+    private Friendship key(Long userId, Long friendId) {
+        return userId <= friendId ? new Friendship(userId, friendId) : new Friendship(friendId, userId);
+    }
+
+    private void linkCached(Long userId, Long friendId, boolean linked) {
+        linkCachedUser(userId, friendId, linked);
+        linkCachedUser(friendId, userId, linked);
+    }
+
+    // Под блокировкой ключа: если пользователь сейчас загружается, изменение применится к загруженной копии
+    // (computeIfPresent загрузку не ждёт). Служебный доступ через asMap() не попадает в статистику попаданий
+    private void linkCachedUser(Long userId, Long friendId, boolean linked) {
+        users.asMap().compute(userId, (id, cached) -> {
+            if (cached == null) {
+                return null;
+            }
+            if (linked) {
+                cached.getFriends().add(friendId);
+            } else {
+                cached.getFriends().remove(friendId);
+            }
+            return cached;
+        });
+    }
+
+    private void writeFriendships(List<Friendship> added, List<Friendship> removed) {
+        delegate.addFriends(added);
+        delegate.removeFriends(removed);
+    }
+}
@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import ru.yandex.practicum.filmorate.storage.LongIntCounter;
+import ru.yandex.practicum.filmorate.storage.SortedLongSet;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+import java.util.stream.LongStream;
+
+/**
+ * Рекомендации «друзья друзей»: кандидаты ранжируются по числу общих друзей,
+ * при равенстве меньший id выше. Работает на отсортированных массивах друзей
+ * и примитивном счётчике {@link LongIntCounter}.
+ * <p>
+ * Работа на запрос ограничена: если у друзей пользователя в сумме больше {@link #MAX_SCANNED_EDGES}
+ * друзей, из списка каждого друга берётся равномерная выборка, и ранжирование становится приближённым.
+ * Для тяжёлых пользователей результат можно посчитать заранее, параллельно: он хранится до
+ * первого изменения дружбы у самого пользователя или у его друзей.
+ */
+class FriendRecommender {
+
+    static final int MAX_SCANNED_EDGES = 200_000;
+    static final int PRECOMPUTED_SIZE = 100;
+
+    private final LongFunction<SortedLongSet> friendsOf;
+    private final Map<Long, long[]> precomputed = new ConcurrentHashMap<>();
+    private final AtomicLong graphVersion = new AtomicLong();
+
+    FriendRecommender(LongFunction<SortedLongSet> friendsOf) {
+        this.friendsOf = friendsOf;
+    }
+
+    long[] recommend(long userId, int count) {
+        long[] cached = precomputed.get(userId);
+        if (cached != null && count <= PRECOMPUTED_SIZE) {
+            return Arrays.copyOf(cached, Math.min(count, cached.length));
+        }
+        return rank(userId, count);
+    }
+
+    /**
+     * Дружба между {@code userId} и {@code friendId} изменилась: сбрасываются заранее посчитанные
+     * рекомендации обоих пользователей и всех их друзей. Вызывается с уже изменёнными списками друзей.
+     */
+    void invalidate(long userId, long friendId) {
+        graphVersion.incrementAndGet();
+        if (precomputed.isEmpty()) {
+            return;
+        }
+        SortedLongSet userFriends = friendsOf.apply(userId);
+        SortedLongSet friendFriends = friendsOf.apply(friendId);
+        // Заранее посчитанных пользователей обычно меньше, чем друзей, — проверяется каждый из них
+        precomputed.keySet().removeIf(id -> id == userId || id == friendId
+                || userFriends.contains(id.longValue())
+                || friendFriends.contains(id.longValue()));
+    }
+
+    /**
+     * Параллельно считает рекомендации для пользователей, у которых ещё нет готового результата.
+     * Результат, посчитанный во время изменения дружбы, отбрасывается.
+     */
+    void precompute(LongStream userIds) {
+        userIds.parallel()
+                .filter(userId -> !precomputed.containsKey(userId))
+                .forEach(userId -> {
+                    long version = graphVersion.get();
+                    long[] ranked = rank(userId, PRECOMPUTED_SIZE);
+                    precomputed.put(userId, ranked);
+                    if (graphVersion.get() != version) {
+                        precomputed.remove(userId, ranked);
+                    }
+                });
+    }
+
+    private long[] rank(long userId, int count) {
+        long[] friends = friendsOf.apply(userId).toLongArray();
+        if (friends.length == 0 || count <= 0) {
+            return new long[0];
+        }
+        // Сначала только размеры списков: копируется лишь то, что войдёт в выборку
+        SortedLongSet[] friendsOfFriends = new SortedLongSet[friends.length];
+        long edges = 0;
+        for (int i = 0; i < friends.length; i++) {
+            friendsOfFriends[i] = friendsOf.apply(friends[i]);
+            edges += friendsOfFriends[i].size();
+        }
+        int quota = edges > MAX_SCANNED_EDGES ? Math.max(1, MAX_SCANNED_EDGES / friends.length) : Integer.MAX_VALUE;
+
+        LongIntCounter counter = LongIntCounter.acquire();
+        try {
+            // Сам пользователь и его друзья исключаются меткой в счётчике, без поиска на каждом ребре
+            counter.exclude(userId);
+            for (long friend : friends) {
+                counter.exclude(friend);
+            }
+            for (SortedLongSet friendFriends : friendsOfFriends) {
+                for (long candidate : friendFriends.sample(quota)) {
+                    counter.increment(candidate);
+                }
+            }
+            return counter.top(count);
+        } finally {
+            LongIntCounter.release(counter);
+        }
+    }
+}
@@ -1,88 +1,280 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.config.StorageConfig;
+import ru.yandex.practicum.filmorate.exceptions.DuplicatedDataException;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.AtomicIdGenerator;
+import ru.yandex.practicum.filmorate.storage.IdGenerator;
+import ru.yandex.practicum.filmorate.storage.SortedLongSet;
+import ru.yandex.practicum.filmorate.storage.StripedLocks;
+import ru.yandex.practicum.filmorate.storage.journal.Journal;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord;
+
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Component
+@Qualifier(StorageConfig.USER_BACKEND)
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "memory", matchIfMissing = true)
 @Slf4j
 public class InMemoryUserStorage  implements UserStorage {
 
-    Map<Long, User> users = new HashMap<>();
+    private final NavigableMap<Long, User> users = new ConcurrentSkipListMap<>();
+    // Списки смежности для обхода графа: поиск в хэш-таблице вместо спуска по списку с пропусками
+    private final Map<Long, SortedLongSet> friendSets = new ConcurrentHashMap<>();
+    // Уникальные индексы: почта и логин → id владельца. Значение занимается putIfAbsent,
+    // поэтому из двух одновременных регистраций с одной почтой проходит одна
+    private final Map<String, Long> idsByEmail = new ConcurrentHashMap<>();
+    private final Map<String, Long> idsByLogin = new ConcurrentHashMap<>();
+    private final StripedLocks locks = new StripedLocks();
+    private final FriendRecommender recommender = new FriendRecommender(this::friendSet);
+    private final IdGenerator idGenerator;
+    private volatile Journal journal = Journal.NONE;
+
+    public InMemoryUserStorage() {
+        this(new AtomicIdGenerator());
+    }
+
+    public InMemoryUserStorage(IdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
+    }
 
     @Override
     public Collection<User> findAllUsers() {
         return users.values();
     }
 
+    @Override
+    public List<User> findUsersPage(Long cursor, int limit) {
+        return users.tailMap(cursor == null ? 0L : cursor, false).values().stream()
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public Optional<User> findUserById(Long id) {
         return Optional.ofNullable(users.get(id));
     }
 
+    @Override
+    public Optional<User> findUserByEmail(String email) {
+        return Optional.ofNullable(idsByEmail.get(email)).map(users::get);
+    }
+
+    @Override
+    public Optional<User> findUserByLogin(String login) {
+        return Optional.ofNullable(idsByLogin.get(login)).map(users::get);
+    }
+
+    /**
+     * Подключает журнал: дальше каждое изменение записывается в него до ответа вызывающему.
+     */
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Выполняет действие, пока ни одно изменение не идёт. Изменение пишется в журнал и применяется
+     * в памяти под одной блокировкой, поэтому всё, что уже в журнале, к этому моменту видно в памяти.
+     */
+    public <T> T withWritesPaused(Supplier<T> action) {
+        return locks.withAllLocks(action);
+    }
+
+    /**
+     * Применяет запись журнала или снимка при восстановлении. Id сохраняются, в журнал ничего не пишется.
+     * Почта и логин занимаются без проверки: журнал уже прошёл её при записи.
+     */
+    public void restore(JournalRecord record) {
+        switch (record) {
+            case JournalRecord.UserSaved(User user) -> {
+                idGenerator.advanceTo(user.getId());
+                User existing = users.get(user.getId());
+                if (existing == null) {
+                    claim(user.getId(), null, user);
+                    SortedLongSet friends = SortedLongSet.of(user.getFriends());
+                    user.setFriends(friends);
+                    friendSets.put(user.getId(), friends);
+                    users.put(user.getId(), user);
+                } else {
+                    // Нечёткий снимок мог уже содержать более поздних друзей — они применятся заново из журнала
+                    claim(existing.getId(), existing, user);
+                    copyFields(existing, user);
+                    SortedLongSet friends = friendSet(existing.getId());
+                    friends.clear();
+                    user.getFriends().forEach(friends::add);
+                }
+            }
+            case JournalRecord.UserUpdated(User user) -> findUserById(user.getId()).ifPresent(existing -> {
+                claim(existing.getId(), existing, user);
+                copyFields(existing, user);
+            });
+            case JournalRecord.FriendAdded(long userId, long friendId) -> {
+                friendSet(userId).add(friendId);
+                friendSet(friendId).add(userId);
+            }
+            case JournalRecord.FriendRemoved(long userId, long friendId) -> {
+                friendSet(userId).remove(friendId);
+                friendSet(friendId).remove(userId);
+            }
+            default -> {
+            }
+        }
+    }
+
     @Override
     public User saveUser(User user) {
-        user.setId(getNextId());
-        user.setFriends(new HashSet<>());
-        users.put(user.getId(), user);
-        log.info("Пользователь добавлен: {}", user);
+        user.setId(idGenerator.nextId());
+        long ticket = locks.withLock(user.getId(), () -> {
+            reserve(user.getId(), user.getEmail(), user.getLogin());
+            SortedLongSet friends = new SortedLongSet();
+            user.setFriends(friends);
+            long appended = appendOrRelease(new JournalRecord.UserSaved(user), user.getId(),
+                    user.getEmail(), user.getLogin());
+            friendSets.put(user.getId(), friends);
+            users.put(user.getId(), user);
+            return appended;
+        });
+        journal.awaitDurable(ticket);
+        log.info("Пользователь добавлен: id = {}", user.getId());
         return user;
     }
 
     @Override
     public User putUser(User newUser) {
         User oldUser = users.get(newUser.getId());
-        if (newUser.getEmail() != null) {
-            oldUser.setEmail(newUser.getEmail());
-        }
-        if (newUser.getLogin() != null) {
-            oldUser.setLogin(newUser.getLogin());
-        }
-        if (newUser.getBirthday() != null) {
-            oldUser.setBirthday(newUser.getBirthday());
-        }
-        if (newUser.getName() != null) {
-            oldUser.setName(newUser.getName());
-        }
-        if (newUser.getName() == null || newUser.getName().isBlank()) {
-            oldUser.setName(newUser.getLogin());
-        }
-        log.info("Пользователь обновлён: {}", oldUser);
+        long ticket = locks.withLock(oldUser.getId(), () -> {
+            String email = newUser.getEmail() == null ? oldUser.getEmail() : newUser.getEmail();
+            String login = newUser.getLogin() == null ? oldUser.getLogin() : newUser.getLogin();
+            reserve(oldUser.getId(), email, login);
+            String name = newUser.getName() == null || newUser.getName().isBlank()
+                    ? newUser.getLogin()
+                    : newUser.getName();
+            LocalDate birthday = newUser.getBirthday() == null ? oldUser.getBirthday() : newUser.getBirthday();
+            User updated = new User(oldUser.getId(), email, login, name, birthday);
+            long appended = appendOrRelease(new JournalRecord.UserUpdated(updated), oldUser.getId(),
+                    email.equals(oldUser.getEmail()) ? null : email,
+                    login.equals(oldUser.getLogin()) ? null : login);
+            if (!email.equals(oldUser.getEmail())) {
+                idsByEmail.remove(oldUser.getEmail(), oldUser.getId());
+            }
+            if (!login.equals(oldUser.getLogin())) {
+                idsByLogin.remove(oldUser.getLogin(), oldUser.getId());
+            }
+            oldUser.setEmail(email);
+            oldUser.setLogin(login);
+            oldUser.setBirthday(birthday);
+            oldUser.setName(name);
+            return appended;
+        });
+        journal.awaitDurable(ticket);
+        log.info("Пользователь обновлён: id = {}", oldUser.getId());
         return oldUser;
     }
 
     @Override
     public void addFriend(User user, User friend) {
-        user.getFriends().add(friend.getId());
-        friend.getFriends().add(user.getId());
-        log.info("Пользователь {}, добавился в друзья пользователю {}", friend, user);
+        journal.awaitDurable(linkFriends(user, friend));
+        log.info("Пользователь {} добавился в друзья пользователю {}", friend.getId(), user.getId());
     }
 
     @Override
     public void removeFriend(User user, User friend) {
-        user.getFriends().remove(friend.getId());
-        friend.getFriends().remove(user.getId());
-        log.info("Пользователь {}, удалён из друзей пользователя {}", user, friend);
+        journal.awaitDurable(unlinkFriends(user, friend));
+        log.info("Пользователь {} удалён из друзей пользователя {}", user.getId(), friend.getId());
+    }
+
+    // В пакетах запись на диск ожидается один раз, после последнего изменения
+    @Override
+    public void addFriends(Collection<Friendship> friendships) {
+        long lastTicket = 0;
+        for (Friendship friendship : friendships) {
+            User user = users.get(friendship.userId());
+            User friend = users.get(friendship.friendId());
+            if (user != null && friend != null) {
+                lastTicket = Math.max(lastTicket, linkFriends(user, friend));
+            }
+        }
+        journal.awaitDurable(lastTicket);
+    }
+
+    @Override
+    public void removeFriends(Collection<Friendship> friendships) {
+        long lastTicket = 0;
+        for (Friendship friendship : friendships) {
+            User user = users.get(friendship.userId());
+            User friend = users.get(friendship.friendId());
+            if (user != null && friend != null) {
+                lastTicket = Math.max(lastTicket, unlinkFriends(user, friend));
+            }
+        }
+        journal.awaitDurable(lastTicket);
     }
 
     @Override
     public List<User> findFriends(User user) {
-        return user.getFriends().stream()
-                .map(users::get)
-                .collect(Collectors.toList());
+        return findUsersByIds(friendsOf(user).toLongArray());
+    }
+
+    // Страница читается из отсортированного массива друзей двоичным поиском по курсору,
+    // пользователи подгружаются только для неё
+    @Override
+    public List<User> findFriendsPage(User user, Long cursor, int limit) {
+        return findUsersByIds(friendsOf(user).page(cursor == null ? 0L : cursor, limit));
     }
 
     @Override
     public List<User> findCommonFriends(User user, User otherUser) {
-        log.info("Получен список общих друзей пользователей {}, {}", user, otherUser);
-        return user.getFriends().stream()
-                .filter(otherUser.getFriends()::contains)
-                .map(this::findUserById)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .collect(Collectors.toList());
+        log.debug("Получен список общих друзей пользователей {}, {}", user.getId(), otherUser.getId());
+        long[] commonIds = friendsOf(user).intersect(friendsOf(otherUser));
+        return findUsersByIds(commonIds);
+    }
+
+    // Идём по меньшему множеству от курсора кусками и ищем id в большем:
+    // страница не требует пересекать множества целиком
+    @Override
+    public List<User> findCommonFriendsPage(User user, User otherUser, Long cursor, int limit) {
+        SortedLongSet first = friendsOf(user);
+        SortedLongSet second = friendsOf(otherUser);
+        SortedLongSet small = first.size() <= second.size() ? first : second;
+        SortedLongSet large = small == first ? second : first;
+        long[] common = new long[limit];
+        int count = 0;
+        long after = cursor == null ? 0L : cursor;
+        while (count < limit) {
+            long[] chunk = small.page(after, limit);
+            for (int i = 0; i < chunk.length && count < limit; i++) {
+                if (large.contains(chunk[i])) {
+                    common[count++] = chunk[i];
+                }
+            }
+            if (chunk.length < limit) {
+                break;
+            }
+            after = chunk[chunk.length - 1];
+        }
+        return findUsersByIds(Arrays.copyOf(common, count));
+    }
+
+    @Override
+    public List<User> findRecommendedUsers(User user, int count) {
+        return findUsersByIds(recommender.recommend(user.getId(), count));
+    }
+
+    @Override
+    public void precomputeRecommendations(int minFriends) {
+        recommender.precompute(users.values().stream()
+                .filter(user -> user.getFriends().size() >= minFriends)
+                .mapToLong(User::getId));
     }
 
     @Override
@@ -90,12 +282,123 @@ public class InMemoryUserStorage  implements UserStorage {
         return users.containsKey(userId);
     }
 
-    private long getNextId() {
-        long currentMaxId = users.keySet()
-                .stream()
-                .mapToLong(id -> id)
-                .max()
-                .orElse(0);
-        return ++currentMaxId;
+    @Override
+    public Set<Long> findExistingUserIds(Collection<Long> userIds) {
+        return userIds.stream()
+                .filter(users::containsKey)
+                .collect(Collectors.toSet());
+    }
+
+    // Счётчики для метрик обходят хранилище: их читают раз в период сбора, а не на каждое изменение
+    @Override
+    public long countUsers() {
+        return users.size();
+    }
+
+    @Override
+    public long countFriendships() {
+        long links = 0;
+        for (SortedLongSet friends : friendSets.values()) {
+            links += friends.size();
+        }
+        return links / 2;
+    }
+
+    // Занимает почту и логин за пользователем; если что-то занято другим, ничего не занимает
+    private void reserve(long userId, String email, String login) {
+        Long emailOwner = idsByEmail.putIfAbsent(email, userId);
+        if (emailOwner != null && emailOwner != userId) {
+            throw new DuplicatedDataException("Электронная почта уже используется: " + email);
+        }
+        Long loginOwner = idsByLogin.putIfAbsent(login, userId);
+        if (loginOwner != null && loginOwner != userId) {
+            if (emailOwner == null) {
+                idsByEmail.remove(email, userId);
+            }
+            throw new DuplicatedDataException("Логин уже используется: " + login);
+        }
+    }
+
+    // Запись в журнал до изменения в памяти; если журнал отказал, освобождает только что занятые почту и логин
+    private long appendOrRelease(JournalRecord record, long userId, String email, String login) {
+        try {
+            return journal.append(record);
+        } catch (RuntimeException e) {
+            if (email != null) {
+                idsByEmail.remove(email, userId);
+            }
+            if (login != null) {
+                idsByLogin.remove(login, userId);
+            }
+            throw e;
+        }
+    }
+
+    private long linkFriends(User user, User friend) {
+        long ticket = locks.withLocks(user.getId(), friend.getId(), () -> {
+            if (user.getFriends().contains(friend.getId()) && friend.getFriends().contains(user.getId())) {
+                return 0L;
+            }
+            long appended = journal.append(new JournalRecord.FriendAdded(user.getId(), friend.getId()));
+            user.getFriends().add(friend.getId());
+            friend.getFriends().add(user.getId());
+            return appended;
+        });
+        recommender.invalidate(user.getId(), friend.getId());
+        return ticket;
+    }
+
+    private long unlinkFriends(User user, User friend) {
+        long ticket = locks.withLocks(user.getId(), friend.getId(), () -> {
+            if (!user.getFriends().contains(friend.getId()) && !friend.getFriends().contains(user.getId())) {
+                return 0L;
+            }
+            long appended = journal.append(new JournalRecord.FriendRemoved(user.getId(), friend.getId()));
+            user.getFriends().remove(friend.getId());
+            friend.getFriends().remove(user.getId());
+            return appended;
+        });
+        recommender.invalidate(user.getId(), friend.getId());
+        return ticket;
+    }
+
+    // Переносит почту и логин на пользователя при восстановлении, освобождая прежние значения
+    private void claim(long userId, User oldUser, User newUser) {
+        if (oldUser != null && !oldUser.getEmail().equals(newUser.getEmail())) {
+            idsByEmail.remove(oldUser.getEmail(), userId);
+        }
+        if (oldUser != null && !oldUser.getLogin().equals(newUser.getLogin())) {
+            idsByLogin.remove(oldUser.getLogin(), userId);
+        }
+        idsByEmail.put(newUser.getEmail(), userId);
+        idsByLogin.put(newUser.getLogin(), userId);
+    }
+
+    private void copyFields(User target, User source) {
+        target.setEmail(source.getEmail());
+        target.setLogin(source.getLogin());
+        target.setName(source.getName());
+        target.setBirthday(source.getBirthday());
+    }
+
+    private SortedLongSet friendsOf(User user) {
+        Set<Long> friends = user.getFriends();
+        return friends instanceof SortedLongSet sortedFriends ? sortedFriends : SortedLongSet.of(friends);
+    }
+
+    private SortedLongSet friendSet(long userId) {
+        SortedLongSet friends = friendSets.get(userId);
+        return friends == null ? new SortedLongSet() : friends;
+    }
+
+    private List<User> findUsersByIds(long[] ids) {
+        List<User> found = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            User user = users.get(id);
+            if (user != null) {
+                found.add(user);
+            }
+        }
+        return found;
     }
 }
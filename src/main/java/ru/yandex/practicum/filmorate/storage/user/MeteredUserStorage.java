@@ -0,0 +1,270 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.OperationTimers;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Замеряет время каждого метода хранилища пользователей (таймер {@code filmorate.storage}) и публикует
+ * число пользователей и дружб (gauge {@code filmorate.users} и {@code filmorate.friendships}).
+ */
+public class MeteredUserStorage implements UserStorage, AutoCloseable {
+
+    private final UserStorage delegate;
+    private final OperationTimers<Operation> timers;
+
+    public MeteredUserStorage(UserStorage delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.timers = new OperationTimers<>("filmorate.storage", "users", Operation.class, registry);
+        Gauge.builder("filmorate.users", this, UserStorage::countUsers).register(registry);
+        Gauge.builder("filmorate.friendships", this, UserStorage::countFriendships).register(registry);
+    }
+
+    @Override
+    public Collection<User> findAllUsers() {
+        long start = System.nanoTime();
+        try {
+            return delegate.findAllUsers();
+        } finally {
+            timers.record(Operation.FIND_ALL_USERS, start);
+        }
+    }
+
+    @Override
+    public List<User> findUsersPage(Long cursor, int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findUsersPage(cursor, limit);
+        } finally {
+            timers.record(Operation.FIND_USERS_PAGE, start);
+        }
+    }
+
+    @Override
+    public User saveUser(User user) {
+        long start = System.nanoTime();
+        try {
+            return delegate.saveUser(user);
+        } finally {
+            timers.record(Operation.SAVE_USER, start);
+        }
+    }
+
+    @Override
+    public User putUser(User user) {
+        long start = System.nanoTime();
+        try {
+            return delegate.putUser(user);
+        } finally {
+            timers.record(Operation.PUT_USER, start);
+        }
+    }
+
+    @Override
+    public Optional<User> findUserById(Long id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findUserById(id);
+        } finally {
+            timers.record(Operation.FIND_USER_BY_ID, start);
+        }
+    }
+
+    @Override
+    public Optional<User> findUserByEmail(String email) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findUserByEmail(email);
+        } finally {
+            timers.record(Operation.FIND_USER_BY_EMAIL, start);
+        }
+    }
+
+    @Override
+    public Optional<User> findUserByLogin(String login) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findUserByLogin(login);
+        } finally {
+            timers.record(Operation.FIND_USER_BY_LOGIN, start);
+        }
+    }
+
+    @Override
+    public void addFriend(User user, User friend) {
+        long start = System.nanoTime();
+        try {
+            delegate.addFriend(user, friend);
+        } finally {
+            timers.record(Operation.ADD_FRIEND, start);
+        }
+    }
+
+    @Override
+    public void removeFriend(User user, User friend) {
+        long start = System.nanoTime();
+        try {
+            delegate.removeFriend(user, friend);
+        } finally {
+            timers.record(Operation.REMOVE_FRIEND, start);
+        }
+    }
+
+    @Override
+    public void addFriends(Collection<Friendship> friendships) {
+        long start = System.nanoTime();
+        try {
+            delegate.addFriends(friendships);
+        } finally {
+            timers.record(Operation.ADD_FRIENDS, start);
+        }
+    }
+
+    @Override
+    public void removeFriends(Collection<Friendship> friendships) {
+        long start = System.nanoTime();
+        try {
+            delegate.removeFriends(friendships);
+        } finally {
+            timers.record(Operation.REMOVE_FRIENDS, start);
+        }
+    }
+
+    @Override
+    public List<User> findFriends(User user) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findFriends(user);
+        } finally {
+            timers.record(Operation.FIND_FRIENDS, start);
+        }
+    }
+
+    @Override
+    public List<User> findFriendsPage(User user, Long cursor, int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findFriendsPage(user, cursor, limit);
+        } finally {
+            timers.record(Operation.FIND_FRIENDS_PAGE, start);
+        }
+    }
+
+    @Override
+    public List<User> findCommonFriends(User user, User otherUser) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findCommonFriends(user, otherUser);
+        } finally {
+            timers.record(Operation.FIND_COMMON_FRIENDS, start);
+        }
+    }
+
+    @Override
+    public List<User> findCommonFriendsPage(User user, User otherUser, Long cursor, int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findCommonFriendsPage(user, otherUser, cursor, limit);
+        } finally {
+            timers.record(Operation.FIND_COMMON_FRIENDS_PAGE, start);
+        }
+    }
+
+    @Override
+    public List<User> findRecommendedUsers(User user, int count) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findRecommendedUsers(user, count);
+        } finally {
+            timers.record(Operation.FIND_RECOMMENDED_USERS, start);
+        }
+    }
+
+    @Override
+    public void precomputeRecommendations(int minFriends) {
+        long start = System.nanoTime();
+        try {
+            delegate.precomputeRecommendations(minFriends);
+        } finally {
+            timers.record(Operation.PRECOMPUTE_RECOMMENDATIONS, start);
+        }
+    }
+
+    @Override
+    public boolean userExists(Long userId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.userExists(userId);
+        } finally {
+            timers.record(Operation.USER_EXISTS, start);
+        }
+    }
+
+    @Override
+    public Set<Long> findExistingUserIds(Collection<Long> userIds) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findExistingUserIds(userIds);
+        } finally {
+            timers.record(Operation.FIND_EXISTING_USER_IDS, start);
+        }
+    }
+
+    @Override
+    public long countUsers() {
+        long start = System.nanoTime();
+        try {
+            return delegate.countUsers();
+        } finally {
+            timers.record(Operation.COUNT_USERS, start);
+        }
+    }
+
+    @Override
+    public long countFriendships() {
+        long start = System.nanoTime();
+        try {
+            return delegate.countFriendships();
+        } finally {
+            timers.record(Operation.COUNT_FRIENDSHIPS, start);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private enum Operation {
+        FIND_ALL_USERS,
+        FIND_USERS_PAGE,
+        SAVE_USER,
+        PUT_USER,
+        FIND_USER_BY_ID,
+        FIND_USER_BY_EMAIL,
+        FIND_USER_BY_LOGIN,
+        ADD_FRIEND,
+        REMOVE_FRIEND,
+        ADD_FRIENDS,
+        REMOVE_FRIENDS,
+        FIND_FRIENDS,
+        FIND_FRIENDS_PAGE,
+        FIND_COMMON_FRIENDS,
+        FIND_COMMON_FRIENDS_PAGE,
+        FIND_RECOMMENDED_USERS,
+        PRECOMPUTE_RECOMMENDATIONS,
+        USER_EXISTS,
+        FIND_EXISTING_USER_IDS,
+        COUNT_USERS,
+        COUNT_FRIENDSHIPS
+    }
+}
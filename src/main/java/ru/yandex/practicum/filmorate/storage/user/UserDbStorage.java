@@ -0,0 +1,323 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.config.StorageConfig;
+import ru.yandex.practicum.filmorate.exceptions.DuplicatedDataException;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.SortedLongSet;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Slf4j
+@Component
+@Qualifier(StorageConfig.USER_BACKEND)
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "jdbc")
+public class UserDbStorage implements UserStorage {
+
+    private static final String SELECT_USERS = "SELECT u.id, u.email, u.login, u.name, u.birthday FROM users u ";
+    private static final String INSERT_FRIENDSHIP = "INSERT INTO friendships (user_id, friend_id) "
+            + "SELECT :userId, :friendId WHERE NOT EXISTS "
+            + "(SELECT 1 FROM friendships WHERE user_id = :userId AND friend_id = :friendId)";
+    private static final String DELETE_FRIENDSHIP =
+            "DELETE FROM friendships WHERE user_id = :userId AND friend_id = :friendId";
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public UserDbStorage(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @Override
+    public Collection<User> findAllUsers() {
+        List<User> users = jdbc.query(SELECT_USERS + "ORDER BY u.id", this::mapUser);
+        Map<Long, SortedLongSet> friends = new HashMap<>();
+        jdbc.query("SELECT user_id, friend_id FROM friendships ORDER BY user_id, friend_id", rs -> {
+            friends.computeIfAbsent(rs.getLong("user_id"), id -> new SortedLongSet()).add(rs.getLong("friend_id"));
+        });
+        users.forEach(user -> user.setFriends(friends.getOrDefault(user.getId(), new SortedLongSet())));
+        return users;
+    }
+
+    @Override
+    public List<User> findUsersPage(Long cursor, int limit) {
+        List<User> users = jdbc.query(SELECT_USERS + "WHERE u.id > :cursor ORDER BY u.id LIMIT :limit",
+                new MapSqlParameterSource()
+                        .addValue("cursor", cursor == null ? 0L : cursor)
+                        .addValue("limit", limit),
+                this::mapUser);
+        return withFriends(users);
+    }
+
+    @Override
+    public User saveUser(User user) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        try {
+            jdbc.update("INSERT INTO users (email, login, name, birthday) VALUES (:email, :login, :name, :birthday)",
+                    userParameters(user), keyHolder, new String[]{"id"});
+        } catch (DuplicateKeyException e) {
+            throw duplicated(user.getEmail(), user.getLogin(), null);
+        }
+        user.setId(keyHolder.getKeyAs(Long.class));
+        user.setFriends(new SortedLongSet());
+        log.info("Пользователь добавлен: id = {}", user.getId());
+        return user;
+    }
+
+    @Override
+    public User putUser(User newUser) {
+        User oldUser = findUserById(newUser.getId()).orElseThrow();
+        if (newUser.getEmail() != null) {
+            oldUser.setEmail(newUser.getEmail());
+        }
+        if (newUser.getLogin() != null) {
+            oldUser.setLogin(newUser.getLogin());
+        }
+        if (newUser.getBirthday() != null) {
+            oldUser.setBirthday(newUser.getBirthday());
+        }
+        if (newUser.getName() != null) {
+            oldUser.setName(newUser.getName());
+        }
+        if (newUser.getName() == null || newUser.getName().isBlank()) {
+            oldUser.setName(newUser.getLogin());
+        }
+        try {
+            jdbc.update("UPDATE users SET email = :email, login = :login, name = :name, birthday = :birthday "
+                            + "WHERE id = :id",
+                    userParameters(oldUser).addValue("id", oldUser.getId()));
+        } catch (DuplicateKeyException e) {
+            throw duplicated(oldUser.getEmail(), oldUser.getLogin(), oldUser.getId());
+        }
+        log.info("Пользователь обновлён: id = {}", oldUser.getId());
+        return oldUser;
+    }
+
+    @Override
+    public Optional<User> findUserById(Long id) {
+        List<User> users = jdbc.query(SELECT_USERS + "WHERE u.id = :id",
+                new MapSqlParameterSource("id", id), this::mapUser);
+        return withFriends(users).stream().findFirst();
+    }
+
+    @Override
+    public Optional<User> findUserByEmail(String email) {
+        return withFriends(jdbc.query(SELECT_USERS + "WHERE u.email = :email",
+                new MapSqlParameterSource("email", email), this::mapUser)).stream().findFirst();
+    }
+
+    @Override
+    public Optional<User> findUserByLogin(String login) {
+        return withFriends(jdbc.query(SELECT_USERS + "WHERE u.login = :login",
+                new MapSqlParameterSource("login", login), this::mapUser)).stream().findFirst();
+    }
+
+    @Override
+    @Transactional
+    public void addFriend(User user, User friend) {
+        jdbc.batchUpdate(INSERT_FRIENDSHIP, friendshipParameters(List.of(new Friendship(user.getId(), friend.getId()))));
+        user.getFriends().add(friend.getId());
+        friend.getFriends().add(user.getId());
+        log.info("Пользователь {} добавился в друзья пользователю {}", friend.getId(), user.getId());
+    }
+
+    @Override
+    @Transactional
+    public void removeFriend(User user, User friend) {
+        jdbc.batchUpdate(DELETE_FRIENDSHIP, friendshipParameters(List.of(new Friendship(user.getId(), friend.getId()))));
+        user.getFriends().remove(friend.getId());
+        friend.getFriends().remove(user.getId());
+        log.info("Пользователь {} удалён из друзей пользователя {}", user.getId(), friend.getId());
+    }
+
+    @Override
+    @Transactional
+    public void addFriends(Collection<Friendship> friendships) {
+        if (!friendships.isEmpty()) {
+            jdbc.batchUpdate(INSERT_FRIENDSHIP, friendshipParameters(friendships));
+        }
+    }
+
+    @Override
+    @Transactional
+    public void removeFriends(Collection<Friendship> friendships) {
+        if (!friendships.isEmpty()) {
+            jdbc.batchUpdate(DELETE_FRIENDSHIP, friendshipParameters(friendships));
+        }
+    }
+
+    @Override
+    public List<User> findFriends(User user) {
+        List<User> friends = jdbc.query(SELECT_USERS
+                        + "JOIN friendships f ON f.friend_id = u.id "
+                        + "WHERE f.user_id = :userId ORDER BY u.id",
+                new MapSqlParameterSource("userId", user.getId()), this::mapUser);
+        return withFriends(friends);
+    }
+
+    @Override
+    public List<User> findFriendsPage(User user, Long cursor, int limit) {
+        List<User> friends = jdbc.query(SELECT_USERS
+                        + "JOIN friendships f ON f.friend_id = u.id "
+                        + "WHERE f.user_id = :userId AND u.id > :cursor ORDER BY u.id LIMIT :limit",
+                new MapSqlParameterSource()
+                        .addValue("userId", user.getId())
+                        .addValue("cursor", cursor == null ? 0L : cursor)
+                        .addValue("limit", limit),
+                this::mapUser);
+        return withFriends(friends);
+    }
+
+    @Override
+    public List<User> findCommonFriends(User user, User otherUser) {
+        log.debug("Получен список общих друзей пользователей {}, {}", user.getId(), otherUser.getId());
+        List<User> commonFriends = jdbc.query(SELECT_USERS
+                        + "JOIN friendships f1 ON f1.friend_id = u.id "
+                        + "JOIN friendships f2 ON f2.friend_id = f1.friend_id "
+                        + "WHERE f1.user_id = :userId AND f2.user_id = :otherId ORDER BY u.id",
+                new MapSqlParameterSource()
+                        .addValue("userId", user.getId())
+                        .addValue("otherId", otherUser.getId()),
+                this::mapUser);
+        return withFriends(commonFriends);
+    }
+
+    @Override
+    public List<User> findCommonFriendsPage(User user, User otherUser, Long cursor, int limit) {
+        List<User> commonFriends = jdbc.query(SELECT_USERS
+                        + "JOIN friendships f1 ON f1.friend_id = u.id "
+                        + "JOIN friendships f2 ON f2.friend_id = f1.friend_id "
+                        + "WHERE f1.user_id = :userId AND f2.user_id = :otherId AND u.id > :cursor "
+                        + "ORDER BY u.id LIMIT :limit",
+                new MapSqlParameterSource()
+                        .addValue("userId", user.getId())
+                        .addValue("otherId", otherUser.getId())
+                        .addValue("cursor", cursor == null ? 0L : cursor)
+                        .addValue("limit", limit),
+                this::mapUser);
+        return withFriends(commonFriends);
+    }
+
+    @Override
+    public List<User> findRecommendedUsers(User user, int count) {
+        List<Long> ids = jdbc.queryForList("SELECT f2.friend_id FROM friendships f1 "
+                        + "JOIN friendships f2 ON f2.user_id = f1.friend_id "
+                        + "WHERE f1.user_id = :userId AND f2.friend_id <> :userId "
+                        + "AND NOT EXISTS (SELECT 1 FROM friendships f3 "
+                        + "WHERE f3.user_id = :userId AND f3.friend_id = f2.friend_id) "
+                        + "GROUP BY f2.friend_id ORDER BY COUNT(*) DESC, f2.friend_id LIMIT :count",
+                new MapSqlParameterSource()
+                        .addValue("userId", user.getId())
+                        .addValue("count", count),
+                Long.class);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, User> usersById = jdbc.query(SELECT_USERS + "WHERE u.id IN (:ids)",
+                        new MapSqlParameterSource("ids", ids), this::mapUser).stream()
+                .collect(Collectors.toMap(User::getId, found -> found));
+        return withFriends(ids.stream()
+                .map(usersById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public void precomputeRecommendations(int minFriends) {
+        // База считает рекомендации одним запросом по индексам, заранее считать нечего
+    }
+
+    @Override
+    public boolean userExists(Long userId) {
+        return Boolean.TRUE.equals(jdbc.queryForObject("SELECT EXISTS (SELECT 1 FROM users WHERE id = :id)",
+                new MapSqlParameterSource("id", userId), Boolean.class));
+    }
+
+    @Override
+    public Set<Long> findExistingUserIds(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(jdbc.queryForList("SELECT id FROM users WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", userIds), Long.class));
+    }
+
+    @Override
+    public long countUsers() {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM users", new MapSqlParameterSource(), Long.class);
+    }
+
+    // Каждая дружба хранится двумя строками
+    @Override
+    public long countFriendships() {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM friendships", new MapSqlParameterSource(), Long.class) / 2;
+    }
+
+    // Уникальность проверяет база; занятое поле определяется по владельцу почты
+    private DuplicatedDataException duplicated(String email, String login, Long userId) {
+        boolean emailTaken = findUserByEmail(email)
+                .filter(owner -> !owner.getId().equals(userId))
+                .isPresent();
+        return new DuplicatedDataException(emailTaken
+                ? "Электронная почта уже используется: " + email
+                : "Логин уже используется: " + login);
+    }
+
+    // Друзья всех пользователей выборки одним запросом вместо запроса на каждого
+    private List<User> withFriends(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        Map<Long, User> usersById = users.stream()
+                .collect(Collectors.toMap(User::getId, user -> user));
+        jdbc.query("SELECT user_id, friend_id FROM friendships WHERE user_id IN (:ids)",
+                new MapSqlParameterSource("ids", usersById.keySet()),
+                rs -> {
+                    usersById.get(rs.getLong("user_id")).getFriends().add(rs.getLong("friend_id"));
+                });
+        return users;
+    }
+
+    private User mapUser(ResultSet rs, int rowNum) throws SQLException {
+        Date birthday = rs.getDate("birthday");
+        User user = new User(rs.getLong("id"), rs.getString("email"), rs.getString("login"),
+                rs.getString("name"), birthday == null ? null : birthday.toLocalDate());
+        user.setFriends(new SortedLongSet());
+        return user;
+    }
+
+    private MapSqlParameterSource userParameters(User user) {
+        return new MapSqlParameterSource()
+                .addValue("email", user.getEmail())
+                .addValue("login", user.getLogin())
+                .addValue("name", user.getName())
+                .addValue("birthday", user.getBirthday());
+    }
+
+    // Каждая дружба — две строки, по одной в каждую сторону
+    private MapSqlParameterSource[] friendshipParameters(Collection<Friendship> friendships) {
+        return friendships.stream()
+                .flatMap(friendship -> Stream.of(
+                        new MapSqlParameterSource()
+                                .addValue("userId", friendship.userId())
+                                .addValue("friendId", friendship.friendId()),
+                        new MapSqlParameterSource()
+                                .addValue("userId", friendship.friendId())
+                                .addValue("friendId", friendship.userId())))
+                .toArray(MapSqlParameterSource[]::new);
+    }
+}
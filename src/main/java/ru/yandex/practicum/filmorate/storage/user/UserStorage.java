@@ -1,28 +1,67 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
+/**
+ * Электронная почта и логин пользователя уникальны: {@link #saveUser} и {@link #putUser}
+ * бросают {@link ru.yandex.practicum.filmorate.exceptions.DuplicatedDataException}, если они заняты.
+ */
 public interface UserStorage {
 
     Collection<User> findAllUsers();
 
+    List<User> findUsersPage(Long cursor, int limit);
+
     User saveUser(User user);
 
     User putUser(User user);
 
     Optional<User> findUserById(Long id);
 
+    Optional<User> findUserByEmail(String email);
+
+    Optional<User> findUserByLogin(String login);
+
     void addFriend(User user, User friend);
 
     void removeFriend(User user, User friend);
 
+    void addFriends(Collection<Friendship> friendships);
+
+    void removeFriends(Collection<Friendship> friendships);
+
     List<User> findFriends(User user);
 
+    /**
+     * Друзья с id больше {@code cursor}, по возрастанию id, не больше {@code limit}.
+     */
+    List<User> findFriendsPage(User user, Long cursor, int limit);
+
     List<User> findCommonFriends(User user, User otherUser);
 
+    /**
+     * Общие друзья с id больше {@code cursor}, по возрастанию id, не больше {@code limit}.
+     */
+    List<User> findCommonFriendsPage(User user, User otherUser, Long cursor, int limit);
+
+    List<User> findRecommendedUsers(User user, int count);
+
+    void precomputeRecommendations(int minFriends);
+
     boolean userExists(Long userId);
+
+    Set<Long> findExistingUserIds(Collection<Long> userIds);
+
+    long countUsers();
+
+    /**
+     * Число дружб; дружба взаимная и считается один раз.
+     */
+    long countFriendships();
 }
@@ -0,0 +1,51 @@
+CREATE TABLE IF NOT EXISTS films (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name         VARCHAR(255) NOT NULL,
+    description  VARCHAR(200),
+    release_date DATE,
+    duration     BIGINT,
+    like_count   INT          NOT NULL DEFAULT 0
+);
+
+-- /films/popular читает первые строки этого индекса
+CREATE INDEX IF NOT EXISTS films_popularity_idx ON films (like_count DESC, id);
+
+-- /films/popular?year=&from=&to=&maxDuration= читает диапазон одного из индексов
+CREATE INDEX IF NOT EXISTS films_release_date_idx ON films (release_date, like_count);
+CREATE INDEX IF NOT EXISTS films_duration_idx ON films (duration, like_count);
+
+CREATE TABLE IF NOT EXISTS users (
+    id       BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email    VARCHAR(255) NOT NULL,
+    login    VARCHAR(255) NOT NULL,
+    name     VARCHAR(255),
+    birthday DATE
+);
+
+-- Почта и логин уникальны: проверка дубликата — поиск по индексу, а не перебор пользователей
+CREATE UNIQUE INDEX IF NOT EXISTS users_email_idx ON users (email);
+CREATE UNIQUE INDEX IF NOT EXISTS users_login_idx ON users (login);
+
+CREATE TABLE IF NOT EXISTS likes (
+    film_id    BIGINT    NOT NULL REFERENCES films (id),
+    user_id    BIGINT    NOT NULL REFERENCES users (id),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (film_id, user_id)
+);
+
+-- Базы, созданные до появления времени лайка
+ALTER TABLE likes ADD COLUMN IF NOT EXISTS created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+
+CREATE INDEX IF NOT EXISTS likes_user_idx ON likes (user_id, film_id);
+
+-- /films/popular?window= читает лайки за последний период
+CREATE INDEX IF NOT EXISTS likes_created_idx ON likes (created_at, film_id);
+
+-- Дружба взаимная и хранится двумя строками: (user_id, friend_id) и (friend_id, user_id)
+CREATE TABLE IF NOT EXISTS friendships (
+    user_id   BIGINT NOT NULL REFERENCES users (id),
+    friend_id BIGINT NOT NULL REFERENCES users (id),
+    PRIMARY KEY (user_id, friend_id)
+);
+
+CREATE INDEX IF NOT EXISTS friendships_friend_idx ON friendships (friend_id, user_id);
@@ -0,0 +1,159 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.config.CacheProperties;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.CachingUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachingStorageTests {
+
+    private final CacheProperties properties = new CacheProperties(true, 100,
+            CacheProperties.WriteMode.WRITE_BEHIND, Duration.ofHours(1), 2, 1000);
+    private SimpleMeterRegistry registry;
+    private InMemoryFilmStorage filmDelegate;
+    private InMemoryUserStorage userDelegate;
+    private CachingFilmStorage filmStorage;
+    private CachingUserStorage userStorage;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        filmDelegate = new InMemoryFilmStorage();
+        userDelegate = new InMemoryUserStorage();
+        filmStorage = new CachingFilmStorage(filmDelegate, properties, registry);
+        userStorage = new CachingUserStorage(userDelegate, properties, registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        filmStorage.close();
+        userStorage.close();
+    }
+
+    @Test
+    void likesAreBufferedUntilFlushTest() {
+        Film first = filmStorage.saveFilm(film("First"));
+        Film second = filmStorage.saveFilm(film("Second"));
+        filmStorage.putLike(second, 1L);
+        filmStorage.putLike(second, 2L);
+        filmStorage.putLike(first, 3L);
+        filmStorage.removeLike(first, 3L);
+
+        assertEquals(Set.of(1L, 2L), filmStorage.findFilmById(second.getId()).orElseThrow().getLikes());
+        assertEquals(List.of(first.getId(), second.getId()),
+                filmDelegate.findMostPopularFilms(10).stream().map(Film::getId).toList());
+        assertEquals(List.of(second.getId(), first.getId()),
+                filmStorage.findMostPopularFilms(10).stream().map(Film::getId).toList());
+        assertEquals(3.0, registry.get("filmorate.cache.flushed.mutations").tag("buffer", "likes").counter().count());
+    }
+
+    @Test
+    void friendshipChangesCoalesceTest() {
+        User user = userStorage.saveUser(user("user"));
+        User friend = userStorage.saveUser(user("friend"));
+        User other = userStorage.saveUser(user("other"));
+        userStorage.addFriend(user, friend);
+        userStorage.removeFriend(friend, user);
+        userStorage.addFriend(user, other);
+
+        assertEquals(Set.of(other.getId()), userStorage.findUserById(user.getId()).orElseThrow().getFriends());
+        userStorage.flush();
+        assertEquals(Set.of(other.getId()), userDelegate.findUserById(user.getId()).orElseThrow().getFriends());
+        assertEquals(Set.of(), userDelegate.findUserById(friend.getId()).orElseThrow().getFriends());
+        assertEquals(2.0, registry.get("filmorate.cache.flushed.mutations").tag("buffer", "friendships")
+                .counter().count());
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "users").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void likeDuringCacheMissIsNotLostTest() throws InterruptedException {
+        AtomicReference<CachingFilmStorage> cache = new AtomicReference<>();
+        AtomicReference<Thread> like = new AtomicReference<>();
+        InMemoryFilmStorage slowDelegate = new InMemoryFilmStorage() {
+            @Override
+            public Optional<Film> findFilmById(Long filmId) {
+                Optional<Film> found = super.findFilmById(filmId);
+                // Лайк приходит между чтением хранилища и записью в кэш
+                Thread thread = new Thread(() -> cache.get().putLikes(List.of(new FilmLike(filmId, 7L))));
+                like.set(thread);
+                thread.start();
+                try {
+                    thread.join(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return found;
+            }
+        };
+        Film saved = slowDelegate.saveFilm(film("Film"));
+        try (CachingFilmStorage storage = new CachingFilmStorage(slowDelegate, properties, registry)) {
+            cache.set(storage);
+            storage.findFilmById(saved.getId());
+            like.get().join();
+
+            assertEquals(Set.of(7L), storage.findFilmById(saved.getId()).orElseThrow().getLikes());
+        }
+    }
+
+    @Test
+    void listReadsSeeBufferedChangesWithoutFlushTest() {
+        User user = userStorage.saveUser(user("user"));
+        User friend = userStorage.saveUser(user("friend"));
+        // Записаны мимо кэша: их копий в кэше нет
+        User stranger = userDelegate.saveUser(user("stranger"));
+        Film film = filmDelegate.saveFilm(film("Film"));
+        userStorage.addFriend(user, friend);
+        userStorage.addFriends(List.of(new Friendship(stranger.getId(), friend.getId())));
+        filmStorage.putLikes(List.of(new FilmLike(film.getId(), user.getId())));
+
+        assertEquals(Set.of(friend.getId()), userStorage.findAllUsers().stream()
+                .filter(found -> found.getId().equals(stranger.getId()))
+                .findFirst().orElseThrow().getFriends());
+        assertEquals(List.of(friend.getId()), ids(userStorage.findFriends(user)));
+        assertEquals(List.of(user.getId(), stranger.getId()), ids(userStorage.findFriendsPage(friend, null, 10)));
+        assertEquals(List.of(friend.getId()), ids(userStorage.findCommonFriends(user, stranger)));
+        assertEquals(List.of(user.getId()), filmStorage.findLikesPage(film.getId(), null, 10));
+        assertEquals(1, filmStorage.findFilmSummariesPage(null, 10).get(0).likeCount());
+
+        assertEquals(Set.of(), userDelegate.findUserById(friend.getId()).orElseThrow().getFriends());
+        assertEquals(Set.of(), filmDelegate.findFilmById(film.getId()).orElseThrow().getLikes());
+        assertEquals(0.0, registry.get("filmorate.cache.flushes").tag("buffer", "friendships").counter().count());
+        assertEquals(0.0, registry.get("filmorate.cache.flushes").tag("buffer", "likes").counter().count());
+    }
+
+    private List<Long> ids(List<User> users) {
+        return users.stream().map(User::getId).toList();
+    }
+
+    private Film film(String name) {
+        return Film.builder()
+                .name(name)
+                .description("Censored")
+                .releaseDate(LocalDate.of(2024, 10, 18))
+                .duration(Duration.ofMinutes(139))
+                .build();
+    }
+
+    private User user(String login) {
+        return new User(login + "@mail.ru", login, login, LocalDate.of(1990, 1, 1));
+    }
+}
@@ -0,0 +1,191 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import ru.yandex.practicum.filmorate.exceptions.DuplicatedDataException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest(properties = "filmorate.storage=jdbc")
+@Import({FilmDbStorage.class, UserDbStorage.class})
+public class DbStorageTests {
+
+    @Autowired
+    private FilmDbStorage filmStorage;
+    @Autowired
+    private UserDbStorage userStorage;
+
+    @Test
+    void saveAndUpdateFilmTest() {
+        Film film = filmStorage.saveFilm(film("Anora"));
+        Film update = Film.builder()
+                .id(film.getId())
+                .name("Anora2")
+                .build();
+        filmStorage.putFilm(update);
+
+        Film found = filmStorage.findFilmById(film.getId()).orElseThrow();
+        assertEquals("Anora2", found.getName());
+        assertEquals("Censored", found.getDescription());
+        assertEquals(Duration.ofMinutes(139), found.getDuration());
+        assertTrue(filmStorage.hasFilmsId(film.getId()));
+        assertFalse(filmStorage.hasFilmsId(film.getId() + 1000));
+    }
+
+    @Test
+    void mostPopularFilmsTest() {
+        User first = userStorage.saveUser(user("first"));
+        User second = userStorage.saveUser(user("second"));
+        Film unpopular = filmStorage.saveFilm(film("Unpopular"));
+        Film popular = filmStorage.saveFilm(film("Popular"));
+        Film liked = filmStorage.saveFilm(film("Liked"));
+        filmStorage.putLike(popular, first.getId());
+        filmStorage.putLike(popular, second.getId());
+        filmStorage.putLike(popular, second.getId());
+        filmStorage.putLike(liked, first.getId());
+        filmStorage.putLike(unpopular, first.getId());
+        filmStorage.removeLike(unpopular, first.getId());
+
+        List<Film> films = filmStorage.findMostPopularFilms(10);
+        assertEquals(List.of(popular.getId(), liked.getId(), unpopular.getId()),
+                films.stream().map(Film::getId).toList());
+        assertEquals(Set.of(first.getId(), second.getId()), films.getFirst().getLikes());
+        assertEquals(List.of(liked.getId()),
+                filmStorage.findRecommendedFilms(second.getId(), 10).stream().map(Film::getId).toList());
+        assertEquals(List.of(popular.getId(), liked.getId()),
+                filmStorage.findTrendingFilms(Duration.ofHours(1), 10).stream().map(Film::getId).toList());
+        assertEquals(List.of(popular.getId()),
+                filmStorage.searchFilms("pop", 10).stream().map(Film::getId).toList());
+        assertEquals(List.of(popular.getId(), liked.getId(), unpopular.getId()),
+                filmStorage.searchFilms("cens", 10).stream().map(Film::getId).toList());
+        assertEquals(List.of(2, 1, 0), filmStorage.findMostPopularFilmSummaries(10, null).stream()
+                .map(FilmSummary::likeCount).toList());
+        assertEquals(2, filmStorage.findFilmSummaryById(popular.getId()).orElseThrow().likeCount());
+        assertEquals(List.of(second.getId()), filmStorage.findLikesPage(popular.getId(), first.getId(), 10));
+        assertEquals(List.of(popular.getId(), liked.getId()), filmStorage.findMostPopularFilms(2,
+                new FilmFilter(LocalDate.of(2024, 1, 1), null, Duration.ofMinutes(139))).stream()
+                .map(Film::getId).toList());
+        assertTrue(filmStorage.findMostPopularFilms(10, new FilmFilter(null, null, Duration.ofMinutes(100))).isEmpty());
+        assertEquals(List.of(2, 1, 0), filmStorage.findMostPopularFilmSummaries(10,
+                new FilmFilter(null, LocalDate.of(2030, 1, 1), null)).stream().map(FilmSummary::likeCount).toList());
+        assertTrue(filmStorage.findMostPopularFilmSummaries(10,
+                new FilmFilter(LocalDate.of(2030, 1, 1), null, null)).isEmpty());
+    }
+
+    @Test
+    void batchLikesChangeCountByAppliedRowsTest() {
+        User first = userStorage.saveUser(user("first"));
+        User second = userStorage.saveUser(user("second"));
+        Film film = filmStorage.saveFilm(film("Anora"));
+        Film other = filmStorage.saveFilm(film("Flow"));
+        filmStorage.putLike(film, first.getId());
+
+        // Уже поставленный и повторённый в пакете лайки счётчик не увеличивают
+        filmStorage.putLikes(List.of(new FilmLike(film.getId(), first.getId()),
+                new FilmLike(film.getId(), second.getId()), new FilmLike(film.getId(), second.getId()),
+                new FilmLike(other.getId(), second.getId())));
+        assertEquals(2, filmStorage.findFilmSummaryById(film.getId()).orElseThrow().likeCount());
+        assertEquals(1, filmStorage.findFilmSummaryById(other.getId()).orElseThrow().likeCount());
+
+        filmStorage.removeLikes(List.of(new FilmLike(film.getId(), first.getId()),
+                new FilmLike(other.getId(), first.getId())));
+        assertEquals(1, filmStorage.findFilmSummaryById(film.getId()).orElseThrow().likeCount());
+        assertEquals(1, filmStorage.findFilmSummaryById(other.getId()).orElseThrow().likeCount());
+    }
+
+    @Test
+    void searchMatchesInMemoryStorageTest() {
+        InMemoryFilmStorage memoryStorage = new InMemoryFilmStorage();
+        User first = userStorage.saveUser(user("first"));
+        User second = userStorage.saveUser(user("second"));
+        for (FilmStorage storage : List.of(filmStorage, memoryStorage)) {
+            Film matrix = storage.saveFilm(film("Matrix", "Neo wakes up in the matrix"));
+            storage.saveFilm(film("Matrix Reloaded", "Neo returns"));
+            Film unmatched = storage.saveFilm(film("Unmatched", "A matrix fan film"));
+            storage.saveFilm(film("Ёлки", "Новогодняя комедия"));
+            storage.saveFilm(film("Pop-up", "Popcorn movie about pop art"));
+            storage.putLike(unmatched, first.getId());
+            storage.putLike(unmatched, second.getId());
+            storage.putLike(matrix, first.getId());
+        }
+
+        for (String query : List.of("mat", "matrix neo", "елки", "ЁЛКИ", "pop", "corn", "po mo", "re")) {
+            assertEquals(names(memoryStorage.searchFilms(query, 10)), names(filmStorage.searchFilms(query, 10)),
+                    query);
+        }
+        assertEquals(List.of("Matrix", "Matrix Reloaded", "Unmatched"), names(filmStorage.searchFilms("mat", 10)));
+        assertEquals(List.of("Ёлки"), names(filmStorage.searchFilms("елки", 10)));
+        assertEquals(List.of(), names(filmStorage.searchFilms("corn", 10)));
+    }
+
+    @Test
+    void friendsAndCommonFriendsTest() {
+        User user = userStorage.saveUser(user("user"));
+        User other = userStorage.saveUser(user("other"));
+        User common = userStorage.saveUser(user("common"));
+        userStorage.addFriend(user, common);
+        userStorage.addFriend(other, common);
+        userStorage.addFriend(user, other);
+        userStorage.removeFriend(user, other);
+
+        assertEquals(List.of(common.getId()),
+                userStorage.findFriends(user).stream().map(User::getId).toList());
+        assertEquals(List.of(common.getId()),
+                userStorage.findCommonFriends(user, other).stream().map(User::getId).toList());
+        assertEquals(List.of(user.getId()),
+                userStorage.findFriendsPage(common, null, 1).stream().map(User::getId).toList());
+        assertEquals(List.of(other.getId()),
+                userStorage.findFriendsPage(common, user.getId(), 10).stream().map(User::getId).toList());
+        assertEquals(List.of(common.getId()), userStorage.findCommonFriendsPage(user, other, null, 10).stream()
+                .map(User::getId).toList());
+        assertTrue(userStorage.findCommonFriendsPage(user, other, common.getId(), 10).isEmpty());
+        assertEquals(Set.of(user.getId(), other.getId()),
+                userStorage.findUserById(common.getId()).orElseThrow().getFriends());
+        assertEquals(List.of(other.getId()),
+                userStorage.findRecommendedUsers(user, 10).stream().map(User::getId).toList());
+        assertEquals(other.getId(), userStorage.findUserByEmail(other.getEmail()).orElseThrow().getId());
+        assertEquals(common.getId(), userStorage.findUserByLogin(common.getLogin()).orElseThrow().getId());
+        assertThrows(DuplicatedDataException.class, () -> userStorage.saveUser(user("user")));
+        User renamed = new User(other.getId(), other.getEmail(), common.getLogin(), null, null);
+        assertThrows(DuplicatedDataException.class, () -> userStorage.putUser(renamed));
+    }
+
+    private Film film(String name, String description) {
+        return film(name).toBuilder()
+                .description(description)
+                .build();
+    }
+
+    private List<String> names(List<Film> films) {
+        return films.stream().map(Film::getName).toList();
+    }
+
+    private Film film(String name) {
+        return Film.builder()
+                .name(name)
+                .description("Censored")
+                .releaseDate(LocalDate.of(2024, 10, 18))
+                .duration(Duration.ofMinutes(139))
+                .build();
+    }
+
+    private User user(String login) {
+        return new User(login + "@mail.ru", login, login, LocalDate.of(1990, 1, 1));
+    }
+}
@@ -1,32 +1,65 @@
 package ru.yandex.practicum.filmorate;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.request.ServletWebRequest;
 import ru.yandex.practicum.filmorate.controller.FilmController;
+import ru.yandex.practicum.filmorate.controller.RecommendedFilmsController;
+import ru.yandex.practicum.filmorate.errorhandler.ErrorHandler;
 import ru.yandex.practicum.filmorate.exceptions.ConditionsNotMetException;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.MeteredFilmService;
+import ru.yandex.practicum.filmorate.storage.AtomicIdGenerator;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.MeteredFilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.MeteredUserStorage;
 
-import java.time.Duration;
-import java.time.LocalDate;
+import java.io.IOException;
+import java.time.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 public class FilmControllerTests {
 
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
     private FilmController filmController;
+    private InMemoryUserStorage userStorage;
 
     @BeforeEach
     void setUp() {
-        filmController = new FilmController(new FilmService(new InMemoryFilmStorage(), new InMemoryUserStorage()));
+        userStorage = new InMemoryUserStorage();
+        filmController = new FilmController(new FilmService(new InMemoryFilmStorage(), userStorage), objectMapper,
+                new SimpleMeterRegistry());
     }
 
     @Test
@@ -163,5 +196,424 @@ public class FilmControllerTests {
             filmController.updateFilm(film2);
         });
     }
-}
 
+    @Test
+    void mostPopularFilmsOrderTest() throws IOException {
+        for (int i = 1; i <= 4; i++) {
+            filmController.addFilm(Film.builder()
+                    .name("Film" + i)
+                    .description("Censored")
+                    .releaseDate(LocalDate.of(2024, 10, 18))
+                    .duration(Duration.ofMinutes(139))
+                    .build());
+            userStorage.saveUser(new User("user" + i + "@mail.ru", "user" + i, "User", LocalDate.of(1990, 1, 1)));
+        }
+        filmController.addLikeToFilm(3L, 1L);
+        filmController.addLikeToFilm(3L, 2L);
+        filmController.addLikeToFilm(2L, 1L);
+        filmController.addLikeToFilm(4L, 1L);
+        filmController.addLikeToFilm(4L, 2L);
+        filmController.addLikeToFilm(4L, 3L);
+        filmController.deleteLikeFromFilm(4L, 3L);
+        filmController.deleteLikeFromFilm(4L, 2L);
+
+        List<Long> popularIds = popularIds(filmController, 10);
+        assertEquals(List.of(3L, 2L, 4L, 1L), popularIds);
+        assertEquals(2, popularIds(filmController, 2).size());
+        assertThrows(ValidationException.class, () -> popularIds(filmController, 0));
+        assertThrows(ValidationException.class, () -> popularIds(filmController, Integer.MAX_VALUE));
+        assertThrows(ValidationException.class,
+                () -> filmController.getPopularFilmSummaries(-1, null, null, null, null));
+    }
+
+    @Test
+    void concurrentLikesTest() throws InterruptedException, IOException {
+        filmController.addFilm(Film.builder()
+                .name("Anora")
+                .description("Censored")
+                .releaseDate(LocalDate.of(2024, 10, 18))
+                .duration(Duration.ofMinutes(139))
+                .build());
+        for (int i = 1; i <= 500; i++) {
+            userStorage.saveUser(new User("user" + i + "@mail.ru", "user" + i, "User", LocalDate.of(1990, 1, 1)));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (long userId = 1; userId <= 500; userId++) {
+            long id = userId;
+            executor.submit(() -> filmController.addLikeToFilm(1L, id));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        byte[] film = filmController.getFilmById(1L, request(null, null));
+        assertEquals(500, objectMapper.readTree(film).get("likes").size());
+        assertEquals(1, popularIds(filmController, 10).size());
+    }
+
+    @Test
+    void notModifiedFilmTest() {
+        filmController.addFilm(Film.builder()
+                .name("Anora")
+                .description("Censored")
+                .releaseDate(LocalDate.of(2024, 10, 18))
+                .duration(Duration.ofMinutes(139))
+                .build());
+        userStorage.saveUser(new User("user@mail.ru", "user", "User", LocalDate.of(1990, 1, 1)));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertNotNull(filmController.getFilmById(1L, request(null, response)));
+        String etag = response.getHeader(HttpHeaders.ETAG);
+        response = new MockHttpServletResponse();
+        filmController.getPopularFilmsList(10, null, null, null, null, request(null, response));
+        String popularEtag = response.getHeader(HttpHeaders.ETAG);
+
+        response = new MockHttpServletResponse();
+        assertNull(filmController.getFilmById(1L, request(etag, response)));
+        assertEquals(304, response.getStatus());
+        assertNull(filmController.getPopularFilmsList(10, null, null, null, null, request(popularEtag, null)));
+
+        filmController.addLikeToFilm(1L, 1L);
+        response = new MockHttpServletResponse();
+        assertNotNull(filmController.getFilmById(1L, request(etag, response)));
+        assertNotEquals(etag, response.getHeader(HttpHeaders.ETAG));
+        assertNotNull(filmController.getPopularFilmsList(10, null, null, null, null, request(popularEtag, null)));
+        assertThrows(NotFoundException.class, () -> filmController.getFilmById(2L, request(etag, null)));
+    }
+
+    @Test
+    void summaryViewTest() {
+        for (int i = 1; i <= 2; i++) {
+            filmController.addFilm(Film.builder()
+                    .name("Film" + i)
+                    .description("Censored")
+                    .releaseDate(LocalDate.of(2024, 10, 18))
+                    .duration(Duration.ofMinutes(139))
+                    .build());
+        }
+        for (int i = 1; i <= 5; i++) {
+            userStorage.saveUser(new User("user" + i + "@mail.ru", "user" + i, "User", LocalDate.of(1990, 1, 1)));
+            filmController.addLikeToFilm(2L, (long) i);
+        }
+
+        FilmSummary summary = filmController.getFilmSummaryById(2L);
+        assertEquals("Film2", summary.name());
+        assertEquals(5, summary.likeCount());
+        assertEquals(List.of(5, 0), filmController.getPopularFilmSummaries(10, null, null, null, null).stream()
+                .map(FilmSummary::likeCount).toList());
+        assertEquals(List.of(1L, 2L), filmController.getAllFilmSummaries().stream().map(FilmSummary::id).toList());
+
+        ResponseEntity<List<Long>> page = filmController.getLikesPage(2L, 2, null);
+        assertEquals(List.of(1L, 2L), page.getBody());
+        assertEquals("2", page.getHeaders().getFirst("X-Next-Cursor"));
+        assertEquals(List.of(3L, 4L, 5L), filmController.getLikesPage(2L, 10, 2L).getBody());
+        assertThrows(NotFoundException.class, () -> filmController.getLikesPage(3L, 10, null));
+        assertThrows(ValidationException.class, () -> filmController.getLikesPage(2L, 0, null));
+    }
+
+    @Test
+    void cachedResponseTest() throws IOException {
+        filmController.addFilm(Film.builder()
+                .name("Anora")
+                .description("Censored")
+                .releaseDate(LocalDate.of(2024, 10, 18))
+                .duration(Duration.ofMinutes(139))
+                .build());
+        userStorage.saveUser(new User("user@mail.ru", "user", "User", LocalDate.of(1990, 1, 1)));
+
+        byte[] film = filmController.getFilmById(1L, request(null, null));
+        byte[] popular = filmController.getPopularFilmsList(10, null, null, null, null, request(null, null));
+        assertSame(film, filmController.getFilmById(1L, request(null, null)));
+        assertSame(popular, filmController.getPopularFilmsList(10, null, null, null, null, request(null, null)));
+        assertEquals(139 * 60, objectMapper.readTree(film).get("duration").asLong());
+
+        filmController.addLikeToFilm(1L, 1L);
+        film = filmController.getFilmById(1L, request(null, null));
+        assertEquals(1, objectMapper.readTree(film).get("likes").size());
+        popular = filmController.getPopularFilmsList(10, null, null, null, null, request(null, null));
+        assertEquals(1, objectMapper.readTree(popular).get(0).get("likes").size());
+    }
+
+    @Test
+    void streamFilmsTest() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            filmController.addFilm(Film.builder()
+                    .name("Film " + i)
+                    .description("Description")
+                    .releaseDate(LocalDate.of(2000, 1, i))
+                    .duration(Duration.ofMinutes(90))
+                    .build());
+        }
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(filmController).build();
+
+        MvcResult result = mockMvc.perform(get("/films").accept("application/x-ndjson"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        List<Long> ids = new ArrayList<>();
+        for (String line : body.lines().toList()) {
+            ids.add(objectMapper.readTree(line).get("id").asLong());
+        }
+        assertEquals(List.of(1L, 2L, 3L), ids);
+        assertTrue(body.endsWith("\n"));
+    }
+
+    @Test
+    void metricsTest() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        FilmStorage filmStorage = new MeteredFilmStorage(new InMemoryFilmStorage(), registry);
+        FilmController controller = new FilmController(new MeteredFilmService(filmStorage,
+                new MeteredUserStorage(userStorage, registry), registry), objectMapper, registry);
+        for (int i = 1; i <= 2; i++) {
+            controller.addFilm(Film.builder()
+                    .name("Film" + i)
+                    .description("Censored")
+                    .releaseDate(LocalDate.of(2024, 10, 18))
+                    .duration(Duration.ofMinutes(139))
+                    .build());
+            userStorage.saveUser(new User("user" + i + "@mail.ru", "user" + i, "User", LocalDate.of(1990, 1, 1)));
+        }
+        controller.addLikeToFilm(1L, 1L);
+        controller.addLikeToFilm(1L, 2L);
+        controller.addLikeToFilm(2L, 1L);
+        assertThrows(NotFoundException.class, () -> controller.addLikeToFilm(3L, 1L));
+
+        assertEquals(2, registry.get("filmorate.films").gauge().value());
+        assertEquals(3, registry.get("filmorate.likes").gauge().value());
+        assertEquals(2, registry.get("filmorate.users").gauge().value());
+        assertEquals(4, registry.get("filmorate.service").tags("component", "films", "operation", "addLike")
+                .timer().count());
+        assertEquals(3, registry.get("filmorate.storage").tags("component", "films", "operation", "putLike")
+                .timer().count());
+        assertEquals(3, registry.get("filmorate.storage").tags("component", "users", "operation", "findUserById")
+                .timer().count());
+    }
+
+    @Test
+    void batchLikesTest() throws IOException {
+        for (int i = 1; i <= 2; i++) {
+            filmController.addFilm(Film.builder()
+                    .name("Film" + i)
+                    .description("Censored")
+                    .releaseDate(LocalDate.of(2024, 10, 18))
+                    .duration(Duration.ofMinutes(139))
+                    .build());
+            userStorage.saveUser(new User("user" + i + "@mail.ru", "user" + i, "User", LocalDate.of(1990, 1, 1)));
+        }
+        List<BatchResult.Status> statuses = filmController.addLikes(List.of(
+                        new FilmLike(2L, 1L),
+                        new FilmLike(2L, 2L),
+                        new FilmLike(1L, 1L),
+                        new FilmLike(3L, 1L),
+                        new FilmLike(1L, 5L),
+                        new FilmLike(null, 1L))).stream()
+                .map(BatchResult::status)
+                .toList();
+
+        assertEquals(List.of(BatchResult.Status.APPLIED, BatchResult.Status.APPLIED, BatchResult.Status.APPLIED,
+                BatchResult.Status.FILM_NOT_FOUND, BatchResult.Status.USER_NOT_FOUND, BatchResult.Status.INVALID),
+                statuses);
+        assertEquals(List.of(2L, 1L), popularIds(filmController, 10));
+
+        filmController.deleteLikes(List.of(new FilmLike(2L, 1L), new FilmLike(2L, 2L)));
+        assertEquals(List.of(1L, 2L), popularIds(filmController, 10));
+    }
+
+    @Test
+    void recommendedFilmsTest() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        FilmService filmService = new FilmService(filmStorage, userStorage);
+        FilmController controller = new FilmController(filmService, objectMapper, new SimpleMeterRegistry());
+        RecommendedFilmsController recommendations = new RecommendedFilmsController(filmService);
+        for (int i = 1; i <= 5; i++) {
+            controller.addFilm(Film.builder()
+                    .name("Film" + i)
+                    .description("Censored")
+                    .releaseDate(LocalDate.of(2024, 10, 18))
+                    .duration(Duration.ofMinutes(139))
+                    .build());
+            userStorage.saveUser(new User("user" + i + "@mail.ru", "user" + i, "User", LocalDate.of(1990, 1, 1)));
+        }
+        // У пользователя 2 два общих лайка с первым, у пользователя 3 — один
+        controller.addLikes(List.of(
+                new FilmLike(1L, 1L), new FilmLike(2L, 1L),
+                new FilmLike(1L, 2L), new FilmLike(2L, 2L), new FilmLike(4L, 2L),
+                new FilmLike(1L, 3L), new FilmLike(3L, 3L), new FilmLike(4L, 3L), new FilmLike(5L, 3L)));
+
+        assertEquals(List.of(4L, 3L, 5L),
+                recommendations.getRecommendedFilms(1L, 10).stream().map(Film::getId).toList());
+
+        filmStorage.precomputeRecommendations();
+        controller.addLikeToFilm(4L, 1L);
+        assertEquals(List.of(3L, 5L),
+                recommendations.getRecommendedFilms(1L, 10).stream().map(Film::getId).toList());
+        assertThrows(NotFoundException.class, () -> recommendations.getRecommendedFilms(9L, 10));
+        assertThrows(ValidationException.class, () -> recommendations.getRecommendedFilms(1L, 0));
+    }
+
+    @Test
+    void trendingFilmsTest() throws IOException {
+        MutableClock clock = new MutableClock();
+        FilmController controller = new FilmController(
+                new FilmService(new InMemoryFilmStorage(new AtomicIdGenerator(), clock), userStorage),
+                objectMapper, new SimpleMeterRegistry());
+        for (int i = 1; i <= 3; i++) {
+            controller.addFilm(Film.builder()
+                    .name("Film" + i)
+                    .description("Censored")
+                    .releaseDate(LocalDate.of(2024, 10, 18))
+                    .duration(Duration.ofMinutes(139))
+                    .build());
+            userStorage.saveUser(new User("user" + i + "@mail.ru", "user" + i, "User", LocalDate.of(1990, 1, 1)));
+        }
+        controller.addLikes(List.of(new FilmLike(1L, 1L), new FilmLike(1L, 2L), new FilmLike(1L, 3L)));
+        clock.advance(Duration.ofHours(2));
+        controller.addLikes(List.of(new FilmLike(2L, 1L), new FilmLike(2L, 2L), new FilmLike(3L, 1L)));
+        controller.deleteLikeFromFilm(2L, 2L);
+        controller.addLikeToFilm(3L, 2L);
+
+        // За час — только свежие лайки, за сутки — все
+        assertEquals(List.of(3L, 2L), controller.getTrendingFilms("1h", 10).stream().map(Film::getId).toList());
+        assertEquals(List.of(1L, 3L, 2L), controller.getTrendingFilms("24h", 10).stream().map(Film::getId).toList());
+        assertEquals(List.of(1L), controller.getTrendingFilms("1d", 1).stream().map(Film::getId).toList());
+
+        clock.advance(Duration.ofDays(8));
+        assertTrue(controller.getTrendingFilms("7d", 10).isEmpty());
+        assertEquals(List.of(1L, 3L, 2L), popularIds(controller, 10));
+        assertThrows(ValidationException.class, () -> controller.getTrendingFilms("3h", 10));
+        assertThrows(ValidationException.class, () -> controller.getTrendingFilms("week", 10));
+    }
+
+    @Test
+    void filteredPopularFilmsTest() throws Exception {
+        for (int i = 1; i <= 50; i++) {
+            filmController.addFilm(Film.builder()
+                    .name("Film" + i)
+                    .description("Censored")
+                    .releaseDate(LocalDate.of(1950 + i, 6, 1))
+                    .duration(Duration.ofMinutes(60 + i))
+                    .build());
+            userStorage.saveUser(new User("user" + i + "@mail.ru", "user" + i, "User", LocalDate.of(1990, 1, 1)));
+        }
+        List<FilmLike> likes = new ArrayList<>();
+        for (long filmId = 25; filmId <= 50; filmId++) {
+            for (long userId = 1; userId <= filmId - 20; userId++) {
+                likes.add(new FilmLike(filmId, userId));
+            }
+        }
+        filmController.addLikes(likes);
+
+        // Фильмы 1990-х в начале рейтинга — находятся обходом рейтинга
+        assertEquals(List.of(49L, 48L), popularIds(filmController, 10, null,
+                LocalDate.of(1998, 1, 1), LocalDate.of(1999, 12, 31), null));
+        assertEquals(List.of(30L, 29L, 28L), popularIds(filmController, 3, null,
+                LocalDate.of(1955, 1, 1), null, 90L * 60));
+        // Фильм без лайков в конце рейтинга — находится по индексу дат
+        assertEquals(List.of(10L), popularIds(filmController, 1, 1960, null, null, null));
+        assertEquals(List.of(1L, 2L, 3L), popularIds(filmController, 10, null, null, null, 63L * 60));
+        assertThrows(ValidationException.class,
+                () -> popularIds(filmController, 10, 1999, LocalDate.of(1999, 1, 1), null, null));
+        assertThrows(ValidationException.class,
+                () -> popularIds(filmController, 10, null, LocalDate.of(2000, 1, 1), LocalDate.of(1999, 1, 1), null));
+        assertThrows(ValidationException.class, () -> popularIds(filmController, 10, 1_000_000_000, null, null, null));
+        MockMvcBuilders.standaloneSetup(filmController).setControllerAdvice(new ErrorHandler()).build()
+                .perform(get("/films/popular").param("year", "1000000000"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void searchFilmsTest() {
+        filmController.addFilm(Film.builder()
+                .name("Ёлки")
+                .description("Новогодняя комедия")
+                .releaseDate(LocalDate.of(2010, 12, 16))
+                .duration(Duration.ofMinutes(90))
+                .build());
+        filmController.addFilm(Film.builder()
+                .name("Anora")
+                .description("A stripper marries the son of an oligarch")
+                .releaseDate(LocalDate.of(2024, 10, 18))
+                .duration(Duration.ofMinutes(139))
+                .build());
+        filmController.addFilm(Film.builder()
+                .name("Oligarch")
+                .description("Drama")
+                .releaseDate(LocalDate.of(2002, 9, 12))
+                .duration(Duration.ofMinutes(128))
+                .build());
+        userStorage.saveUser(new User("user@mail.ru", "user", "User", LocalDate.of(1990, 1, 1)));
+
+        // Слово в названии весит больше, чем в описании
+        assertEquals(List.of(3L, 2L), filmController.searchFilms("oligarch", 10).stream().map(Film::getId).toList());
+        assertEquals(List.of(3L, 2L), filmController.searchFilms("OLIG", 10).stream().map(Film::getId).toList());
+        assertEquals(List.of(2L), filmController.searchFilms("strip oligarch", 10).stream().map(Film::getId).toList());
+        assertEquals(List.of(1L), filmController.searchFilms("елки", 10).stream().map(Film::getId).toList());
+        assertTrue(filmController.searchFilms("oligarch western", 10).isEmpty());
+
+        filmController.updateFilm(Film.builder()
+                .id(3L)
+                .name("Tycoon")
+                .releaseDate(LocalDate.of(2002, 9, 12))
+                .duration(Duration.ofMinutes(128))
+                .build());
+        assertEquals(List.of(2L), filmController.searchFilms("oligarch", 10).stream().map(Film::getId).toList());
+        assertEquals(List.of(3L), filmController.searchFilms("tycoon", 10).stream().map(Film::getId).toList());
+
+        filmController.updateFilm(Film.builder()
+                .id(1L)
+                .description("Oligarch")
+                .releaseDate(LocalDate.of(2010, 12, 16))
+                .duration(Duration.ofMinutes(90))
+                .build());
+        filmController.addLikeToFilm(2L, 1L);
+        assertEquals(List.of(2L, 1L), filmController.searchFilms("oligarch", 10).stream().map(Film::getId).toList());
+        assertThrows(ValidationException.class, () -> filmController.searchFilms(" ", 10));
+        assertThrows(ValidationException.class, () -> filmController.searchFilms("anora", 0));
+    }
+
+    private List<Long> popularIds(FilmController controller, int count) throws IOException {
+        return popularIds(controller, count, null, null, null, null);
+    }
+
+    private List<Long> popularIds(FilmController controller, int count, Integer year, LocalDate from,
+                                  LocalDate to, Long maxDuration) throws IOException {
+        byte[] films = controller.getPopularFilmsList(count, year, from, to, maxDuration, request(null, null));
+        List<Long> ids = new ArrayList<>();
+        objectMapper.readTree(films).forEach(film -> ids.add(film.get("id").asLong()));
+        return ids;
+    }
+
+    private static ServletWebRequest request(String ifNoneMatch, MockHttpServletResponse response) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/films");
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return new ServletWebRequest(request, response == null ? new MockHttpServletResponse() : response);
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-10-18T12:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.logging.BatchingHttpLogWriter;
+import ru.yandex.practicum.filmorate.logging.SampledRequests;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HttpLogTests {
+
+    @Test
+    void sampledRequestsAreLimitedPerSecondTest() {
+        AtomicLong clock = new AtomicLong(10_000);
+        SampledRequests condition = new SampledRequests(1, 3, clock::get);
+
+        assertTrue(condition.test(null));
+        assertTrue(condition.test(null));
+        assertTrue(condition.test(null));
+        assertFalse(condition.test(null));
+
+        clock.addAndGet(999);
+        assertFalse(condition.test(null));
+        clock.addAndGet(1);
+        assertTrue(condition.test(null));
+
+        assertFalse(new SampledRequests(0, 0).test(null));
+        assertThrows(IllegalArgumentException.class, () -> new SampledRequests(1.5, 0));
+    }
+
+    @Test
+    void writerDropsMessagesWhenQueueIsFullTest() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BatchingHttpLogWriter writer = new BatchingHttpLogWriter(3, 2, Duration.ofHours(1), registry);
+
+        for (int i = 0; i < 5; i++) {
+            writer.write(null, "request " + i);
+        }
+        assertEquals(3, registry.get("filmorate.http.log.pending").gauge().value());
+        assertEquals(2, registry.get("filmorate.http.log.dropped").counter().count());
+
+        writer.close();
+        assertEquals(0, registry.get("filmorate.http.log.pending").gauge().value());
+        assertEquals(3, registry.get("filmorate.http.log.written").counter().count());
+    }
+}
@@ -0,0 +1,272 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.config.PersistenceProperties;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.journal.Journal;
+import ru.yandex.practicum.filmorate.storage.journal.JournalRecord;
+import ru.yandex.practicum.filmorate.storage.journal.StoragePersistence;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistenceTests {
+
+    @TempDir
+    private Path directory;
+    private InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+    private InMemoryUserStorage userStorage = new InMemoryUserStorage();
+
+    @Test
+    void journalIsReplayedAfterRestartTest() {
+        open();
+        User user = userStorage.saveUser(user("user"));
+        User friend = userStorage.saveUser(user("friend"));
+        userStorage.addFriend(user, friend);
+        Film film = filmStorage.saveFilm(film("First"));
+        Film other = filmStorage.saveFilm(film("Second"));
+        filmStorage.putLikes(List.of(new FilmLike(film.getId(), user.getId()),
+                new FilmLike(other.getId(), user.getId()), new FilmLike(other.getId(), friend.getId())));
+        filmStorage.removeLike(film, user.getId());
+        filmStorage.putFilm(Film.builder().id(film.getId()).name("Renamed").build());
+        userStorage.putUser(new User(friend.getId(), "new@mail.ru", null, "Friend", null));
+        crash();
+
+        restart();
+        open();
+
+        assertEquals("Renamed", filmStorage.findFilmById(film.getId()).orElseThrow().getName());
+        assertEquals(Set.of(), filmStorage.findFilmById(film.getId()).orElseThrow().getLikes());
+        assertEquals(List.of(other.getId(), film.getId()),
+                filmStorage.findMostPopularFilms(10).stream().map(Film::getId).toList());
+        assertEquals(Set.of(user.getId(), friend.getId()), filmStorage.findFilmById(other.getId()).orElseThrow()
+                .getLikes());
+        assertEquals(Set.of(friend.getId()), userStorage.findUserById(user.getId()).orElseThrow().getFriends());
+        assertEquals(Set.of(user.getId()), userStorage.findUserById(friend.getId()).orElseThrow().getFriends());
+        assertEquals(friend.getId(), userStorage.findUserByEmail("new@mail.ru").orElseThrow().getId());
+        assertTrue(userStorage.findUserByEmail("friend@mail.ru").isEmpty());
+        assertEquals(List.of(film.getId()), filmStorage.searchFilms("renamed", 10).stream().map(Film::getId)
+                .toList());
+    }
+
+    @Test
+    void snapshotReplacesOldSegmentsTest() throws IOException {
+        StoragePersistence persistence = open();
+        User user = userStorage.saveUser(user("user"));
+        Film film = filmStorage.saveFilm(film("First"));
+        filmStorage.putLike(film, user.getId());
+        persistence.snapshot();
+        Film other = filmStorage.saveFilm(film("Second"));
+        filmStorage.putLike(other, user.getId());
+        filmStorage.removeLike(film, user.getId());
+        crash();
+
+        assertEquals(List.of("journal-0000000002.log", "snapshot-0000000002.bin"), files());
+        restart();
+        open();
+
+        assertEquals(Set.of(), filmStorage.findFilmById(film.getId()).orElseThrow().getLikes());
+        assertEquals(Set.of(user.getId()), filmStorage.findFilmById(other.getId()).orElseThrow().getLikes());
+        assertEquals(other.getId() + 1, filmStorage.saveFilm(film("Third")).getId());
+        assertEquals(user.getId() + 1, userStorage.saveUser(user("next")).getId());
+    }
+
+    @Test
+    void likesToggledAfterSnapshotAreReplayedTest() throws IOException {
+        StoragePersistence persistence = open();
+        User kept = userStorage.saveUser(user("kept"));
+        User dropped = userStorage.saveUser(user("dropped"));
+        Film film = filmStorage.saveFilm(film("First"));
+        filmStorage.putLike(film, kept.getId());
+        persistence.snapshot();
+        // Итог каждого пользователя — последнее событие, сколько бы раз он ни передумал
+        for (int i = 0; i < 2; i++) {
+            filmStorage.removeLike(film, kept.getId());
+            filmStorage.putLike(film, kept.getId());
+            filmStorage.putLike(film, dropped.getId());
+            filmStorage.removeLike(film, dropped.getId());
+        }
+        crash();
+
+        restart();
+        open();
+
+        assertEquals(Set.of(kept.getId()), filmStorage.findFilmById(film.getId()).orElseThrow().getLikes());
+    }
+
+    @Test
+    void tornTailIsTruncatedTest() throws IOException {
+        open();
+        User user = userStorage.saveUser(user("user"));
+        Film film = filmStorage.saveFilm(film("First"));
+        filmStorage.putLike(film, user.getId());
+        crash();
+        Path segment = directory.resolve("journal-0000000001.log");
+        long size = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+
+        restart();
+        StoragePersistence recovered = open();
+
+        Film recoveredFilm = filmStorage.findFilmById(film.getId()).orElseThrow();
+        assertEquals(Set.of(), recoveredFilm.getLikes());
+        filmStorage.putLike(recoveredFilm, user.getId());
+        recovered.close();
+        restart();
+        open();
+        assertEquals(Set.of(user.getId()), filmStorage.findFilmById(film.getId()).orElseThrow().getLikes());
+    }
+
+    @Test
+    void snapshotKeepsAllFieldsTest() throws IOException {
+        StoragePersistence persistence = open();
+        User user = userStorage.saveUser(user("user"));
+        User friend = userStorage.saveUser(new User("friend@mail.ru", "friend", null, null));
+        userStorage.addFriend(user, friend);
+        Film film = filmStorage.saveFilm(film("Первый фильм"));
+        Film empty = filmStorage.saveFilm(Film.builder().name("Empty").build());
+        filmStorage.putLikes(List.of(new FilmLike(film.getId(), friend.getId()),
+                new FilmLike(film.getId(), user.getId())));
+        persistence.snapshot();
+        crash();
+
+        restart();
+        open();
+
+        assertEquals(film.toBuilder().likes(Set.of(user.getId(), friend.getId())).build(),
+                filmStorage.findFilmById(film.getId()).orElseThrow());
+        assertEquals(empty.toBuilder().likes(Set.of()).build(), filmStorage.findFilmById(empty.getId()).orElseThrow());
+        User recoveredFriend = userStorage.findUserById(friend.getId()).orElseThrow();
+        assertNull(recoveredFriend.getName());
+        assertNull(recoveredFriend.getBirthday());
+        assertEquals(Set.of(user.getId()), recoveredFriend.getFriends());
+        assertEquals(user.getBirthday(), userStorage.findUserById(user.getId()).orElseThrow().getBirthday());
+    }
+
+    @Test
+    void corruptedSnapshotIsRejectedTest() throws IOException {
+        StoragePersistence persistence = open();
+        filmStorage.saveFilm(film("First"));
+        persistence.snapshot();
+        crash();
+        Path snapshot = directory.resolve("snapshot-0000000002.bin");
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(snapshot, bytes);
+
+        restart();
+
+        assertThrows(IllegalStateException.class, this::open);
+    }
+
+    @Test
+    void failedJournalLeavesMemoryUnchangedTest() {
+        User user = userStorage.saveUser(user("user"));
+        User friend = userStorage.saveUser(user("friend"));
+        Film other = filmStorage.saveFilm(film("Second"));
+        Film film = filmStorage.saveFilm(film("First"));
+        // Журнал принимает одну запись, дальше отказывает
+        Journal failing = new Journal() {
+            private int accepted = 1;
+
+            @Override
+            public long append(JournalRecord record) {
+                if (accepted-- <= 0) {
+                    throw new UncheckedIOException(new IOException("disk full"));
+                }
+                return 0;
+            }
+
+            @Override
+            public void awaitDurable(long ticket) {
+            }
+        };
+        filmStorage.setJournal(failing);
+        userStorage.setJournal(failing);
+
+        assertThrows(UncheckedIOException.class, () -> filmStorage.putLikes(List.of(
+                new FilmLike(film.getId(), user.getId()), new FilmLike(film.getId(), friend.getId()))));
+        assertEquals(Set.of(user.getId()), filmStorage.findFilmById(film.getId()).orElseThrow().getLikes());
+        assertEquals(List.of(film.getId(), other.getId()),
+                filmStorage.findMostPopularFilms(10).stream().map(Film::getId).toList());
+        assertThrows(UncheckedIOException.class, () -> filmStorage.removeLike(film, user.getId()));
+        assertThrows(UncheckedIOException.class,
+                () -> filmStorage.putFilm(Film.builder().id(film.getId()).name("Renamed").build()));
+        assertThrows(UncheckedIOException.class, () -> filmStorage.saveFilm(film("Third")));
+        assertEquals(Set.of(user.getId()), filmStorage.findFilmById(film.getId()).orElseThrow().getLikes());
+        assertEquals("First", filmStorage.findFilmById(film.getId()).orElseThrow().getName());
+        assertTrue(filmStorage.searchFilms("renamed", 10).isEmpty());
+        assertEquals(2, filmStorage.countFilms());
+
+        assertThrows(UncheckedIOException.class, () -> userStorage.addFriend(user, friend));
+        assertThrows(UncheckedIOException.class,
+                () -> userStorage.putUser(new User(user.getId(), "new@mail.ru", null, "User", null)));
+        assertThrows(UncheckedIOException.class, () -> userStorage.saveUser(user("third")));
+        assertEquals(Set.of(), userStorage.findUserById(user.getId()).orElseThrow().getFriends());
+        assertEquals("user@mail.ru", userStorage.findUserById(user.getId()).orElseThrow().getEmail());
+        assertTrue(userStorage.findUserByEmail("new@mail.ru").isEmpty());
+        assertTrue(userStorage.findUserByLogin("third").isEmpty());
+
+        // Почта и логин неудавшихся изменений не остались занятыми
+        filmStorage.setJournal(Journal.NONE);
+        userStorage.setJournal(Journal.NONE);
+        assertNotNull(userStorage.saveUser(user("third")));
+        userStorage.putUser(new User(friend.getId(), "new@mail.ru", null, "Friend", null));
+        assertEquals(friend.getId(), userStorage.findUserByEmail("new@mail.ru").orElseThrow().getId());
+    }
+
+    private StoragePersistence open() {
+        PersistenceProperties properties = new PersistenceProperties(true, directory,
+                PersistenceProperties.Durability.SYNC, Duration.ofMillis(50), Duration.ofHours(1), 1_000_000);
+        return new StoragePersistence(filmStorage, userStorage, properties, new SimpleMeterRegistry());
+    }
+
+    // Все изменения уже на диске (SYNC); хранилища отключаются от журнала без снимка при остановке
+    private void crash() {
+        filmStorage.setJournal(Journal.NONE);
+        userStorage.setJournal(Journal.NONE);
+    }
+
+    private void restart() {
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+    }
+
+    private List<String> files() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    private Film film(String name) {
+        return Film.builder()
+                .name(name)
+                .description("Censored")
+                .releaseDate(LocalDate.of(2024, 10, 18))
+                .duration(Duration.ofMinutes(139))
+                .build();
+    }
+
+    private User user(String login) {
+        return new User(login + "@mail.ru", login, login, LocalDate.of(1990, 1, 1));
+    }
+}
@@ -1,29 +1,58 @@
 package ru.yandex.practicum.filmorate;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.request.ServletWebRequest;
 import ru.yandex.practicum.filmorate.controller.UserController;
+import ru.yandex.practicum.filmorate.errorhandler.ErrorHandler;
+import ru.yandex.practicum.filmorate.exceptions.DuplicatedDataException;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.SortedLongSet;
 import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 public class UserControllerTests {
 
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
     private UserController userController;
 
     @BeforeEach
     void setUp() {
-        userController = new UserController(new UserService(new InMemoryUserStorage()));
+        userController = new UserController(new UserService(new InMemoryUserStorage()), objectMapper,
+                new SimpleMeterRegistry());
     }
 
     @Test
@@ -97,4 +126,239 @@ public class UserControllerTests {
             userController.updateUser(user);
         });
     }
+
+    @Test
+    void commonFriendsTest() {
+        for (int i = 1; i <= 60; i++) {
+            userController.addUser(new User("user" + i + "@mail.ru", "user" + i, "User", LocalDate.of(1990, 1, 1)));
+        }
+        for (long friendId = 4; friendId <= 60; friendId++) {
+            userController.addFriend(1L, friendId);
+        }
+        userController.addFriend(2L, 5L);
+        userController.addFriend(2L, 59L);
+        userController.addFriend(3L, 5L);
+        userController.addFriend(3L, 6L);
+        userController.addFriend(3L, 2L);
+
+        List<Long> commonWithFew = userController.getCommonFriends(1L, 2L).stream()
+                .map(User::getId)
+                .toList();
+        List<Long> commonOfSmall = userController.getCommonFriends(2L, 3L).stream()
+                .map(User::getId)
+                .toList();
+        assertEquals(List.of(5L, 59L), commonWithFew);
+        assertEquals(List.of(5L), commonOfSmall);
+    }
+
+    @Test
+    void usersPageTest() {
+        for (int i = 1; i <= 5; i++) {
+            userController.addUser(new User("user" + i + "@mail.ru", "user" + i, "User", LocalDate.of(1990, 1, 1)));
+        }
+        ResponseEntity<List<User>> firstPage = userController.findUsersPage(2, null);
+        String cursor = firstPage.getHeaders().getFirst("X-Next-Cursor");
+        ResponseEntity<List<User>> lastPage = userController.findUsersPage(4, Long.valueOf(cursor));
+
+        assertEquals(List.of(1L, 2L), firstPage.getBody().stream().map(User::getId).toList());
+        assertEquals("2", cursor);
+        assertEquals(List.of(3L, 4L, 5L), lastPage.getBody().stream().map(User::getId).toList());
+        assertNull(lastPage.getHeaders().getFirst("X-Next-Cursor"));
+        assertThrows(ValidationException.class, () -> userController.findUsersPage(0, null));
+    }
+
+    @Test
+    void batchFriendsTest() throws IOException {
+        for (int i = 1; i <= 3; i++) {
+            userController.addUser(new User("user" + i + "@mail.ru", "user" + i, "User", LocalDate.of(1990, 1, 1)));
+        }
+        List<BatchResult.Status> statuses = userController.addFriends(List.of(
+                        new Friendship(1L, 2L),
+                        new Friendship(1L, 3L),
+                        new Friendship(1L, 1L),
+                        new Friendship(4L, 1L),
+                        new Friendship(2L, 4L))).stream()
+                .map(BatchResult::status)
+                .toList();
+
+        assertEquals(List.of(BatchResult.Status.APPLIED, BatchResult.Status.APPLIED, BatchResult.Status.INVALID,
+                BatchResult.Status.USER_NOT_FOUND, BatchResult.Status.FRIEND_NOT_FOUND), statuses);
+        assertEquals(List.of(2L, 3L), friendIds(1L));
+
+        userController.deleteFriends(List.of(new Friendship(3L, 1L)));
+        assertEquals(List.of(2L), friendIds(1L));
+        assertEquals(List.of(), friendIds(3L));
+    }
+
+    @Test
+    void friendsPageTest() throws IOException {
+        for (int i = 1; i <= 10; i++) {
+            userController.addUser(new User("user" + i + "@mail.ru", "user" + i, "User", LocalDate.of(1990, 1, 1)));
+        }
+        for (long i = 2; i <= 10; i++) {
+            userController.addFriend(1L, i);
+        }
+        for (long i = 3; i <= 10; i += 2) {
+            userController.addFriend(2L, i);
+        }
+
+        ResponseEntity<List<User>> page = userController.getFriendsPage(1L, 4, null);
+        assertEquals(List.of(2L, 3L, 4L, 5L), page.getBody().stream().map(User::getId).toList());
+        assertEquals("5", page.getHeaders().getFirst("X-Next-Cursor"));
+        assertEquals(List.of(6L, 7L, 8L, 9L), userController.getFriendsPage(1L, 4, 5L).getBody().stream()
+                .map(User::getId).toList());
+
+        page = userController.getCommonFriendsPage(1L, 2L, 2, null);
+        assertEquals(List.of(3L, 5L), page.getBody().stream().map(User::getId).toList());
+        page = userController.getCommonFriendsPage(1L, 2L, 2, 5L);
+        assertEquals(List.of(7L, 9L), page.getBody().stream().map(User::getId).toList());
+        assertNull(userController.getCommonFriendsPage(1L, 2L, 2, 9L).getHeaders().getFirst("X-Next-Cursor"));
+        assertThrows(ValidationException.class, () -> userController.getFriendsPage(1L, 0, null));
+        assertThrows(NotFoundException.class, () -> userController.streamFriends(42L));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        userController.streamCommonFriends(1L, 2L).getBody().writeTo(output);
+        assertEquals(4, output.toString(StandardCharsets.UTF_8).lines().count());
+
+        // Id друга без пользователя не превращается в null в списке
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        User friend = userStorage.saveUser(new User("friend@mail.ru", "friend", "Friend", LocalDate.of(1990, 1, 1)));
+        User user = new User("user@mail.ru", "user", "User", LocalDate.of(1990, 1, 1));
+        user.setFriends(SortedLongSet.of(List.of(friend.getId(), 42L)));
+        assertEquals(List.of(friend), userStorage.findFriends(user));
+    }
+
+    @Test
+    void streamFriendsOfMissingUserTest() throws Exception {
+        userController.addUser(new User("user@mail.ru", "user", "User", LocalDate.of(1990, 1, 1)));
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(userController)
+                .setControllerAdvice(new ErrorHandler())
+                .build();
+
+        mockMvc.perform(get("/users/42/friends").accept("application/x-ndjson"))
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.description").exists());
+        mockMvc.perform(get("/users/1/friends/common/42").accept("application/x-ndjson"))
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void notModifiedFriendsTest() throws IOException {
+        for (int i = 1; i <= 3; i++) {
+            userController.addUser(new User("user" + i + "@mail.ru", "user" + i, "User", LocalDate.of(1990, 1, 1)));
+        }
+        userController.addFriend(1L, 2L);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        byte[] friends = userController.getFriends(1L, request(null, response));
+        assertEquals(1, objectMapper.readValue(friends, User[].class).length);
+        String etag = response.getHeader(HttpHeaders.ETAG);
+        response = new MockHttpServletResponse();
+        userController.getUserById(3L, request(null, response));
+        String userEtag = response.getHeader(HttpHeaders.ETAG);
+
+        response = new MockHttpServletResponse();
+        assertNull(userController.getFriends(1L, request(etag, response)));
+        assertEquals(304, response.getStatus());
+        assertNull(userController.getUserById(3L, request(userEtag, new MockHttpServletResponse())));
+
+        // Друг изменился — список друзей в ответе тоже
+        userController.addFriend(2L, 3L);
+        assertNotNull(userController.getFriends(1L, request(etag, new MockHttpServletResponse())));
+        assertNotNull(userController.getUserById(3L, request(userEtag, new MockHttpServletResponse())));
+        response = new MockHttpServletResponse();
+        userController.getFriends(1L, request(null, response));
+        etag = response.getHeader(HttpHeaders.ETAG);
+        userController.updateUser(new User(2L, "renamed@mail.ru", "user2", "Renamed", LocalDate.of(1990, 1, 1)));
+        assertNotNull(userController.getFriends(1L, request(etag, new MockHttpServletResponse())));
+    }
+
+    @Test
+    void recommendationsTest() {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        UserController controller = new UserController(new UserService(userStorage), objectMapper,
+                new SimpleMeterRegistry());
+        for (int i = 1; i <= 6; i++) {
+            controller.addUser(new User("user" + i + "@mail.ru", "user" + i, "User", LocalDate.of(1990, 1, 1)));
+        }
+        controller.addFriend(1L, 2L);
+        controller.addFriend(1L, 3L);
+        controller.addFriend(2L, 4L);
+        controller.addFriend(3L, 4L);
+        controller.addFriend(3L, 5L);
+        controller.addFriend(2L, 3L);
+
+        assertEquals(List.of(4L, 5L), controller.getRecommendations(1L, 10).stream().map(User::getId).toList());
+        assertEquals(List.of(4L), controller.getRecommendations(1L, 1).stream().map(User::getId).toList());
+
+        userStorage.precomputeRecommendations(1);
+        controller.addFriend(5L, 6L);
+        controller.addFriend(2L, 6L);
+        assertEquals(List.of(4L, 5L, 6L), controller.getRecommendations(1L, 10).stream().map(User::getId).toList());
+        assertThrows(ValidationException.class, () -> controller.getRecommendations(1L, 0));
+
+        // Кандидатов больше, чем начальная ёмкость счётчика
+        for (int i = 7; i <= 106; i++) {
+            controller.addUser(new User("user" + i + "@mail.ru", "user" + i, "User", LocalDate.of(1990, 1, 1)));
+            controller.addFriend(2L, (long) i);
+            if (i % 2 == 0) {
+                controller.addFriend(3L, (long) i);
+            }
+        }
+        List<User> recommendations = controller.getRecommendations(1L, 100);
+        assertEquals(List.of(4L, 8L, 10L), recommendations.stream().limit(3).map(User::getId).toList());
+        assertEquals(100, recommendations.size());
+    }
+
+    @Test
+    void uniqueEmailAndLoginTest() throws InterruptedException {
+        userController.addUser(new User("maddy@mail.ru", "maddy", "Мэдисон", LocalDate.of(1999, 3, 25)));
+        userController.addUser(new User("igor@mail.ru", "igor", "Игорь", LocalDate.of(1992, 12, 8)));
+
+        assertThrows(DuplicatedDataException.class,
+                () -> userController.addUser(new User("maddy@mail.ru", "other", "", LocalDate.of(2000, 1, 1))));
+        assertThrows(DuplicatedDataException.class,
+                () -> userController.addUser(new User("other@mail.ru", "maddy", "", LocalDate.of(2000, 1, 1))));
+        assertThrows(DuplicatedDataException.class, () -> userController.updateUser(
+                new User(2L, "maddy@mail.ru", "igor", "Игорь", LocalDate.of(1992, 12, 8))));
+        // Отклонённые запросы ничего не заняли
+        userController.addUser(new User("other@mail.ru", "other", "", LocalDate.of(2000, 1, 1)));
+
+        userController.updateUser(new User(2L, "igor@yandex.ru", "igor", "Игорь", LocalDate.of(1992, 12, 8)));
+        assertEquals(2L, userController.getUserByEmail("igor@yandex.ru").getId());
+        assertEquals(2L, userController.getUserByLogin("igor").getId());
+        assertThrows(NotFoundException.class, () -> userController.getUserByEmail("igor@mail.ru"));
+        userController.addUser(new User("igor@mail.ru", "igor2", "", LocalDate.of(2000, 1, 1)));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        AtomicInteger created = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            String login = "racer" + i;
+            executor.submit(() -> {
+                try {
+                    userController.addUser(new User("racer@mail.ru", login, "", LocalDate.of(2000, 1, 1)));
+                    created.incrementAndGet();
+                } catch (DuplicatedDataException ignored) {
+                    // Почту занял другой поток
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(1, created.get());
+    }
+
+    private List<Long> friendIds(long id) throws IOException {
+        byte[] friends = userController.getFriends(id, request(null, new MockHttpServletResponse()));
+        return Arrays.stream(objectMapper.readValue(friends, User[].class)).map(User::getId).toList();
+    }
+
+    private static ServletWebRequest request(String ifNoneMatch, MockHttpServletResponse response) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/users");
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return new ServletWebRequest(request, response);
+    }
 }
@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongIntCounterTests {
+
+    // Таблица растёт несколько раз; при заполнении до половины коллизии неизбежны,
+    // поэтому ключи проверяются и вдоль цепочек проб
+    @Test
+    void matchesHashMapThroughCollisionsAndGrowthTest() {
+        Random random = new Random(18);
+        LongIntCounter counter = LongIntCounter.acquire();
+        Map<Long, Integer> oracle = new HashMap<>();
+        try {
+            for (int i = 0; i < 200_000; i++) {
+                long key = 1 + random.nextInt(20_000);
+                int delta = 1 + random.nextInt(3);
+                counter.add(key, delta);
+                oracle.merge(key, delta, Integer::sum);
+            }
+            for (long key = 1; key <= 20_001; key++) {
+                assertEquals(oracle.getOrDefault(key, 0), counter.get(key));
+            }
+            assertArrayEquals(oracleTop(oracle, 50), counter.top(50));
+            assertArrayEquals(oracleTop(oracle, 30_000), counter.top(30_000));
+        } finally {
+            LongIntCounter.release(counter);
+        }
+    }
+
+    @Test
+    void topSkipsExcludedAndNonPositiveTest() {
+        LongIntCounter counter = LongIntCounter.acquire();
+        try {
+            counter.add(1, 5);
+            counter.add(2, 5);
+            counter.add(3, 7);
+            counter.add(4, -2);
+            counter.add(5, 0);
+            counter.exclude(6);
+            counter.add(6, 100);
+            counter.increment(7);
+
+            // При равенстве меньший ключ выше
+            assertArrayEquals(new long[]{3, 1, 2, 7}, counter.top(10));
+            assertArrayEquals(new long[]{3, 1}, counter.top(2));
+            assertArrayEquals(new long[0], counter.top(0));
+            assertEquals(0, counter.get(6));
+            assertEquals(0, counter.get(4));
+        } finally {
+            LongIntCounter.release(counter);
+        }
+    }
+
+    @Test
+    void releasedCounterComesBackEmptyTest() {
+        LongIntCounter counter = LongIntCounter.acquire();
+        for (long key = 1; key <= 1000; key++) {
+            counter.increment(key);
+        }
+        LongIntCounter.release(counter);
+
+        LongIntCounter reused = LongIntCounter.acquire();
+        try {
+            assertEquals(0, reused.get(1));
+            assertArrayEquals(new long[0], reused.top(10));
+        } finally {
+            LongIntCounter.release(reused);
+        }
+    }
+
+    private static long[] oracleTop(Map<Long, Integer> oracle, int count) {
+        return oracle.entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(count)
+                .mapToLong(Map.Entry::getKey)
+                .toArray();
+    }
+}
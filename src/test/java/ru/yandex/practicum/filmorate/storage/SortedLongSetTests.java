@@ -0,0 +1,131 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SortedLongSetTests {
+
+    @Test
+    void matchesTreeSetTest() {
+        Random random = new Random(18);
+        SortedLongSet set = new SortedLongSet();
+        TreeSet<Long> oracle = new TreeSet<>();
+        for (int i = 0; i < 20_000; i++) {
+            long value = random.nextInt(500);
+            switch (random.nextInt(3)) {
+                case 0 -> assertEquals(oracle.add(value), set.add(value));
+                case 1 -> assertEquals(oracle.remove(value), set.remove(value));
+                default -> assertEquals(oracle.contains(value), set.contains(value));
+            }
+            if (i % 500 == 0) {
+                assertMatches(oracle, set);
+                long after = random.nextInt(520) - 10;
+                int limit = random.nextInt(50);
+                assertArrayEquals(toArray(oracle.tailSet(after, false).stream().limit(limit).toList()),
+                        set.page(after, limit));
+            }
+        }
+        // Почти все удалены: массив сжимается, элементы остаются на местах
+        for (long value = 0; value < 490; value++) {
+            assertEquals(oracle.remove(value), set.remove(value));
+        }
+        assertMatches(oracle, set);
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertArrayEquals(new long[0], set.page(0, 10));
+    }
+
+    @Test
+    void ofAndIntersectTest() {
+        SortedLongSet first = SortedLongSet.of(List.of(5L, 1L, 3L, 5L, 9L, 7L));
+        SortedLongSet second = SortedLongSet.ofSorted(new long[]{2, 3, 4, 7, 10});
+
+        assertArrayEquals(new long[]{1, 3, 5, 7, 9}, first.toLongArray());
+        assertArrayEquals(new long[]{3, 7}, first.intersect(second));
+        assertArrayEquals(new long[0], first.intersect(new SortedLongSet()));
+        assertTrue(first.contains((Object) 3L));
+        assertFalse(first.contains((Object) 3));
+        assertArrayEquals(new long[]{1, 5, 9}, first.sample(3));
+        assertArrayEquals(new long[]{1, 3, 5, 7, 9}, first.sample(10));
+    }
+
+    @Test
+    void iteratorWalksSnapshotTest() {
+        SortedLongSet set = SortedLongSet.of(List.of(1L, 2L, 3L));
+        Iterator<Long> iterator = set.iterator();
+        set.add(4L);
+        set.remove(1L);
+
+        List<Long> seen = new ArrayList<>();
+        iterator.forEachRemaining(seen::add);
+        assertEquals(List.of(1L, 2L, 3L), seen);
+        assertThrows(NoSuchElementException.class, iterator::next);
+        assertEquals(List.of(2L, 3L, 4L), new ArrayList<>(set));
+    }
+
+    // Чётные значения есть всегда, писатель добавляет и удаляет нечётные:
+    // читатель не должен увидеть ни пропавшего чётного, ни неотсортированного массива
+    @Test
+    void readersSeeConsistentStateDuringWritesTest() throws InterruptedException {
+        SortedLongSet set = new SortedLongSet();
+        for (long value = 0; value < 1000; value += 2) {
+            set.add(value);
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            Random random = new Random(1);
+            while (running.get()) {
+                long odd = 2L * random.nextInt(500) + 1;
+                if (!set.add(odd)) {
+                    set.remove(odd);
+                }
+            }
+        });
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 3; r++) {
+            readers.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < 2000; i++) {
+                        long even = 2L * (i % 500);
+                        assertTrue(set.contains(even));
+                        long[] all = set.toLongArray();
+                        for (int j = 1; j < all.length; j++) {
+                            assertTrue(all[j - 1] < all[j]);
+                        }
+                        assertEquals(500, Arrays.stream(all).filter(value -> value % 2 == 0).count());
+                        long[] page = set.page(even, 10);
+                        assertTrue(page.length == 10 || even >= 980);
+                        assertTrue(page.length == 0 || page[0] > even);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        }
+        writer.start();
+        readers.forEach(Thread::start);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        running.set(false);
+        writer.join();
+
+        assertNull(failure.get());
+    }
+
+    private static void assertMatches(TreeSet<Long> oracle, SortedLongSet set) {
+        assertEquals(oracle.size(), set.size());
+        assertArrayEquals(toArray(oracle), set.toLongArray());
+        assertEquals(new ArrayList<>(oracle), new ArrayList<>(set));
+    }
+
+    private static long[] toArray(Collection<Long> values) {
+        return values.stream().mapToLong(Long::longValue).toArray();
+    }
+}
@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmFilter;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FilmRangeIndexTests {
+
+    private final FilmRangeIndex index = new FilmRangeIndex();
+
+    @Test
+    void scansReleaseDateRangeInclusiveTest() {
+        index.index(film(1, LocalDate.of(2020, 1, 1), 90));
+        index.index(film(2, LocalDate.of(2021, 6, 1), 120));
+        index.index(film(3, LocalDate.of(2021, 6, 1), 150));
+        index.index(film(4, LocalDate.of(2024, 10, 18), 139));
+        index.index(film(5, null, 100));
+
+        assertEquals(List.of(2L, 3L), ids(new FilmFilter(LocalDate.of(2021, 6, 1), LocalDate.of(2021, 6, 1), null)));
+        assertEquals(List.of(2L, 3L, 4L), ids(new FilmFilter(LocalDate.of(2021, 1, 1), null, null)));
+        assertEquals(List.of(1L), ids(new FilmFilter(null, LocalDate.of(2020, 12, 31), null)));
+        assertEquals(List.of(), ids(new FilmFilter(LocalDate.of(2022, 1, 1), LocalDate.of(2021, 1, 1), null)));
+        // Дата задана — продолжительность проверяет вызывающий, индекс её не сужает
+        assertEquals(List.of(1L, 2L, 3L, 4L), ids(new FilmFilter(LocalDate.of(1895, 12, 28), null,
+                Duration.ofMinutes(100))));
+    }
+
+    @Test
+    void scansDurationWhenNoDateRangeTest() {
+        index.index(film(1, LocalDate.of(2020, 1, 1), 90));
+        index.index(film(2, LocalDate.of(2021, 6, 1), 120));
+        index.index(film(3, null, 120));
+        index.index(film(4, LocalDate.of(2024, 10, 18), 139));
+
+        assertEquals(List.of(1L, 2L, 3L), ids(new FilmFilter(null, null, Duration.ofMinutes(120))));
+        assertEquals(List.of(), ids(new FilmFilter(null, null, Duration.ofMinutes(89))));
+        assertEquals(List.of(1L, 2L, 3L, 4L), ids(new FilmFilter(null, null, null)));
+    }
+
+    @Test
+    void reindexMovesFilmTest() {
+        index.index(film(1, LocalDate.of(2020, 1, 1), 90));
+        index.index(film(1, LocalDate.of(2024, 1, 1), 200));
+
+        assertEquals(List.of(), ids(new FilmFilter(null, LocalDate.of(2023, 1, 1), null)));
+        assertEquals(List.of(1L), ids(new FilmFilter(LocalDate.of(2023, 1, 1), null, null)));
+        assertEquals(List.of(), ids(new FilmFilter(null, null, Duration.ofMinutes(90))));
+        assertEquals(List.of(1L), ids(new FilmFilter(null, null, Duration.ofMinutes(200))));
+    }
+
+    private List<Long> ids(FilmFilter filter) {
+        return index.scan(filter).map(Film::getId).toList();
+    }
+
+    private static Film film(long id, LocalDate releaseDate, long minutes) {
+        return Film.builder()
+                .id(id)
+                .name("Film " + id)
+                .releaseDate(releaseDate)
+                .duration(Duration.ofMinutes(minutes))
+                .build();
+    }
+}
@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FilmSearchIndexTests {
+
+    private final Map<Long, Integer> likes = new HashMap<>();
+    private final FilmSearchIndex index = new FilmSearchIndex(filmId -> likes.getOrDefault(filmId, 0));
+
+    @Test
+    void matchesWordPrefixesTest() {
+        index.index(film(1, "Matrix", "Neo wakes up"));
+        index.index(film(2, "Unmatched", "Fan-made matrix remake"));
+        index.index(film(3, "Ёлки", "Новогодняя комедия"));
+
+        assertEquals(List.of(1L, 2L), index.search("mat", 10));
+        assertEquals(List.of(), index.search("atrix", 10));
+        assertEquals(List.of(2L), index.search("MADE matrix", 10));
+        assertEquals(List.of(), index.search("matrix комедия", 10));
+        assertEquals(List.of(3L), index.search("елки", 10));
+        assertEquals(List.of(3L), index.search("Ёлк", 10));
+        assertEquals(List.of(), index.search(" ,.- ", 10));
+    }
+
+    @Test
+    void reindexReplacesOldWordsTest() {
+        index.index(film(1, "Anora", "Censored"));
+        index.index(film(1, "Flow", "Cat"));
+
+        assertEquals(List.of(), index.search("anora", 10));
+        assertEquals(List.of(), index.search("cens", 10));
+        assertEquals(List.of(1L), index.search("flo cat", 10));
+    }
+
+    @Test
+    void ranksByWeightAndLikesTest() {
+        index.index(film(1, "Other", "space"));
+        index.index(film(2, "Space", "Other"));
+        index.index(film(3, "Spaceship", "Other"));
+        index.index(film(4, "Other", "space space"));
+
+        // Точное слово в названии (3 * 2), два точных в описании (2 * 2), префикс в названии (3), одно в описании (2)
+        assertEquals(List.of(2L, 4L, 3L, 1L), index.search("space", 10));
+        assertEquals(List.of(2L, 4L), index.search("space", 2));
+
+        // Лайки умножают оценку на 1 + ln(1 + лайки): 2 * (1 + ln 101) > 6 * (1 + ln 1)
+        likes.put(1L, 100);
+        assertEquals(List.of(1L, 2L, 4L, 3L), index.search("space", 10));
+    }
+
+    @Test
+    void equalScoresKeepSmallerIdFirstTest() {
+        index.index(film(7, "Dune", null));
+        index.index(film(3, "Dune", null));
+        index.index(film(5, "Dune", null));
+
+        assertEquals(List.of(3L, 5L, 7L), index.search("dune", 10));
+    }
+
+    private static Film film(long id, String name, String description) {
+        return Film.builder()
+                .id(id)
+                .name(name)
+                .description(description)
+                .build();
+    }
+}
@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.*;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TrendingIndexTests {
+
+    private static final Duration HOUR = Duration.ofHours(1);
+    private static final Duration DAY = Duration.ofDays(1);
+    private static final Duration WEEK = Duration.ofDays(7);
+
+    private final MutableClock clock = new MutableClock();
+    private final TrendingIndex index = new TrendingIndex(clock);
+
+    @Test
+    void likeLeavesWindowsAsBucketsRotateTest() {
+        index.added(1L, clock.millis());
+        index.added(1L, clock.millis());
+        clock.advance(Duration.ofMinutes(30));
+        index.added(2L, clock.millis());
+
+        assertEquals(List.of(1L, 2L), index.top(HOUR, 10));
+
+        clock.advance(Duration.ofMinutes(35));
+        assertEquals(List.of(2L), index.top(HOUR, 10));
+        assertEquals(List.of(1L, 2L), index.top(DAY, 10));
+
+        clock.advance(DAY);
+        assertEquals(List.of(), index.top(DAY, 10));
+        assertEquals(List.of(1L, 2L), index.top(WEEK, 10));
+    }
+
+    @Test
+    void removedLikeIsSubtractedFromItsOwnBucketTest() {
+        long likedAt = clock.millis();
+        index.added(1L, likedAt);
+        index.added(1L, likedAt);
+        index.added(2L, likedAt);
+        clock.advance(Duration.ofHours(2));
+
+        // Лайк поставлен вне часового окна: снятие меняет только дневное и недельное
+        index.added(2L, clock.millis());
+        index.removed(1L, likedAt);
+        assertEquals(List.of(2L), index.top(HOUR, 10));
+        assertEquals(List.of(2L, 1L), index.top(DAY, 10));
+        assertEquals(List.of(2L, 1L), index.top(WEEK, 10));
+    }
+
+    @Test
+    void removingLikeOlderThanAllWindowsChangesNothingTest() {
+        long likedAt = clock.millis();
+        index.added(1L, likedAt);
+        // Корзины сменяются по одной, без сброса после простоя
+        clock.advance(Duration.ofDays(4));
+        index.added(1L, clock.millis());
+        clock.advance(Duration.ofDays(4));
+        index.added(1L, clock.millis());
+        index.added(2L, clock.millis());
+        index.added(2L, clock.millis());
+
+        // Равенство лайков: выше меньший id. Лишнее вычитание опустило бы первый фильм
+        index.removed(1L, likedAt);
+        assertEquals(List.of(1L, 2L), index.top(WEEK, 10));
+        assertEquals(List.of(2L, 1L), index.top(HOUR, 10));
+    }
+
+    @Test
+    void longIdleResetsAllWindowsTest() {
+        long likedAt = clock.millis();
+        index.added(1L, likedAt);
+        clock.advance(Duration.ofDays(30));
+
+        assertEquals(List.of(), index.top(WEEK, 10));
+        index.removed(1L, likedAt);
+        index.added(2L, clock.millis());
+        assertEquals(List.of(2L), index.top(HOUR, 10));
+        assertEquals(List.of(2L), index.top(WEEK, 10));
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-10-18T12:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}